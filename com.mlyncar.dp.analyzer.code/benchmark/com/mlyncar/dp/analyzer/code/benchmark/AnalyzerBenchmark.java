@@ -0,0 +1,90 @@
+package com.mlyncar.dp.analyzer.code.benchmark;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.SourceCodeAnalyzer;
+import com.mlyncar.dp.analyzer.code.config.AnalyzerEngine;
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.KdmAnalyzer;
+import com.mlyncar.dp.analyzer.code.impl.bytecode.BytecodeAnalyzer;
+import com.mlyncar.dp.analyzer.code.impl.jdt.JdtAstAnalyzer;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+
+/**
+ * Compares analyzer engines on current project. Every engine extracts diagram
+ * of main method several times, wall clock time and heap growth of every run
+ * are logged together with first difference between diagram of the engine
+ * and diagram of KDM engine.
+ *
+ * Benchmark lives in its own source folder which is not part of the bundle
+ * build, it is compiled in the workspace only and run from development
+ * instance of the plugin.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class AnalyzerBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyzerBenchmark.class);
+
+    public static void compareEngines(CodeAnalyzerConfiguration configuration, int runs) throws SourceCodeAnalyzerException {
+        SeqDiagram kdmDiagram = measure(AnalyzerEngine.KDM, new KdmAnalyzer(configuration), runs);
+        SeqDiagram jdtDiagram = measure(AnalyzerEngine.JDT, new JdtAstAnalyzer(configuration), runs);
+        SeqDiagram bytecodeDiagram = measure(AnalyzerEngine.BYTECODE, new BytecodeAnalyzer(configuration), runs);
+        compareDiagrams(AnalyzerEngine.JDT, kdmDiagram, jdtDiagram);
+        compareDiagrams(AnalyzerEngine.BYTECODE, kdmDiagram, bytecodeDiagram);
+    }
+
+    private static SeqDiagram measure(AnalyzerEngine engine, SourceCodeAnalyzer analyzer, int runs) throws SourceCodeAnalyzerException {
+        Runtime runtime = Runtime.getRuntime();
+        SeqDiagram diagram = null;
+        long totalTime = 0;
+        for (int run = 1; run <= runs; run++) {
+            System.gc();
+            long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+            long start = System.nanoTime();
+            diagram = analyzer.extractSequenceDiagramFromMain(new NullProgressMonitor());
+            long time = (System.nanoTime() - start) / 1000000;
+            long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+            totalTime += time;
+            logger.debug("Engine {} run {}: {} ms, heap growth {} kB, {} messages",
+                    engine.getCode(), run, time, (usedAfter - usedBefore) / 1024, diagram.getMessages().size());
+        }
+        logger.debug("Engine {} average time {} ms", engine.getCode(), runs == 0 ? 0 : totalTime / runs);
+        return diagram;
+    }
+
+    private static void compareDiagrams(AnalyzerEngine engine, SeqDiagram kdmDiagram, SeqDiagram engineDiagram) {
+        if (kdmDiagram == null || engineDiagram == null) {
+            return;
+        }
+        List<Message> kdmMessages = kdmDiagram.getMessages();
+        List<Message> engineMessages = engineDiagram.getMessages();
+        int size = Math.min(kdmMessages.size(), engineMessages.size());
+        for (int i = 0; i < size; i++) {
+            String kdmMessage = describe(kdmMessages.get(i));
+            String engineMessage = describe(engineMessages.get(i));
+            if (!kdmMessage.equals(engineMessage)) {
+                logger.debug("Diagrams of kdm and {} differ at message {}: {}, {}", engine.getCode(), i, kdmMessage, engineMessage);
+                return;
+            }
+        }
+        if (kdmMessages.size() != engineMessages.size()) {
+            logger.debug("Diagrams of kdm and {} differ in number of messages: {}, {}", engine.getCode(), kdmMessages.size(), engineMessages.size());
+        } else {
+            logger.debug("Diagrams of kdm and {} are equal, {} messages", engine.getCode(), size);
+        }
+    }
+
+    private static String describe(Message message) {
+        return message.getType().getCode() + " " + message.getName() + " "
+                + message.getSourceLifeline().getPackageName() + message.getSourceLifeline().getName() + " -> "
+                + message.getTargetLifeline().getPackageName() + message.getTargetLifeline().getName()
+                + " fragments " + message.getCombFragments().size();
+    }
+}
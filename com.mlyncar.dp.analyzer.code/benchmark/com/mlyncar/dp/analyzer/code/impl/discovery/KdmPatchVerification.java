@@ -0,0 +1,159 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.modisco.infra.discovery.core.exception.DiscoveryException;
+import org.eclipse.modisco.java.discoverer.DiscoverKDMModelFromJavaProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.CallGraph;
+import com.mlyncar.dp.analyzer.code.impl.KdmCallGraph;
+import com.mlyncar.dp.analyzer.code.impl.KdmClassHierarchy;
+import com.mlyncar.dp.analyzer.code.impl.KdmSymbolIndex;
+import com.mlyncar.dp.analyzer.code.impl.KdmVariableResolver;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+
+/**
+ * Round trip check of {@link KdmModelPatcher}. Sample compilation units of
+ * project are rediscovered in scratch project and patched into KDM model of
+ * the whole project, call graph of patched model must be equal to call graph
+ * of full rediscovery of the project. Check creates and deletes hidden
+ * scratch project in workspace like {@link IncrementalKdmDiscoverer} does.
+ *
+ * Verification lives in benchmark source folder which is not part of the
+ * bundle build and is run from development instance of the plugin.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class KdmPatchVerification {
+
+    private static final String SCRATCH_PROJECT_SUFFIX = ".kdm-verification";
+    private static final String UNIT_EXTENSION = ".java";
+
+    private static final Logger logger = LoggerFactory.getLogger(KdmPatchVerification.class);
+
+    /**
+     * @param project verified project
+     * @param sampleSize number of compilation units patched into the model
+     * @param preferredClasses classes preferred by class hierarchy analysis
+     * @param monitor progress monitor
+     * @return true if call graphs of patched model and full rediscovery are
+     * equal
+     */
+    public static boolean verifyPatch(IJavaProject project, int sampleSize, List<String> preferredClasses, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        KdmModelCache cache = new KdmModelCache(null);
+        List<String> unitPaths = new ArrayList<String>();
+        for (String resourcePath : new TreeSet<String>(cache.createFingerprint(project).keySet())) {
+            if (resourcePath.endsWith(UNIT_EXTENSION) && unitPaths.size() < sampleSize) {
+                unitPaths.add(resourcePath);
+            }
+        }
+        Set<String> sampleTypes = new LinkedHashSet<String>();
+        for (List<String> typeNames : cache.createUnitIndex(project, unitPaths).values()) {
+            sampleTypes.addAll(typeNames);
+        }
+
+        Resource fullModel = discover(project, monitor);
+        Resource patchedModel = discover(project, monitor);
+        ScratchProjectFactory scratchProjectFactory = new ScratchProjectFactory();
+        IProject scratchProject = scratchProjectFactory.getScratchProject(project, SCRATCH_PROJECT_SUFFIX);
+        try {
+            scratchProjectFactory.createScratchProject(scratchProject, project, unitPaths, monitor);
+            Resource partialModel = discover(JavaCore.create(scratchProject), monitor);
+            KdmModelPatcher patcher = new KdmModelPatcher(patchedModel, project.getElementName());
+            if (!patcher.patch(partialModel, scratchProject.getName(), sampleTypes, sampleTypes)) {
+                logger.debug("Sample units of project {} could not be patched", project.getElementName());
+                return false;
+            }
+        } catch (CoreException ex) {
+            throw new SourceCodeAnalyzerException("Unable to create scratch project for verification of project " + project.getElementName(), ex);
+        } finally {
+            scratchProjectFactory.deleteScratchProject(scratchProject);
+        }
+
+        Map<String, List<String>> fullCalls = describe(createCallGraph(fullModel, preferredClasses));
+        Map<String, List<String>> patchedCalls = describe(createCallGraph(patchedModel, preferredClasses));
+        for (String method : fullCalls.keySet()) {
+            if (!fullCalls.get(method).equals(patchedCalls.get(method))) {
+                logger.debug("Patched model of project {} differs in calls of method {}: {}, {}",
+                        project.getElementName(), method, fullCalls.get(method), patchedCalls.get(method));
+                return false;
+            }
+        }
+        if (!fullCalls.keySet().equals(patchedCalls.keySet())) {
+            logger.debug("Patched model of project {} differs in methods: {}, {}", project.getElementName(), fullCalls.size(), patchedCalls.size());
+            return false;
+        }
+        logger.debug("Patched model of project {} is equal to full discovery, {} units patched, {} methods",
+                project.getElementName(), unitPaths.size(), fullCalls.size());
+        return true;
+    }
+
+    private static Resource discover(IJavaProject project, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        DiscoverKDMModelFromJavaProject discoverer = new DiscoverKDMModelFromJavaProject();
+        try {
+            discoverer.discoverElement(project, monitor);
+            if (monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            return discoverer.getTargetModel();
+        } catch (DiscoveryException ex) {
+            throw new SourceCodeAnalyzerException("Failed to create KDM model of project " + project.getElementName(), ex);
+        }
+    }
+
+    private static CallGraph createCallGraph(Resource kdmResource, List<String> preferredClasses) throws SourceCodeAnalyzerException {
+        EcoreUtil.resolveAll(kdmResource);
+        KdmSymbolIndex symbolIndex = new KdmSymbolIndex(kdmResource);
+        return new KdmCallGraph(symbolIndex, new KdmClassHierarchy(symbolIndex, preferredClasses), new KdmVariableResolver());
+    }
+
+    /**
+     * Methods are numbered differently in every graph, so calls are described
+     * by qualified names of methods. Overloaded methods share qualified name,
+     * their call lists are sorted.
+     *
+     * @return calls of methods of every qualified name
+     */
+    private static Map<String, List<String>> describe(CallGraph graph) {
+        Map<String, List<String>> methodCalls = new TreeMap<String, List<String>>();
+        for (int method = 0; method < graph.getMethodCount(); method++) {
+            List<String> calls = new ArrayList<String>();
+            try {
+                for (int call = graph.getFirstCall(method); call < graph.getCallEnd(method); call++) {
+                    StringBuilder description = new StringBuilder(graph.getQualifiedName(graph.getCallTarget(call)))
+                            .append(" ").append(graph.getVariableName(call))
+                            .append(graph.isSelfCall(call) ? " self" : "")
+                            .append(graph.isInstanceCreation(call) ? " new" : "");
+                    for (CombFragment fragment : graph.getCombinedFragments(call)) {
+                        description.append(" ").append(fragment.getCombFragmentType()).append(":").append(fragment.getInteractionFragment());
+                    }
+                    calls.add(description.toString());
+                }
+            } catch (SourceCodeAnalyzerException ex) {
+                calls.add("failure " + ex.getMessage());
+            }
+            methodCalls.computeIfAbsent(graph.getQualifiedName(method), key -> new ArrayList<String>()).add(calls.toString());
+        }
+        for (List<String> overloadedCalls : methodCalls.values()) {
+            overloadedCalls.sort(null);
+        }
+        return methodCalls;
+    }
+}
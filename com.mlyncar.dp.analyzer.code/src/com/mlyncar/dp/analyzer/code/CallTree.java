@@ -0,0 +1,34 @@
+package com.mlyncar.dp.analyzer.code;
+
+import java.util.List;
+
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.Message;
+
+/**
+ * Call extracted from source code together with calls made by the called
+ * method. Calls of the called method may be extracted on first request, so
+ * only the parts of the tree which are read are ever extracted.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public interface CallTree {
+
+    /**
+     * @return qualified name of called method in form package.Class.method,
+     * null if it is not known
+     */
+    public String getQualifiedName();
+
+    public Message getCallMessage();
+
+    /**
+     * @return return message of the call, null for interaction references
+     */
+    public Message getReturnMessage();
+
+    /**
+     * @return calls made by called method in order of method body
+     */
+    public List<CallTree> getCalls() throws SourceCodeAnalyzerException;
+}
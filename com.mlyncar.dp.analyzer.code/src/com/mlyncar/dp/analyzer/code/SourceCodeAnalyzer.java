@@ -15,7 +15,14 @@
  */
 package com.mlyncar.dp.analyzer.code;
 
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.mlyncar.dp.analyzer.code.entry.EntryPointSelector;
 import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 
 /**
@@ -24,5 +31,73 @@ import com.mlyncar.dp.analyzer.entity.SeqDiagram;
  */
 public interface SourceCodeAnalyzer {
 
-    public SeqDiagram extractSequenceDiagramFromMain() throws SourceCodeAnalyzerException;
+    /**
+     * @param monitor monitor of source code analysis, analysis throws
+     * {@link org.eclipse.core.runtime.OperationCanceledException} when it is
+     * canceled
+     */
+    public SeqDiagram extractSequenceDiagramFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException;
+
+    /**
+     * Pushes messages of diagram of main method into sink created by factory
+     * as they are extracted.
+     *
+     * @param monitor monitor of source code analysis
+     */
+    public void extractSequenceDiagramFromMain(MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException;
+
+    /**
+     * Extracts one diagram for every method matched by some of selectors.
+     * Diagrams are named by qualified name of their entry method.
+     *
+     * @param monitor monitor of source code analysis
+     */
+    public List<SeqDiagram> extractSequenceDiagrams(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException;
+
+    /**
+     * Pushes messages of every diagram matched by some of selectors into sink
+     * created by factory as they are extracted. Sinks are created in order of
+     * entry methods before extraction starts.
+     *
+     * @param monitor monitor of source code analysis
+     */
+    public void extractSequenceDiagrams(List<EntryPointSelector> selectors, MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException;
+
+    /**
+     * Extracts call tree of main method. Calls of the tree are extracted from
+     * source code when they are first read.
+     *
+     * @param monitor monitor of source code analysis, analysis throws
+     * {@link org.eclipse.core.runtime.OperationCanceledException} when it is
+     * canceled
+     */
+    public CallTree extractCallTreeFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException;
+
+    /**
+     * Extracts one call tree for every method matched by some of selectors,
+     * in order of entry methods. Trees are named by qualified name of their
+     * entry method and their calls are extracted when they are first read.
+     *
+     * @param selectors selectors of entry methods
+     * @param monitor monitor of source code analysis
+     */
+    public List<CallTree> extractCallTrees(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException;
+
+    /**
+     * Extracts call tree of method invoked by every root message, method is
+     * looked up by message name and class of message target lifeline, see
+     * {@link com.mlyncar.dp.analyzer.code.entry.MessageSelector}. Every tree
+     * starts with its root message, so it keeps lifelines of the diagram the
+     * message was read from.
+     *
+     * @param rootMessages messages of diagrams extraction starts from
+     * @param depthLimits maximum depth of calls extracted below every root
+     * message in order of root messages, configured maximum depth applies if
+     * it is lower
+     * @param monitor monitor of source code analysis
+     * @return trees in order of root messages, null for message no method
+     * was found for or more than one method matches, such as overloads or
+     * classes of the same name when lifeline has no package
+     */
+    public List<CallTree> extractTargetedCallTrees(List<Message> rootMessages, List<Integer> depthLimits, IProgressMonitor monitor) throws SourceCodeAnalyzerException;
 }
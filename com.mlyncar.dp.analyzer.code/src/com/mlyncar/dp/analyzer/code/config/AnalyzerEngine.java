@@ -0,0 +1,36 @@
+package com.mlyncar.dp.analyzer.code.config;
+
+/**
+ * Implementation of source code analysis.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public enum AnalyzerEngine {
+
+    KDM("kdm"),
+    JDT("jdt"),
+    BYTECODE("bytecode"),
+    TRACE("trace");
+
+    private final String code;
+
+    private AnalyzerEngine(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return this.code;
+    }
+
+    /**
+     * @return engine with given code or null if code is unknown
+     */
+    public static AnalyzerEngine fromCode(String code) {
+        for (AnalyzerEngine engine : AnalyzerEngine.values()) {
+            if (engine.getCode().equalsIgnoreCase(code)) {
+                return engine;
+            }
+        }
+        return null;
+    }
+}
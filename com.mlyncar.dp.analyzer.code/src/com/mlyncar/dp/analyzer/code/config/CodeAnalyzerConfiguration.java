@@ -0,0 +1,237 @@
+package com.mlyncar.dp.analyzer.code.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.entry.EntryPointSelector;
+import com.mlyncar.dp.analyzer.code.entry.EntryPointSelectorFactory;
+
+/**
+ * Configuration of source code analysis. Values are read from synchronization
+ * properties, missing or malformed values fall back to defaults.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class CodeAnalyzerConfiguration {
+
+    public static final String KDM_CACHE_PROPERTY = "analyzer.kdm.cache";
+    public static final String KDM_INCREMENTAL_PROPERTY = "analyzer.kdm.incremental";
+    public static final String KDM_INCREMENTAL_MAX_UNITS_PROPERTY = "analyzer.kdm.incremental.max";
+    public static final String KDM_PARALLEL_PROPERTY = "analyzer.kdm.parallel";
+    public static final String MAX_CALL_DEPTH_PROPERTY = "analyzer.depth.max";
+    public static final String DIAGRAM_DEPTH_PROPERTY = "analyzer.depth.diagram";
+    public static final String DEPTH_SLACK_PROPERTY = "analyzer.depth.slack";
+    public static final String MAX_MESSAGES_PROPERTY = "analyzer.messages.max";
+    public static final String ENTRY_POINTS_PROPERTY = "analyzer.entry.points";
+    public static final String TARGETED_EXTRACTION_PROPERTY = "analyzer.entry.targeted";
+    public static final String LAZY_EXTRACTION_PROPERTY = "analyzer.entry.lazy";
+    public static final String PARALLELISM_PROPERTY = "analyzer.parallelism";
+    public static final String ENGINE_PROPERTY = "analyzer.engine";
+    public static final String FILTER_NATIVE_PROPERTY = "analyzer.filter.native";
+    public static final String FILTER_EXTERNAL_PROPERTY = "analyzer.filter.external";
+    public static final String TRACE_FILE_PROPERTY = "analyzer.trace.file";
+    public static final String CHA_PREFERRED_PROPERTY = "analyzer.cha.preferred";
+
+    private static final int DEFAULT_INCREMENTAL_MAX_UNITS = 50;
+    private static final int DEFAULT_MAX_CALL_DEPTH = 30;
+    private static final int DEFAULT_DEPTH_SLACK = 2;
+    private static final int DEFAULT_MAX_MESSAGES = 2000;
+
+    private final Properties properties;
+    private final Logger logger = LoggerFactory.getLogger(CodeAnalyzerConfiguration.class);
+
+    public CodeAnalyzerConfiguration() {
+        this(new Properties());
+    }
+
+    public CodeAnalyzerConfiguration(Properties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isKdmCacheEnabled() {
+        return getBooleanProperty(KDM_CACHE_PROPERTY, true);
+    }
+
+    /**
+     * @return true if changed compilation units are patched into cached KDM
+     * model, disabled by default because patching creates and deletes hidden
+     * scratch project in workspace
+     */
+    public boolean isKdmIncrementalEnabled() {
+        return getBooleanProperty(KDM_INCREMENTAL_PROPERTY, false);
+    }
+
+    /**
+     * @return maximum number of changed compilation units which are
+     * rediscovered incrementally, larger changes trigger full discovery
+     */
+    public int getKdmIncrementalMaxUnits() {
+        return getIntegerProperty(KDM_INCREMENTAL_MAX_UNITS_PROPERTY, DEFAULT_INCREMENTAL_MAX_UNITS);
+    }
+
+    /**
+     * @return true if full discovery splits project into partitions of
+     * packages discovered by {@link #getParallelism()} threads
+     */
+    public boolean isKdmParallelEnabled() {
+        return getBooleanProperty(KDM_PARALLEL_PROPERTY, false);
+    }
+
+    /**
+     * @return maximum depth of nested method calls expanded from main method
+     */
+    public int getMaxCallDepth() {
+        return getIntegerProperty(MAX_CALL_DEPTH_PROPERTY, DEFAULT_MAX_CALL_DEPTH);
+    }
+
+    /**
+     * @return true if code compared with diagram is extracted only to depth
+     * of the diagram increased by {@link #getDepthSlack()}
+     */
+    public boolean isDiagramDepthEnabled() {
+        return getBooleanProperty(DIAGRAM_DEPTH_PROPERTY, true);
+    }
+
+    /**
+     * @return number of call levels extracted from code below the deepest
+     * call of compared diagram
+     */
+    public int getDepthSlack() {
+        return getIntegerProperty(DEPTH_SLACK_PROPERTY, DEFAULT_DEPTH_SLACK);
+    }
+
+    /**
+     * @return maximum number of messages in extracted diagram, calls over the
+     * budget are replaced by interaction references
+     */
+    public int getMaxMessages() {
+        return getIntegerProperty(MAX_MESSAGES_PROPERTY, DEFAULT_MAX_MESSAGES);
+    }
+
+    /**
+     * @return selectors of methods diagrams are extracted from, empty list if
+     * only diagram of main method is extracted
+     */
+    public List<EntryPointSelector> getEntryPointSelectors() {
+        return EntryPointSelectorFactory.createSelectors(getProperty(ENTRY_POINTS_PROPERTY));
+    }
+
+    /**
+     * @return true if code compared with diagram is extracted from method
+     * invoked by root message of the diagram, entry points are used only for
+     * diagrams whose root message does not match any method
+     */
+    public boolean isTargetedExtractionEnabled() {
+        return getBooleanProperty(TARGETED_EXTRACTION_PROPERTY, true);
+    }
+
+    /**
+     * @return true if calls of entry points are extracted only when
+     * comparison reads them, false if whole diagrams of entry points are
+     * extracted in parallel and streamed into graphs before comparison
+     */
+    public boolean isLazyExtractionEnabled() {
+        return getBooleanProperty(LAZY_EXTRACTION_PROPERTY, true);
+    }
+
+    /**
+     * @return number of threads extracting diagrams of entry points and
+     * discovering partitions of KDM model
+     */
+    public int getParallelism() {
+        int parallelism = getIntegerProperty(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+        return parallelism < 1 ? 1 : parallelism;
+    }
+
+    /**
+     * @return engine extracting sequence diagrams from source code
+     */
+    public AnalyzerEngine getAnalyzerEngine() {
+        String value = getProperty(ENGINE_PROPERTY);
+        if (value == null || value.isEmpty()) {
+            return AnalyzerEngine.KDM;
+        }
+        AnalyzerEngine engine = AnalyzerEngine.fromCode(value);
+        if (engine == null) {
+            logger.debug("Configuration directive {} contains unknown engine {}, using {}", ENGINE_PROPERTY, value, AnalyzerEngine.KDM.getCode());
+            return AnalyzerEngine.KDM;
+        }
+        return engine;
+    }
+
+    /**
+     * Filters are off by default. Lifelines of UML diagrams have no package,
+     * so comparison can not tell filtered calls from removed ones and
+     * messages of filtered calls kept in diagrams would be removed.
+     *
+     * @return policy of packages whose calls are left out of extracted
+     * diagrams
+     */
+    public PackagePolicy getPackagePolicy() {
+        return new PackagePolicy(getBooleanProperty(FILTER_NATIVE_PROPERTY, false), getBooleanProperty(FILTER_EXTERNAL_PROPERTY, false));
+    }
+
+    /**
+     * @return call trace file diagrams are built from by trace engine,
+     * relative to project location, null if it is not configured
+     */
+    public String getTraceFile() {
+        String value = getProperty(TRACE_FILE_PROPERTY);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * @return qualified names of classes whose implementations are chosen
+     * for calls of methods with several implementations, in order of
+     * preference
+     */
+    public List<String> getPreferredImplementations() {
+        List<String> preferredClasses = new ArrayList<String>();
+        String value = getProperty(CHA_PREFERRED_PROPERTY);
+        if (value == null) {
+            return preferredClasses;
+        }
+        for (String token : value.split(",")) {
+            if (!token.trim().isEmpty()) {
+                preferredClasses.add(token.trim());
+            }
+        }
+        return preferredClasses;
+    }
+
+    protected String getProperty(String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    protected boolean getBooleanProperty(String key, boolean defaultValue) {
+        String value = getProperty(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    protected int getIntegerProperty(String key, int defaultValue) {
+        String value = getProperty(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            logger.debug("Configuration directive {} contains incorrect value {}, using default {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
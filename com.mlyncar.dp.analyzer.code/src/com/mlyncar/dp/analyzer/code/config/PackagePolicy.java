@@ -0,0 +1,85 @@
+package com.mlyncar.dp.analyzer.code.config;
+
+/**
+ * Classification of packages shared by extraction of diagrams from source
+ * code and by synchronization rules. Packages are in form used by lifelines,
+ * with trailing dot, empty string stands for default or unknown package.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class PackagePolicy {
+
+    private static final String[] NATIVE_PACKAGES = {"java.io", "java.util", "java.lang"};
+
+    private final boolean ignoreNativeCalls;
+    private final boolean ignoreExternalCalls;
+
+    /**
+     * @param ignoreNativeCalls true if calls into native packages are not
+     * extracted
+     * @param ignoreExternalCalls true if calls outside of package group of
+     * entry method are not extracted
+     */
+    public PackagePolicy(boolean ignoreNativeCalls, boolean ignoreExternalCalls) {
+        this.ignoreNativeCalls = ignoreNativeCalls;
+        this.ignoreExternalCalls = ignoreExternalCalls;
+    }
+
+    public boolean isIgnoreNativeCalls() {
+        return ignoreNativeCalls;
+    }
+
+    public boolean isIgnoreExternalCalls() {
+        return ignoreExternalCalls;
+    }
+
+    /**
+     * Classes of default package are never ignored, they can not be told
+     * apart from classes of project.
+     *
+     * @param targetPackage package of called class
+     * @param entryPackage package of class of entry method
+     * @return true if call should not be extracted
+     */
+    public boolean isIgnoredCall(String targetPackage, String entryPackage) {
+        if (targetPackage.isEmpty()) {
+            return false;
+        }
+        if (ignoreNativeCalls && isNativePackage(targetPackage)) {
+            return true;
+        }
+        return ignoreExternalCalls && !entryPackage.isEmpty() && !isSamePackageGroup(targetPackage, entryPackage);
+    }
+
+    /**
+     * @return true if package belongs to java.io, java.util or java.lang
+     */
+    public static boolean isNativePackage(String packageName) {
+        for (String nativePackage : NATIVE_PACKAGES) {
+            if (packageName.contains(nativePackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return first two segments of package or whole package without
+     * trailing dot if it has less segments
+     */
+    public static String getPackageGroup(String packageName) {
+        int firstDot = packageName.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : packageName.indexOf('.', firstDot + 1);
+        if (secondDot < 0) {
+            return packageName.endsWith(".") ? packageName.substring(0, packageName.length() - 1) : packageName;
+        }
+        return packageName.substring(0, secondDot);
+    }
+
+    /**
+     * @return true if package group of package is contained in root package
+     */
+    public static boolean isSamePackageGroup(String packageName, String rootPackage) {
+        return rootPackage.contains(getPackageGroup(packageName));
+    }
+}
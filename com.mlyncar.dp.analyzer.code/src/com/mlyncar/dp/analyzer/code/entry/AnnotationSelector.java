@@ -0,0 +1,61 @@
+package com.mlyncar.dp.analyzer.code.entry;
+
+import org.eclipse.jdt.core.IAnnotation;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects methods annotated by given annotation, e.g. GET or
+ * javax.ws.rs.GET. Annotations are read from JDT model of the project as KDM
+ * model does not keep them. Overloaded methods are not distinguished.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class AnnotationSelector implements EntryPointSelector {
+
+    private final String annotationName;
+    private final String simpleAnnotationName;
+    private final Logger logger = LoggerFactory.getLogger(AnnotationSelector.class);
+
+    public AnnotationSelector(String annotationName) {
+        this.annotationName = annotationName;
+        this.simpleAnnotationName = annotationName.substring(annotationName.lastIndexOf('.') + 1);
+    }
+
+    @Override
+    public boolean matches(String qualifiedName, IJavaProject project) {
+        int separator = qualifiedName.lastIndexOf('.');
+        if (separator < 0 || project == null) {
+            return false;
+        }
+        try {
+            IType type = project.findType(qualifiedName.substring(0, separator));
+            if (type == null) {
+                return false;
+            }
+            for (IMethod method : type.getMethods()) {
+                if (!method.getElementName().equals(qualifiedName.substring(separator + 1))) {
+                    continue;
+                }
+                for (IAnnotation annotation : method.getAnnotations()) {
+                    String name = annotation.getElementName();
+                    if (name.equals(annotationName) || name.equals(simpleAnnotationName)) {
+                        return true;
+                    }
+                }
+            }
+        } catch (JavaModelException ex) {
+            logger.debug("Unable to read annotations of method {}", qualifiedName, ex);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "@" + annotationName;
+    }
+}
@@ -0,0 +1,18 @@
+package com.mlyncar.dp.analyzer.code.entry;
+
+import org.eclipse.jdt.core.IJavaProject;
+
+/**
+ * Selects methods sequence diagrams are extracted from.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public interface EntryPointSelector {
+
+    /**
+     * @param qualifiedName qualified name of candidate method in form package.Class.method
+     * @param project analyzed project
+     * @return true if method is entry point
+     */
+    public boolean matches(String qualifiedName, IJavaProject project);
+}
@@ -0,0 +1,41 @@
+package com.mlyncar.dp.analyzer.code.entry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates entry point selectors from comma separated definition. Definition
+ * starting with @ selects annotated methods, definition containing * or ?
+ * is wildcard pattern, other definitions are qualified method names.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class EntryPointSelectorFactory {
+
+    private EntryPointSelectorFactory() {
+    }
+
+    public static List<EntryPointSelector> createSelectors(String definition) {
+        List<EntryPointSelector> selectors = new ArrayList<EntryPointSelector>();
+        if (definition == null) {
+            return selectors;
+        }
+        for (String token : definition.split(",")) {
+            String selector = token.trim();
+            if (selector.isEmpty()) {
+                continue;
+            }
+            selectors.add(createSelector(selector));
+        }
+        return selectors;
+    }
+
+    public static EntryPointSelector createSelector(String selector) {
+        if (selector.startsWith("@")) {
+            return new AnnotationSelector(selector.substring(1));
+        } else if (selector.contains("*") || selector.contains("?")) {
+            return new PatternSelector(selector);
+        }
+        return new QualifiedNameSelector(selector);
+    }
+}
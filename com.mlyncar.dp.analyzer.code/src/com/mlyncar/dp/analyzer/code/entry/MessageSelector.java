@@ -0,0 +1,70 @@
+package com.mlyncar.dp.analyzer.code.entry;
+
+import org.eclipse.jdt.core.IJavaProject;
+
+import com.mlyncar.dp.analyzer.entity.Message;
+
+/**
+ * Selects method invoked by message of sequence diagram. Method is matched by
+ * name of the message and class of its target lifeline, lifeline names are in
+ * form variable:Class or Class. If target lifeline has package, only method of
+ * class in that package is matched, otherwise classes of the same simple name
+ * in any package match.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class MessageSelector implements EntryPointSelector {
+
+    private final String packageName;
+    private final String className;
+    private final String methodName;
+    private final String variableName;
+
+    public MessageSelector(Message message) {
+        String lifelineName = message.getTargetLifeline().getName();
+        int separator = lifelineName.lastIndexOf(':');
+        this.className = lifelineName.substring(separator + 1).trim();
+        this.variableName = lifelineName.substring(0, separator + 1);
+        this.methodName = message.getName();
+        String lifelinePackage = message.getTargetLifeline().getPackageName();
+        this.packageName = lifelinePackage.isEmpty() || lifelinePackage.endsWith(".") ? lifelinePackage : lifelinePackage + ".";
+    }
+
+    @Override
+    public boolean matches(String qualifiedName, IJavaProject project) {
+        String name = className + "." + methodName;
+        if (!packageName.isEmpty()) {
+            return qualifiedName.equals(packageName + name);
+        }
+        return qualifiedName.equals(name) || qualifiedName.endsWith("." + name);
+    }
+
+    /**
+     * @return package of target lifeline ending with dot, empty string if
+     * lifeline has no package
+     */
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return variable of target lifeline followed by colon, empty string if
+     * lifeline has no variable
+     */
+    public String getVariableName() {
+        return variableName;
+    }
+
+    @Override
+    public String toString() {
+        return variableName + packageName + className + "." + methodName;
+    }
+}
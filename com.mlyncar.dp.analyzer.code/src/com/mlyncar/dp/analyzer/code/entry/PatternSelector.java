@@ -0,0 +1,43 @@
+package com.mlyncar.dp.analyzer.code.entry;
+
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.core.IJavaProject;
+
+/**
+ * Selects methods whose qualified name matches wildcard pattern. Character *
+ * matches any sequence of characters, ? matches single character, e.g.
+ * com.example.*Controller.handle*.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class PatternSelector implements EntryPointSelector {
+
+    private final String pattern;
+    private final Pattern compiledPattern;
+
+    public PatternSelector(String pattern) {
+        this.pattern = pattern;
+        StringBuilder regex = new StringBuilder();
+        for (char character : pattern.toCharArray()) {
+            if (character == '*') {
+                regex.append(".*");
+            } else if (character == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(character)));
+            }
+        }
+        this.compiledPattern = Pattern.compile(regex.toString());
+    }
+
+    @Override
+    public boolean matches(String qualifiedName, IJavaProject project) {
+        return compiledPattern.matcher(qualifiedName).matches();
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
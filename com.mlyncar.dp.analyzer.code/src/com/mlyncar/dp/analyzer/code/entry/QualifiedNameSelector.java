@@ -0,0 +1,27 @@
+package com.mlyncar.dp.analyzer.code.entry;
+
+import org.eclipse.jdt.core.IJavaProject;
+
+/**
+ * Selects method by its qualified name, e.g. com.example.Service.handle.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class QualifiedNameSelector implements EntryPointSelector {
+
+    private final String qualifiedName;
+
+    public QualifiedNameSelector(String qualifiedName) {
+        this.qualifiedName = qualifiedName;
+    }
+
+    @Override
+    public boolean matches(String qualifiedName, IJavaProject project) {
+        return this.qualifiedName.equals(qualifiedName);
+    }
+
+    @Override
+    public String toString() {
+        return qualifiedName;
+    }
+}
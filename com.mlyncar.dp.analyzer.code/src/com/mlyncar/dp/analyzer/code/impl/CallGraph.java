@@ -0,0 +1,99 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.List;
+
+import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+
+/**
+ * Call graph of analyzed project with methods and call sites numbered by
+ * integers. Methods declared in the project are numbered first, called
+ * methods declared outside of the project follow. Call sites of method body
+ * form consecutive range in order of the body.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public interface CallGraph {
+
+    public int getMethodCount();
+
+    /**
+     * @return number of methods declared in the project, they are numbered
+     * from zero
+     */
+    public int getProjectMethodCount();
+
+    /**
+     * @return the first method named main in the project
+     */
+    public int getMainMethod() throws MainMethodNotFoundException;
+
+    public String getMethodName(int method);
+
+    /**
+     * @return simple name of class or interface declaring the method
+     */
+    public String getClassName(int method);
+
+    /**
+     * @return package of declaring type ending with dot, empty string for
+     * default package
+     */
+    public String getPackageName(int method);
+
+    /**
+     * @return name in form package.Class.method
+     */
+    public String getQualifiedName(int method);
+
+    /**
+     * @return true if the method is declared in class, false for interface
+     * methods
+     */
+    public boolean isClassMethod(int method);
+
+    /**
+     * @return true if the method has any code element in the model
+     */
+    public boolean hasCodeElements(int method);
+
+    /**
+     * @return the first call site of method body
+     * @throws SourceCodeAnalyzerException if calls of method body could not
+     * be resolved
+     */
+    public int getFirstCall(int method) throws SourceCodeAnalyzerException;
+
+    /**
+     * @return call site following the last call site of method body
+     */
+    public int getCallEnd(int method);
+
+    /**
+     * @return method called by call site
+     */
+    public int getCallTarget(int call);
+
+    /**
+     * @return true if called method is declared by the same class as
+     * calling method
+     */
+    public boolean isSelfCall(int call);
+
+    /**
+     * @return true if call site creates instance of called class
+     */
+    public boolean isInstanceCreation(int call);
+
+    /**
+     * @return variable name of called object followed by colon or empty
+     * string, null for self calls
+     */
+    public String getVariableName(int call);
+
+    /**
+     * @return new list of combined fragments enclosing call site
+     */
+    public List<CombFragment> getCombinedFragments(int call);
+}
@@ -0,0 +1,115 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+
+/**
+ * Call tree of already extracted diagram, used by analyzers which can not
+ * extract calls of single method on request. Call of every message is closed
+ * by the next return message, reference messages have no calls.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class DiagramCallTree implements CallTree {
+
+    private final String qualifiedName;
+    private final Message callMessage;
+    private final List<CallTree> calls = new ArrayList<CallTree>();
+    private Message returnMessage;
+
+    private DiagramCallTree(String qualifiedName, Message callMessage) {
+        this.qualifiedName = qualifiedName;
+        this.callMessage = callMessage;
+    }
+
+    /**
+     * @param diagram diagram whose first message invokes entry method
+     * @return call tree of the diagram, root is named by the diagram
+     */
+    public static CallTree create(SeqDiagram diagram) throws SourceCodeAnalyzerException {
+        return create(diagram, null);
+    }
+
+    /**
+     * @param diagram diagram whose first message invokes entry method
+     * @param rootMessage message replacing the first message of diagram, null
+     * if the first message is kept
+     * @return call tree of the diagram, root is named by the diagram
+     */
+    public static CallTree create(SeqDiagram diagram, Message rootMessage) throws SourceCodeAnalyzerException {
+        return create(diagram, rootMessage, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param diagram diagram whose first message invokes entry method
+     * @param rootMessage message replacing the first message of diagram, null
+     * if the first message is kept
+     * @param maxDepth maximum depth of calls kept in the tree, messages of
+     * deeper calls are skipped
+     * @return call tree of the diagram, root is named by the diagram
+     */
+    public static CallTree create(SeqDiagram diagram, Message rootMessage, int maxDepth) throws SourceCodeAnalyzerException {
+        Iterator<Message> it = diagram.getMessages().iterator();
+        if (!it.hasNext()) {
+            throw new SourceCodeAnalyzerException("Diagram " + diagram.getName() + " does not contain any message");
+        }
+        Message firstMessage = it.next();
+        DiagramCallTree root = new DiagramCallTree(diagram.getName(), rootMessage == null ? firstMessage : rootMessage);
+        Deque<DiagramCallTree> activeCalls = new ArrayDeque<DiagramCallTree>();
+        activeCalls.push(root);
+        int skippedCalls = 0;
+        while (it.hasNext()) {
+            Message message = it.next();
+            if (message.getType() == MessageType.RETURN) {
+                if (skippedCalls > 0) {
+                    skippedCalls--;
+                } else if (activeCalls.size() > 1) {
+                    activeCalls.pop().returnMessage = message;
+                }
+                continue;
+            }
+            if (skippedCalls > 0 || activeCalls.size() > maxDepth) {
+                if (message.getType() != MessageType.REFERENCE) {
+                    skippedCalls++;
+                }
+                continue;
+            }
+            DiagramCallTree call = new DiagramCallTree(message.getInteractionReference(), message);
+            activeCalls.peek().calls.add(call);
+            if (message.getType() != MessageType.REFERENCE) {
+                activeCalls.push(call);
+            }
+        }
+        return root;
+    }
+
+    @Override
+    public String getQualifiedName() {
+        return qualifiedName;
+    }
+
+    @Override
+    public Message getCallMessage() {
+        return callMessage;
+    }
+
+    @Override
+    public Message getReturnMessage() {
+        return returnMessage;
+    }
+
+    @Override
+    public List<CallTree> getCalls() {
+        return Collections.unmodifiableList(calls);
+    }
+}
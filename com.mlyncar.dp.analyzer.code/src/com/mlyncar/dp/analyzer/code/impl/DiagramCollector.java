@@ -0,0 +1,32 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+
+/**
+ * Sink factory keeping all messages in their diagrams, used when whole
+ * diagrams are requested instead of streamed messages.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class DiagramCollector implements MessageSinkFactory {
+
+    private final List<SeqDiagram> diagrams = new ArrayList<SeqDiagram>();
+
+    @Override
+    public MessageSink createSink(SeqDiagram diagram) {
+        diagrams.add(diagram);
+        return diagram;
+    }
+
+    /**
+     * @return collected diagrams in order their sinks were created
+     */
+    public List<SeqDiagram> getDiagrams() {
+        return diagrams;
+    }
+}
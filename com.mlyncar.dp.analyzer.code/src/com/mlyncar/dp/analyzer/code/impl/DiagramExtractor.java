@@ -0,0 +1,326 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.Lifeline;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
+import com.mlyncar.dp.analyzer.entity.impl.SeqDiagramImpl;
+import com.mlyncar.dp.analyzer.exception.MessageSinkException;
+
+/**
+ * Extracts sequence diagram starting in one entry method. Extractor keeps
+ * call stack of single extraction and must not be shared between threads,
+ * expansions of method bodies are shared between extractors of the same
+ * source model. Subclasses walk method bodies of concrete source model and
+ * report calls by {@link #addMethodCall}. Calls ignored by package policy are
+ * neither expanded nor added to diagram.
+ *
+ * Messages of entry method body are pushed into sink of the diagram as soon
+ * as every call of the body is expanded, bodies of called methods are
+ * buffered in their expansions. Call tree extracted by
+ * {@link #extractCallTree} reads calls of each method body only when the
+ * calls are requested.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ * @param <M> method representation of source model
+ */
+public abstract class DiagramExtractor<M> {
+
+    private final Logger logger = LoggerFactory.getLogger(DiagramExtractor.class);
+    private final ExpansionCache<M> methodExpansions;
+    private final Deque<M> activeMethods = new ArrayDeque<M>();
+    private final Deque<MessageTarget> activeTargets = new ArrayDeque<MessageTarget>();
+    private final Map<M, List<MethodCall<M>>> methodCalls = new HashMap<M, List<MethodCall<M>>>();
+    private final int maxDepth;
+    private final int maxMessages;
+    private final PackagePolicy packagePolicy;
+    private String entryPackage = "";
+    private String packageGroup;
+    private int expansionHeight;
+    private int truncatedCalls;
+    private List<MethodCall<M>> reportedCalls;
+
+    /**
+     * @param methodExpansions complete method expansions, may be shared by
+     * extractors of several entry methods running in parallel
+     * @param maxDepth maximum depth of expanded calls
+     * @param maxMessages message budget of extracted diagram
+     * @param packagePolicy policy of packages whose calls are not extracted
+     */
+    protected DiagramExtractor(ExpansionCache<M> methodExpansions, int maxDepth, int maxMessages, PackagePolicy packagePolicy) {
+        this.methodExpansions = methodExpansions;
+        this.maxDepth = maxDepth;
+        this.maxMessages = maxMessages;
+        this.packagePolicy = packagePolicy;
+    }
+
+    /**
+     * @param entryMethod method diagram is extracted from
+     * @param startMessage message invoking entry method
+     * @param variableName variable name of object entry method is invoked on
+     * @return extracted diagram
+     */
+    public SeqDiagram extractDiagram(M entryMethod, Message startMessage, String variableName) throws SourceCodeAnalyzerException {
+        SeqDiagram diagram = new SeqDiagramImpl();
+        extractDiagram(entryMethod, startMessage, variableName, diagram);
+        return diagram;
+    }
+
+    /**
+     * Pushes messages of diagram into sink in order of the diagram.
+     *
+     * @param entryMethod method diagram is extracted from
+     * @param startMessage message invoking entry method
+     * @param variableName variable name of object entry method is invoked on
+     * @param sink receiver of extracted messages
+     */
+    public void extractDiagram(M entryMethod, Message startMessage, String variableName, MessageSink sink) throws SourceCodeAnalyzerException {
+        new MessageTarget(sink, 0).add(startMessage);
+        setEntryMethod(entryMethod);
+        if (maxDepth <= 0) {
+            logger.debug("Call of method {} exceeds maximum depth {} and is not expanded", getMethodName(entryMethod), maxDepth);
+            return;
+        }
+        List<CombFragment> fragments = new ArrayList<CombFragment>();
+        activeMethods.push(entryMethod);
+        activeTargets.push(new MessageTarget(message -> sink.addMessage(
+                MethodExpansion.relocate(message, message.getSeqNumber(), variableName, fragments)), 1));
+        try {
+            analyzeMethodBody(entryMethod);
+        } finally {
+            activeMethods.pop();
+            activeTargets.pop();
+        }
+    }
+
+    /**
+     * Extracts call tree whose calls are read from method bodies on first
+     * request. Depth limit applies to the calls which are requested, message
+     * budget is split among subtrees of the calls as described by
+     * {@link LazyCallTree}.
+     *
+     * @param entryMethod method tree is extracted from
+     * @param startMessage message invoking entry method
+     * @param variableName variable name of object entry method is invoked on
+     * @return root of the tree
+     */
+    public CallTree extractCallTree(M entryMethod, Message startMessage, String variableName) throws SourceCodeAnalyzerException {
+        return extractCallTree(entryMethod, startMessage, variableName, maxDepth);
+    }
+
+    /**
+     * Extracts call tree whose depth is limited below maximum depth of the
+     * extractor.
+     *
+     * @param entryMethod method tree is extracted from
+     * @param startMessage message invoking entry method
+     * @param variableName variable name of object entry method is invoked on
+     * @param depthLimit maximum depth of calls expanded in the tree, depth of
+     * the extractor applies if it is lower
+     * @return root of the tree
+     */
+    public CallTree extractCallTree(M entryMethod, Message startMessage, String variableName, int depthLimit) throws SourceCodeAnalyzerException {
+        setEntryMethod(entryMethod);
+        return new LazyCallTree<M>(this, entryMethod, getInteractionReference(entryMethod), startMessage, variableName,
+                Math.min(depthLimit, maxDepth), maxMessages);
+    }
+
+    /**
+     * @return calls made by body of the method, reported relative to
+     * {@link MethodExpansion#VARIABLE_PLACEHOLDER}
+     */
+    List<MethodCall<M>> extractCalls(M method) throws SourceCodeAnalyzerException {
+        List<MethodCall<M>> calls = methodCalls.get(method);
+        if (calls == null) {
+            calls = new ArrayList<MethodCall<M>>();
+            reportedCalls = calls;
+            try {
+                analyzeMethodBody(method);
+            } finally {
+                reportedCalls = null;
+            }
+            methodCalls.put(method, calls);
+            logger.debug("Body of method {} contains {} calls", getMethodName(method), calls.size());
+        }
+        return calls;
+    }
+
+    private void setEntryMethod(M entryMethod) throws SourceCodeAnalyzerException {
+        entryPackage = getClassPackage(entryMethod);
+        packageGroup = packagePolicy.isIgnoreExternalCalls() && !entryPackage.isEmpty() ? PackagePolicy.getPackageGroup(entryPackage) : null;
+    }
+
+    /**
+     * Reports calls of method body by {@link #addMethodCall}. Lifelines of
+     * object the method is executed on must be prefixed by
+     * {@link MethodExpansion#VARIABLE_PLACEHOLDER}.
+     *
+     * @param method expanded method
+     */
+    protected abstract void analyzeMethodBody(M method) throws SourceCodeAnalyzerException;
+
+    protected abstract String getMethodName(M method);
+
+    /**
+     * @return package of class declaring the method with trailing dot, empty
+     * string for default package
+     */
+    protected abstract String getClassPackage(M method) throws SourceCodeAnalyzerException;
+
+    /**
+     * @return qualified name of method in form package.Class.method
+     */
+    protected abstract String getInteractionReference(M method) throws SourceCodeAnalyzerException;
+
+    /**
+     * Adds call of method together with its body and return message to body
+     * of currently analyzed method. If the call is recursive or does not fit
+     * into remaining message budget, single reference message pointing to
+     * interaction of called method is added instead. Body of called method is
+     * expanded only if the call itself fits into the budget and its cached
+     * expansion, if any, fits as well. Calls of method body extracted for
+     * call tree are only recorded.
+     */
+    protected void addMethodCall(MessageType type, M newMethod, String variableName, Lifeline targetLifeline, Lifeline sourceLifeline, List<CombFragment> fragments) throws SourceCodeAnalyzerException {
+        String methodName = getMethodName(newMethod);
+        String targetPackage = targetLifeline.getPackageName() == null ? "" : targetLifeline.getPackageName();
+        if (packagePolicy.isIgnoredCall(targetPackage, entryPackage)) {
+            logger.debug("Call of method {} in package {} is ignored by package policy", methodName, targetPackage);
+            return;
+        }
+        if (reportedCalls != null) {
+            reportedCalls.add(new MethodCall<M>(newMethod, variableName, getInteractionReference(newMethod),
+                    new MessageImpl(0, type, methodName, targetLifeline, sourceLifeline, fragments)));
+            return;
+        }
+        MessageTarget target = activeTargets.peek();
+        if (activeMethods.contains(newMethod)) {
+            logger.debug("Recursive call of method {} is not expanded, adding interaction reference", methodName);
+            truncatedCalls++;
+            addInteractionReference(target, newMethod, targetLifeline, sourceLifeline, fragments);
+            return;
+        }
+        int emittedMessages = getEmittedMessages();
+        MethodExpansion cachedExpansion = methodExpansions.get(newMethod, packageGroup);
+        if (emittedMessages + 2 > maxMessages
+                || (cachedExpansion != null && emittedMessages + cachedExpansion.getMessages().size() + 2 > maxMessages)) {
+            logger.debug("Call of method {} exceeds message budget {}, adding interaction reference", methodName, maxMessages);
+            truncatedCalls++;
+            addInteractionReference(target, newMethod, targetLifeline, sourceLifeline, fragments);
+            return;
+        }
+        MethodExpansion expansion = resolveMethodExpansion(newMethod);
+        int expansionSize = expansion == null ? 0 : expansion.getMessages().size();
+        if (emittedMessages + expansionSize + 2 > maxMessages) {
+            logger.debug("Call of method {} exceeds message budget {}, adding interaction reference", methodName, maxMessages);
+            truncatedCalls++;
+            addInteractionReference(target, newMethod, targetLifeline, sourceLifeline, fragments);
+            return;
+        }
+        target.add(new MessageImpl(target.size, type, methodName,
+                targetLifeline, sourceLifeline, fragments));
+        if (expansion != null) {
+            for (Message message : expansion.getMessages()) {
+                target.add(MethodExpansion.relocate(message, target.size, variableName, fragments));
+            }
+        }
+        target.add(new MessageImpl(target.size, MessageType.RETURN, methodName + "Ret",
+                new LifelineImpl(sourceLifeline.getName(), sourceLifeline.getPackageName()),
+                new LifelineImpl(targetLifeline.getName(), targetLifeline.getPackageName()), fragments));
+    }
+
+    private void addInteractionReference(MessageTarget target, M method, Lifeline targetLifeline, Lifeline sourceLifeline, List<CombFragment> fragments) throws SourceCodeAnalyzerException {
+        target.add(new MessageImpl(target.size, MessageType.REFERENCE, getMethodName(method),
+                targetLifeline, sourceLifeline, fragments, getInteractionReference(method)));
+    }
+
+    /**
+     * @return expansion of method body or null if method should not be
+     * expanded because of depth limit
+     */
+    private MethodExpansion resolveMethodExpansion(M method) throws SourceCodeAnalyzerException {
+        int remainingDepth = maxDepth - activeMethods.size();
+        MethodExpansion expansion = methodExpansions.get(method, packageGroup);
+        if (expansion == null || expansion.getHeight() > remainingDepth) {
+            if (remainingDepth <= 0) {
+                logger.debug("Call of method {} exceeds maximum depth {} and is not expanded", getMethodName(method), maxDepth);
+                truncatedCalls++;
+                return null;
+            }
+            expansion = expandMethod(method);
+        }
+        expansionHeight = Math.max(expansionHeight, expansion.getHeight());
+        return expansion;
+    }
+
+    private int getEmittedMessages() {
+        int emittedMessages = 0;
+        for (MessageTarget activeTarget : activeTargets) {
+            emittedMessages += activeTarget.size;
+        }
+        return emittedMessages;
+    }
+
+    private MethodExpansion expandMethod(M method) throws SourceCodeAnalyzerException {
+        int parentHeight = expansionHeight;
+        int parentTruncatedCalls = truncatedCalls;
+        expansionHeight = 0;
+        activeMethods.push(method);
+        List<Message> messages = new ArrayList<Message>();
+        activeTargets.push(new MessageTarget(messages::add, 0));
+        try {
+            analyzeMethodBody(method);
+        } finally {
+            activeMethods.pop();
+            activeTargets.pop();
+        }
+        MethodExpansion expansion = new MethodExpansion(messages, expansionHeight + 1, truncatedCalls == parentTruncatedCalls);
+        expansionHeight = parentHeight;
+        if (expansion.isComplete()) {
+            methodExpansions.put(method, packageGroup, expansion);
+        }
+        logger.debug("Body of method {} expanded to {} messages", getMethodName(method), expansion.getMessages().size());
+        return expansion;
+    }
+
+    /**
+     * Sink counting messages pushed into it, count gives sequence number of
+     * next message.
+     */
+    private static class MessageTarget {
+
+        private final MessageSink sink;
+        private int size;
+
+        private MessageTarget(MessageSink sink, int size) {
+            this.sink = sink;
+            this.size = size;
+        }
+
+        private void add(Message message) throws SourceCodeAnalyzerException {
+            try {
+                sink.addMessage(message);
+            } catch (MessageSinkException ex) {
+                throw new SourceCodeAnalyzerException("Message " + message.getName() + " was rejected by message sink", ex);
+            }
+            size++;
+        }
+    }
+}
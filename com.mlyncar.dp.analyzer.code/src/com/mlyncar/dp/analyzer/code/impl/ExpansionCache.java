@@ -0,0 +1,48 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Complete method expansions shared by extractors of several entry methods.
+ * Calls filtered out of an expansion depend on package group of the entry
+ * method, so expansions are kept separately for every package group and an
+ * expansion is reused only by entry methods of the same group. Cache is
+ * thread safe and may be shared by extractors running in parallel.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ * @param <M> method representation of source model
+ */
+public class ExpansionCache<M> {
+
+    private static final String UNFILTERED_GROUP = "";
+
+    private final Map<String, Map<M, MethodExpansion>> groupExpansions = new ConcurrentHashMap<String, Map<M, MethodExpansion>>();
+
+    /**
+     * @param packageGroup package group external calls are filtered by, null
+     * if external calls are not filtered
+     * @return cached expansion of method or null if there is none
+     */
+    public MethodExpansion get(M method, String packageGroup) {
+        Map<M, MethodExpansion> expansions = groupExpansions.get(getGroupKey(packageGroup));
+        return expansions == null ? null : expansions.get(method);
+    }
+
+    /**
+     * @param packageGroup package group external calls were filtered by, null
+     * if external calls were not filtered
+     */
+    public void put(M method, String packageGroup, MethodExpansion expansion) {
+        groupExpansions.computeIfAbsent(getGroupKey(packageGroup), key -> new ConcurrentHashMap<M, MethodExpansion>())
+                .put(method, expansion);
+    }
+
+    /**
+     * Package groups of filtered extraction are never empty, so empty key
+     * stands for extraction without filter of external calls.
+     */
+    private String getGroupKey(String packageGroup) {
+        return packageGroup == null ? UNFILTERED_GROUP : packageGroup;
+    }
+}
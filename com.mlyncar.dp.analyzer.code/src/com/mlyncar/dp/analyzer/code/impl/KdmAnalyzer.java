@@ -16,34 +16,32 @@
 package com.mlyncar.dp.analyzer.code.impl;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.NullProgressMonitor;
-import org.eclipse.emf.ecore.EObject;
-import org.eclipse.emf.ecore.resource.Resource;
-import org.eclipse.gmt.modisco.omg.kdm.action.ActionElement;
-import org.eclipse.gmt.modisco.omg.kdm.action.BlockUnit;
-import org.eclipse.gmt.modisco.omg.kdm.action.Calls;
-import org.eclipse.gmt.modisco.omg.kdm.code.AbstractCodeElement;
-import org.eclipse.gmt.modisco.omg.kdm.code.Package;
-import org.eclipse.gmt.modisco.omg.kdm.code.ClassUnit;
-import org.eclipse.gmt.modisco.omg.kdm.code.InterfaceUnit;
-import org.eclipse.gmt.modisco.omg.kdm.code.MethodUnit;
-import org.eclipse.gmt.modisco.omg.kdm.code.StorableUnit;
-import org.eclipse.modisco.infra.discovery.core.exception.DiscoveryException;
-import org.eclipse.modisco.java.discoverer.DiscoverKDMModelFromJavaProject;
+import org.eclipse.jdt.core.IJavaProject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mlyncar.dp.analyzer.code.CallTree;
 import com.mlyncar.dp.analyzer.code.SourceCodeAnalyzer;
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
+import com.mlyncar.dp.analyzer.code.entry.EntryPointSelector;
+import com.mlyncar.dp.analyzer.code.entry.MessageSelector;
 import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
 import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
-import com.mlyncar.dp.analyzer.code.impl.JavaDiscoveryHelper.JavaDiscoveryOutput;
-import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.code.impl.discovery.KdmModelProvider;
 import com.mlyncar.dp.analyzer.entity.Lifeline;
 import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.MessageType;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
@@ -59,160 +57,189 @@ import com.mlyncar.dp.analyzer.test.TestHelper;
 public class KdmAnalyzer implements SourceCodeAnalyzer {
 
     private final Logger logger = LoggerFactory.getLogger(KdmAnalyzer.class);
+    private final KdmModelProvider modelProvider;
+    private final int maxDepth;
+    private final int maxMessages;
+    private final int parallelism;
+    private final PackagePolicy packagePolicy;
+    private final IJavaProject project;
 
     public KdmAnalyzer() {
+        this(new CodeAnalyzerConfiguration());
+    }
+
+    public KdmAnalyzer(CodeAnalyzerConfiguration configuration) {
+        this(configuration, EclipseProjectNavigatorHelper.getCurrentProject());
+    }
+
+    public KdmAnalyzer(CodeAnalyzerConfiguration configuration, IJavaProject project) {
+        this.project = project;
+        this.modelProvider = new KdmModelProvider(configuration);
+        this.maxDepth = configuration.getMaxCallDepth();
+        this.maxMessages = configuration.getMaxMessages();
+        this.parallelism = configuration.getParallelism();
+        this.packagePolicy = configuration.getPackagePolicy();
     }
 
     @Override
-    public SeqDiagram extractSequenceDiagramFromMain() throws SourceCodeAnalyzerException {
-        DiscoverKDMModelFromJavaProject discoverer = new DiscoverKDMModelFromJavaProject();
-        discoverer.setSerializeTarget(true);
-        IProgressMonitor monitor = new NullProgressMonitor();
+    public SeqDiagram extractSequenceDiagramFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        DiagramCollector collector = new DiagramCollector();
+        extractSequenceDiagramFromMain(collector, monitor);
+        SeqDiagram diagram = collector.getDiagrams().get(0);
+        TestHelper.validateDiagram(diagram);
+        return diagram;
+    }
+
+    @Override
+    public void extractSequenceDiagramFromMain(MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
         try {
-            discoverer.discoverElement(EclipseProjectNavigatorHelper.getCurrentProject(), monitor);
-            Resource kdmResource = discoverer.getTargetModel();
-            SeqDiagram diagram = new SeqDiagramImpl();
-            MethodUnit mainMethod = findMainMethod(kdmResource, diagram);
-            analyzeMethodUnit(diagram, mainMethod, "main:", new ArrayList<CombFragment>());
-            TestHelper.validateDiagram(diagram);
-            return diagram;
-        } catch (DiscoveryException | MainMethodNotFoundException ex) {
+            CallGraph callGraph = modelProvider.getCallGraph(project, monitor);
+            int mainMethod = callGraph.getMainMethod();
+            KdmDiagramExtractor extractor = new KdmDiagramExtractor(callGraph,
+                    new ExpansionCache<Integer>(), maxDepth, maxMessages, packagePolicy);
+            extractor.extractDiagram(mainMethod, createStartMessage(mainMethod, callGraph), getEntryVariableName(mainMethod, callGraph),
+                    sinkFactory.createSink(new SeqDiagramImpl()));
+        } catch (MainMethodNotFoundException ex) {
             throw new SourceCodeAnalyzerException(
-                    "Failed to create KDM file from project", ex);
+                    "Failed to extract sequence diagram from KDM model", ex);
         }
     }
 
-    private MethodUnit findMainMethod(Resource kdmResource, SeqDiagram diagram) throws MainMethodNotFoundException {
-        Iterator<EObject> it = kdmResource.getAllContents();
-        while (it.hasNext()) {
-            EObject next = it.next();
-            if (next instanceof MethodUnit) {
-                MethodUnit methodUnit = (MethodUnit) next;
-                if (methodUnit.getName().equals("main")) {
-                    ClassUnit classUnit = (ClassUnit) methodUnit.eContainer();
-                    Lifeline actorLifeline = new LifelineImpl("Actor");
-                    Lifeline lifeline = new LifelineImpl("main:" + classUnit.getName());
-                    Message startMessage = new MessageImpl(0, MessageType.SYNCH, "main", lifeline, actorLifeline, null);
-                    diagram.addMessage(startMessage);
-                    return methodUnit;
-                }
-            }
+    @Override
+    public List<SeqDiagram> extractSequenceDiagrams(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        DiagramCollector collector = new DiagramCollector();
+        extractSequenceDiagrams(selectors, collector, monitor);
+        return collector.getDiagrams();
+    }
+
+    @Override
+    public void extractSequenceDiagrams(List<EntryPointSelector> selectors, MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        CallGraph callGraph = modelProvider.getCallGraph(project, monitor);
+
+        Map<Integer, MessageSink> entrySinks = new LinkedHashMap<Integer, MessageSink>();
+        for (Integer entryMethod : findEntryMethods(callGraph, selectors, project)) {
+            SeqDiagram diagram = new SeqDiagramImpl();
+            diagram.setName(callGraph.getQualifiedName(entryMethod));
+            entrySinks.put(entryMethod, sinkFactory.createSink(diagram));
         }
-        throw new MainMethodNotFoundException("Unable to find main method in KDM structure");
+        logger.debug("Extracting {} sequence diagrams using {} threads", entrySinks.size(), parallelism);
+        ExpansionCache<Integer> methodExpansions = new ExpansionCache<Integer>();
+        ParallelExtraction.extractDiagrams(entrySinks, parallelism, (entryMethod, sink) -> {
+            KdmDiagramExtractor extractor = new KdmDiagramExtractor(callGraph, methodExpansions, maxDepth, maxMessages, packagePolicy);
+            extractor.extractDiagram(entryMethod, createStartMessage(entryMethod, callGraph), getEntryVariableName(entryMethod, callGraph), sink);
+        });
     }
 
-    private void analyzeMethodUnit(SeqDiagram diagram, MethodUnit method, String variableName, List<CombFragment> fragments) throws SourceCodeAnalyzerException {
-        int statementIndex = 0;
-        for (AbstractCodeElement element : method.getCodeElement()) {
-            statementIndex++;
-            analyzeCodeElement(element, diagram, method, variableName, statementIndex, fragments);
+    @Override
+    public CallTree extractCallTreeFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        try {
+            CallGraph callGraph = modelProvider.getCallGraph(project, monitor);
+            int mainMethod = callGraph.getMainMethod();
+            KdmDiagramExtractor extractor = new KdmDiagramExtractor(callGraph,
+                    new ExpansionCache<Integer>(), maxDepth, maxMessages, packagePolicy);
+            return extractor.extractCallTree(mainMethod, createStartMessage(mainMethod, callGraph), getEntryVariableName(mainMethod, callGraph));
+        } catch (MainMethodNotFoundException ex) {
+            throw new SourceCodeAnalyzerException(
+                    "Failed to extract call tree from KDM model", ex);
+        }
+    }
+
+    @Override
+    public List<CallTree> extractCallTrees(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        CallGraph callGraph = modelProvider.getCallGraph(project, monitor);
+        ExpansionCache<Integer> methodExpansions = new ExpansionCache<Integer>();
+        List<CallTree> callTrees = new ArrayList<CallTree>();
+        for (Integer entryMethod : findEntryMethods(callGraph, selectors, project)) {
+            KdmDiagramExtractor extractor = new KdmDiagramExtractor(callGraph, methodExpansions, maxDepth, maxMessages, packagePolicy);
+            callTrees.add(extractor.extractCallTree(entryMethod, createStartMessage(entryMethod, callGraph), getEntryVariableName(entryMethod, callGraph)));
         }
+        return callTrees;
     }
 
-    private void analyzeCodeElement(AbstractCodeElement codeElement, SeqDiagram diagram, MethodUnit method, String currentVariableName, int statementPosition, List<CombFragment> fragments) throws SourceCodeAnalyzerException {
-        if (codeElement instanceof ActionElement) {
-            ActionElement actionElement = (ActionElement) codeElement;
-            int statementIndex = 0;
-            for (AbstractCodeElement innerBlockElement : actionElement.getCodeElement()) {
-                statementIndex++;
-                if (innerBlockElement.getName() != null && innerBlockElement.getName().equals("method invocation")) {
-                    for (EObject object : innerBlockElement.eContents()) {
-                        logger.debug("Method invocation element {}", object.toString());
-                        if (object instanceof Calls) {
-                            Calls call = (Calls) object;
-                            MethodUnit newMethod = (MethodUnit) call.getTo();
-                            String newMethodClassName = getMethodClassName(newMethod);
-                            String methodClassName = getMethodClassName(method);
-                            JavaDiscoveryOutput output = new JavaDiscoveryHelper().getMethodName(methodClassName, method.getName(), statementPosition, newMethod.getName());
-                            String variableName = output.getVariableName();
-                            MessageType type = MessageType.SYNCH;
-                            if (newMethodClassName.equals(methodClassName)) {
-                                type = MessageType.SELF;
-                                variableName = currentVariableName;
-                            }
-                            List<CombFragment> newFragments = new ArrayList<CombFragment>(fragments);
-                            newFragments.addAll(output.getFragments());
-
-                            String newPackage = getClassPackage(newMethod.eContainer());
-                            String thisPackage = getClassPackage(method.eContainer());
-                            diagram.addMessage(new MessageImpl(diagram.getMessages().size(), type, newMethod.getName(),
-                                    new LifelineImpl(variableName + newMethodClassName, newPackage),
-                                    new LifelineImpl(currentVariableName + methodClassName, thisPackage), newFragments));
-                            logger.debug("Adding new message to diagram: {}, {}", newMethod.getName(), newMethod.toString());
-
-                            analyzeMethodUnit(diagram, newMethod, variableName, newFragments);
-                            diagram.addMessage(new MessageImpl(diagram.getMessages().size(), MessageType.RETURN, newMethod.getName() + "Ret",
-                                    new LifelineImpl(currentVariableName + methodClassName, thisPackage),
-                                    new LifelineImpl(variableName + newMethodClassName, newPackage), newFragments));
-                        }
-                    }
-                } else if (innerBlockElement.getName() != null && innerBlockElement.getName().equals("class instance creation")) {
-                    for (EObject object : innerBlockElement.eContents()) {
-                        logger.debug("Class invocation element {}", object.toString());
-                        if (object instanceof Calls) {
-                            Calls call = (Calls) object;
-                            MethodUnit newMethod = (MethodUnit) call.getTo();
-                            String newPackage = getClassPackage(newMethod.eContainer());
-                            String thisPackage = getClassPackage(method.eContainer());
-                            List<CombFragment> newFragments = new ArrayList<CombFragment>(fragments);
-                            String methodClassName = getMethodClassName(method);
-                            
-                            JavaDiscoveryOutput output = new JavaDiscoveryHelper().getMethodName(methodClassName, method.getName(), statementPosition, newMethod.getName());
-                            String variableName = output.getVariableName();
-                            newFragments.addAll(output.getFragments());
-                            diagram.addMessage(new MessageImpl(diagram.getMessages().size(), MessageType.SYNCH, newMethod.getName(),
-                                    new LifelineImpl(variableName + ((ClassUnit) newMethod.eContainer()).getName(), newPackage),
-                                    new LifelineImpl(currentVariableName + ((ClassUnit) method.eContainer()).getName(), thisPackage), newFragments));
-                            logger.debug("Adding new message to diagram: {}, CONSTRUCTOR {}", newMethod.getName(), newMethod.toString());
-                            analyzeMethodUnit(diagram, newMethod, variableName, newFragments);
-                            diagram.addMessage(new MessageImpl(diagram.getMessages().size(), MessageType.RETURN, newMethod.getName() + "Ret",
-                                    new LifelineImpl(currentVariableName + ((ClassUnit) method.eContainer()).getName(), thisPackage),
-                                    new LifelineImpl(variableName + ((ClassUnit) newMethod.eContainer()).getName(), newPackage), newFragments));
-                        }
-                    }
-                } else if(innerBlockElement.getName() != null && innerBlockElement.getName().equals("ASSIGN")) {
-                    analyzeCodeElement(innerBlockElement, diagram, method, currentVariableName, statementPosition, fragments);
-                } else {
-                    analyzeCodeElement(innerBlockElement, diagram, method, currentVariableName, statementIndex, fragments);
+    @Override
+    public List<CallTree> extractTargetedCallTrees(List<Message> rootMessages, List<Integer> depthLimits, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        CallGraph callGraph = modelProvider.getCallGraph(project, monitor);
+        Map<String, List<Integer>> methodsByName = new HashMap<String, List<Integer>>();
+        for (int method = 0; method < callGraph.getProjectMethodCount(); method++) {
+            if (callGraph.isClassMethod(method) && callGraph.hasCodeElements(method)) {
+                String name = callGraph.getClassName(method) + "." + callGraph.getMethodName(method);
+                List<Integer> methods = methodsByName.get(name);
+                if (methods == null) {
+                    methods = new ArrayList<Integer>();
+                    methodsByName.put(name, methods);
                 }
+                methods.add(method);
+            }
+        }
+        ExpansionCache<Integer> methodExpansions = new ExpansionCache<Integer>();
+        List<CallTree> callTrees = new ArrayList<CallTree>();
+        for (int i = 0; i < rootMessages.size(); i++) {
+            Message rootMessage = rootMessages.get(i);
+            MessageSelector selector = new MessageSelector(rootMessage);
+            List<Integer> entryMethods = findRootMethods(callGraph, methodsByName, selector);
+            if (entryMethods.isEmpty()) {
+                logger.debug("No method found for root message {}", selector);
+                callTrees.add(null);
+                continue;
             }
-        } else if (codeElement instanceof BlockUnit) {
-            BlockUnit unit = (BlockUnit) codeElement;
-            int statementIndex = 0;
-            for (AbstractCodeElement blockElement : unit.getCodeElement()) {
-                statementIndex++;
-                analyzeCodeElement(blockElement, diagram, method, currentVariableName, statementIndex, fragments);
+            if (entryMethods.size() > 1) {
+                logger.debug("Root message {} matches {} methods, skipping ambiguous root", selector, entryMethods.size());
+                callTrees.add(null);
+                continue;
             }
+            KdmDiagramExtractor extractor = new KdmDiagramExtractor(callGraph, methodExpansions, maxDepth, maxMessages, packagePolicy);
+            callTrees.add(extractor.extractCallTree(entryMethods.get(0), rootMessage, selector.getVariableName(), depthLimits.get(i)));
         }
+        return callTrees;
     }
 
-    private String getInstanceVariableName(ActionElement actionElement) {
-        for (AbstractCodeElement codeElement : actionElement.getCodeElement()) {
-            if (codeElement instanceof StorableUnit) {
-                StorableUnit storableUnit = (StorableUnit) codeElement;
-                return storableUnit.getName() + ":";
+    /**
+     * @return methods of the class and name of root message, limited to
+     * package of its target lifeline if the diagram provides one, overloads
+     * and classes of the same name in different packages are all returned
+     */
+    private List<Integer> findRootMethods(CallGraph callGraph, Map<String, List<Integer>> methodsByName, MessageSelector selector) {
+        List<Integer> candidates = methodsByName.get(selector.getClassName() + "." + selector.getMethodName());
+        if (candidates == null) {
+            return Collections.<Integer>emptyList();
+        }
+        if (selector.getPackageName().isEmpty()) {
+            return candidates;
+        }
+        List<Integer> rootMethods = new ArrayList<Integer>();
+        for (Integer candidate : candidates) {
+            if (selector.getPackageName().equals(callGraph.getPackageName(candidate))) {
+                rootMethods.add(candidate);
             }
         }
-        return "";
+        return rootMethods;
     }
 
-    private String getMethodClassName(MethodUnit methodUnit) throws SourceCodeAnalyzerException {
-        if (methodUnit.eContainer() instanceof ClassUnit) {
-            return ((ClassUnit) methodUnit.eContainer()).getName();
-        } else if (methodUnit.eContainer() instanceof InterfaceUnit) {
-            return ((InterfaceUnit) methodUnit.eContainer()).getName();
+    private Set<Integer> findEntryMethods(CallGraph callGraph, List<EntryPointSelector> selectors, IJavaProject project) {
+        Set<Integer> entryMethods = new LinkedHashSet<Integer>();
+        for (int method = 0; method < callGraph.getProjectMethodCount(); method++) {
+            if (!callGraph.isClassMethod(method) || !callGraph.hasCodeElements(method)) {
+                continue;
+            }
+            String qualifiedName = callGraph.getQualifiedName(method);
+            for (EntryPointSelector selector : selectors) {
+                if (selector.matches(qualifiedName, project)) {
+                    logger.debug("Method {} selected as entry point", qualifiedName);
+                    entryMethods.add(method);
+                    break;
+                }
+            }
         }
-        throw new SourceCodeAnalyzerException("Unable to extract class name of method " + methodUnit.getName());
+        return entryMethods;
     }
 
-    private String getClassPackage(EObject classUnit) {
-        String packageResult = "";
-        while (classUnit.eContainer() != null && classUnit.eContainer() instanceof Package) {
-            Package pckage = (Package) classUnit.eContainer();
-            packageResult = pckage.getName() + "." + packageResult;
-            classUnit = classUnit.eContainer();
-        }
-        return packageResult;
+    private Message createStartMessage(int entryMethod, CallGraph callGraph) {
+        Lifeline actorLifeline = new LifelineImpl("Actor");
+        Lifeline lifeline = new LifelineImpl(getEntryVariableName(entryMethod, callGraph) + callGraph.getClassName(entryMethod));
+        return new MessageImpl(0, MessageType.SYNCH, callGraph.getMethodName(entryMethod), lifeline, actorLifeline, null);
     }
 
+    private String getEntryVariableName(int entryMethod, CallGraph callGraph) {
+        return callGraph.getMethodName(entryMethod) + ":";
+    }
 }
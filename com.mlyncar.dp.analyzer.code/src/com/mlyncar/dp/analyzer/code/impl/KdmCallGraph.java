@@ -0,0 +1,294 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.gmt.modisco.omg.kdm.action.ActionElement;
+import org.eclipse.gmt.modisco.omg.kdm.action.BlockUnit;
+import org.eclipse.gmt.modisco.omg.kdm.action.Calls;
+import org.eclipse.gmt.modisco.omg.kdm.code.AbstractCodeElement;
+import org.eclipse.gmt.modisco.omg.kdm.code.MethodUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.KdmSymbolIndex.MethodSymbol;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+
+/**
+ * Call graph of KDM model built in one pass over action elements of all
+ * method bodies. Methods are numbered in order of KDM model followed by
+ * called methods outside of the model, call sites of method are stored in
+ * consecutive range of primitive call site arrays. Every call
+ * site keeps called method resolved by class hierarchy, flags, variable name
+ * of called object and combined fragments enclosing the call, so extraction
+ * reads only arrays of the graph and never navigates KDM model.
+ *
+ * Graph is read-only after it is built and can be shared by extractions
+ * running in parallel.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class KdmCallGraph implements CallGraph {
+
+    /**
+     * Called method is declared by the same class as calling method.
+     */
+    public static final byte SELF_CALL = 1;
+
+    /**
+     * Call site creates instance of called class.
+     */
+    public static final byte INSTANCE_CREATION = 2;
+
+    private static final String METHOD_INVOCATION = "method invocation";
+    private static final String CLASS_INSTANCE_CREATION = "class instance creation";
+
+    private final Logger logger = LoggerFactory.getLogger(KdmCallGraph.class);
+    private final Map<MethodUnit, Integer> methodIds = new HashMap<MethodUnit, Integer>();
+    private final List<MethodUnit> methods = new ArrayList<MethodUnit>();
+    private final List<MethodSymbol> symbols = new ArrayList<MethodSymbol>();
+    private final Map<Integer, String> failedMethods = new HashMap<Integer, String>();
+    private final Map<String, Integer> variableIds = new HashMap<String, Integer>();
+    private final List<String> variableNames = new ArrayList<String>();
+    private final KdmSymbolIndex symbolIndex;
+    private final KdmClassHierarchy classHierarchy;
+    private final KdmVariableResolver variableResolver;
+    private final IntArray callOffsets = new IntArray();
+    private final IntArray callTargets = new IntArray();
+    private final IntArray callVariables = new IntArray();
+    private final IntArray fragmentOffsets = new IntArray();
+    private final List<CombFragment> fragments = new ArrayList<CombFragment>();
+    private byte[] callFlags = new byte[16];
+    private final int projectMethodCount;
+    private int mainMethod = -1;
+
+    /**
+     * @param symbolIndex symbols of analyzed KDM model
+     * @param classHierarchy class hierarchy resolving called methods to
+     * their implementations
+     * @param variableResolver resolver of variable names and fragments
+     */
+    public KdmCallGraph(KdmSymbolIndex symbolIndex, KdmClassHierarchy classHierarchy, KdmVariableResolver variableResolver) throws SourceCodeAnalyzerException {
+        this.symbolIndex = symbolIndex;
+        this.classHierarchy = classHierarchy;
+        this.variableResolver = variableResolver;
+        for (MethodUnit methodUnit : symbolIndex.getMethods()) {
+            int method = addMethod(methodUnit);
+            if (mainMethod < 0 && "main".equals(methodUnit.getName())) {
+                mainMethod = method;
+            }
+        }
+        projectMethodCount = methods.size();
+        for (int method = 0; method < methods.size(); method++) {
+            int firstCall = callTargets.size();
+            int firstFragment = fragments.size();
+            callOffsets.add(firstCall);
+            try {
+                for (AbstractCodeElement element : methods.get(method).getCodeElement()) {
+                    collectCalls(element, method);
+                }
+            } catch (SourceCodeAnalyzerException ex) {
+                logger.debug("Calls of method {} can not be resolved: {}", symbols.get(method).getQualifiedName(), ex.getMessage());
+                failedMethods.put(method, ex.getMessage());
+                callTargets.truncate(firstCall);
+                callVariables.truncate(firstCall);
+                fragmentOffsets.truncate(firstCall);
+                fragments.subList(firstFragment, fragments.size()).clear();
+            }
+        }
+        callOffsets.add(callTargets.size());
+        fragmentOffsets.add(fragments.size());
+        callFlags = Arrays.copyOf(callFlags, callTargets.size());
+        logger.debug("KDM call graph created, {} methods, {} call sites", methods.size(), callTargets.size());
+    }
+
+    @Override
+    public int getMethodCount() {
+        return methods.size();
+    }
+
+    @Override
+    public int getProjectMethodCount() {
+        return projectMethodCount;
+    }
+
+    @Override
+    public int getMainMethod() throws MainMethodNotFoundException {
+        if (mainMethod < 0) {
+            throw new MainMethodNotFoundException("Unable to find main method in KDM structure");
+        }
+        return mainMethod;
+    }
+
+    @Override
+    public String getMethodName(int method) {
+        return methods.get(method).getName();
+    }
+
+    @Override
+    public String getClassName(int method) {
+        return symbols.get(method).getClassName();
+    }
+
+    @Override
+    public String getPackageName(int method) {
+        return symbols.get(method).getPackageName();
+    }
+
+    @Override
+    public String getQualifiedName(int method) {
+        return symbols.get(method).getQualifiedName();
+    }
+
+    @Override
+    public boolean isClassMethod(int method) {
+        return symbols.get(method).isClassMethod();
+    }
+
+    @Override
+    public boolean hasCodeElements(int method) {
+        return !methods.get(method).getCodeElement().isEmpty();
+    }
+
+    @Override
+    public int getFirstCall(int method) throws SourceCodeAnalyzerException {
+        String failure = failedMethods.get(method);
+        if (failure != null) {
+            throw new SourceCodeAnalyzerException(failure);
+        }
+        return callOffsets.get(method);
+    }
+
+    @Override
+    public int getCallEnd(int method) {
+        return callOffsets.get(method + 1);
+    }
+
+    @Override
+    public int getCallTarget(int call) {
+        return callTargets.get(call);
+    }
+
+    @Override
+    public boolean isSelfCall(int call) {
+        return (callFlags[call] & SELF_CALL) != 0;
+    }
+
+    @Override
+    public boolean isInstanceCreation(int call) {
+        return (callFlags[call] & INSTANCE_CREATION) != 0;
+    }
+
+    @Override
+    public String getVariableName(int call) {
+        int variable = callVariables.get(call);
+        return variable < 0 ? null : variableNames.get(variable);
+    }
+
+    @Override
+    public List<CombFragment> getCombinedFragments(int call) {
+        return new ArrayList<CombFragment>(fragments.subList(fragmentOffsets.get(call), fragmentOffsets.get(call + 1)));
+    }
+
+    private int addMethod(MethodUnit methodUnit) throws SourceCodeAnalyzerException {
+        Integer method = methodIds.get(methodUnit);
+        if (method == null) {
+            MethodSymbol symbol = symbolIndex.getSymbol(methodUnit);
+            method = methods.size();
+            methods.add(methodUnit);
+            symbols.add(symbol);
+            methodIds.put(methodUnit, method);
+        }
+        return method;
+    }
+
+    private void collectCalls(AbstractCodeElement codeElement, int method) throws SourceCodeAnalyzerException {
+        if (codeElement instanceof ActionElement) {
+            for (AbstractCodeElement innerBlockElement : ((ActionElement) codeElement).getCodeElement()) {
+                if (METHOD_INVOCATION.equals(innerBlockElement.getName())) {
+                    for (EObject object : innerBlockElement.eContents()) {
+                        if (object instanceof Calls) {
+                            int target = addMethod(classHierarchy.resolve((MethodUnit) ((Calls) object).getTo()));
+                            if (symbols.get(target).getClassName().equals(symbols.get(method).getClassName())) {
+                                addCall(target, SELF_CALL, null, (ActionElement) innerBlockElement);
+                            } else {
+                                addCall(target, (byte) 0, variableResolver.getReceiverVariableName((ActionElement) innerBlockElement,
+                                        methods.get(target).getName()), (ActionElement) innerBlockElement);
+                            }
+                        }
+                    }
+                } else if (CLASS_INSTANCE_CREATION.equals(innerBlockElement.getName())) {
+                    for (EObject object : innerBlockElement.eContents()) {
+                        if (object instanceof Calls) {
+                            int target = addMethod((MethodUnit) ((Calls) object).getTo());
+                            addCall(target, INSTANCE_CREATION, variableResolver.getCreatedVariableName((ActionElement) innerBlockElement),
+                                    (ActionElement) innerBlockElement);
+                        }
+                    }
+                } else {
+                    collectCalls(innerBlockElement, method);
+                }
+            }
+        } else if (codeElement instanceof BlockUnit) {
+            for (AbstractCodeElement blockElement : ((BlockUnit) codeElement).getCodeElement()) {
+                collectCalls(blockElement, method);
+            }
+        }
+    }
+
+    private void addCall(int target, byte flags, String variableName, ActionElement element) {
+        int call = callTargets.size();
+        if (call == callFlags.length) {
+            callFlags = Arrays.copyOf(callFlags, call * 2);
+        }
+        callFlags[call] = flags;
+        callTargets.add(target);
+        callVariables.add(variableName == null ? -1 : getVariableId(variableName));
+        fragmentOffsets.add(fragments.size());
+        fragments.addAll(variableResolver.getCombinedFragments(element));
+    }
+
+    private int getVariableId(String variableName) {
+        Integer variable = variableIds.get(variableName);
+        if (variable == null) {
+            variable = variableNames.size();
+            variableNames.add(variableName);
+            variableIds.put(variableName, variable);
+        }
+        return variable;
+    }
+
+    /**
+     * Growable array of primitive integers.
+     */
+    private static class IntArray {
+
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int get(int index) {
+            return values[index];
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private void truncate(int newSize) {
+            size = newSize;
+        }
+    }
+}
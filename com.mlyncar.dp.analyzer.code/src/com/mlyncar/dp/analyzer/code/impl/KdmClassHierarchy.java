@@ -0,0 +1,194 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.gmt.modisco.omg.kdm.action.BlockUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.AbstractCodeElement;
+import org.eclipse.gmt.modisco.omg.kdm.code.AbstractCodeRelationship;
+import org.eclipse.gmt.modisco.omg.kdm.code.ClassUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.Datatype;
+import org.eclipse.gmt.modisco.omg.kdm.code.Extends;
+import org.eclipse.gmt.modisco.omg.kdm.code.Implements;
+import org.eclipse.gmt.modisco.omg.kdm.code.MethodUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.KdmSymbolIndex.MethodSymbol;
+
+/**
+ * Class hierarchy analysis of KDM model. Supertypes are read from Extends
+ * and Implements relations of classes and interfaces, every method of a type
+ * is resolved to implementations executed by concrete classes of the type.
+ * Calls of methods with unique implementation are resolved to the
+ * implementation, calls with several implementations are resolved to
+ * implementation of preferred class if there is one and stay unresolved
+ * otherwise.
+ *
+ * Resolution is computed once when the hierarchy is built, hierarchy is
+ * read-only afterwards and can be shared by extractions running in parallel.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class KdmClassHierarchy {
+
+    private final Logger logger = LoggerFactory.getLogger(KdmClassHierarchy.class);
+    private final KdmSymbolIndex symbolIndex;
+    private final Map<Datatype, List<Datatype>> supertypes = new HashMap<Datatype, List<Datatype>>();
+    private final Map<Datatype, Map<String, MethodUnit>> declaredMethods = new HashMap<Datatype, Map<String, MethodUnit>>();
+    private final Map<MethodUnit, MethodUnit> resolvedMethods = new HashMap<MethodUnit, MethodUnit>();
+
+    /**
+     * @param symbolIndex symbols of analyzed KDM model
+     * @param preferredClasses qualified names of classes whose
+     * implementations are chosen when method has several implementations, in
+     * order of preference
+     */
+    public KdmClassHierarchy(KdmSymbolIndex symbolIndex, List<String> preferredClasses) throws SourceCodeAnalyzerException {
+        this.symbolIndex = symbolIndex;
+        for (Datatype type : symbolIndex.getTypes()) {
+            List<Datatype> typeSupertypes = new ArrayList<Datatype>();
+            for (AbstractCodeRelationship relation : type.getCodeRelation()) {
+                if ((relation instanceof Extends || relation instanceof Implements) && relation.getTo() instanceof Datatype) {
+                    typeSupertypes.add((Datatype) relation.getTo());
+                }
+            }
+            supertypes.put(type, typeSupertypes);
+        }
+        for (MethodUnit methodUnit : symbolIndex.getMethods()) {
+            EObject owner = methodUnit.eContainer();
+            Map<String, MethodUnit> methods = declaredMethods.get(owner);
+            if (methods == null) {
+                methods = new HashMap<String, MethodUnit>();
+                declaredMethods.put((Datatype) owner, methods);
+            }
+            methods.put(symbolIndex.getSymbol(methodUnit).getMethodSignature(), methodUnit);
+        }
+        resolveMethods(preferredClasses);
+        logger.debug("Class hierarchy created, {} types, {} resolved methods", supertypes.size(), resolvedMethods.size());
+    }
+
+    /**
+     * @param methodUnit called method
+     * @return implementation executed by the call or called method if it can
+     * not be resolved to single implementation
+     */
+    public MethodUnit resolve(MethodUnit methodUnit) {
+        MethodUnit implementation = resolvedMethods.get(methodUnit);
+        return implementation == null ? methodUnit : implementation;
+    }
+
+    private void resolveMethods(List<String> preferredClasses) throws SourceCodeAnalyzerException {
+        Map<MethodUnit, Set<MethodUnit>> implementations = new LinkedHashMap<MethodUnit, Set<MethodUnit>>();
+        for (Datatype type : supertypes.keySet()) {
+            if (!isConcreteClass(type)) {
+                continue;
+            }
+            for (Datatype supertype : getTypeClosure(type)) {
+                Map<String, MethodUnit> methods = declaredMethods.get(supertype);
+                if (methods == null) {
+                    continue;
+                }
+                for (Map.Entry<String, MethodUnit> method : methods.entrySet()) {
+                    MethodUnit implementation = findImplementation(type, method.getKey());
+                    if (implementation == null) {
+                        continue;
+                    }
+                    Set<MethodUnit> methodImplementations = implementations.get(method.getValue());
+                    if (methodImplementations == null) {
+                        methodImplementations = new LinkedHashSet<MethodUnit>();
+                        implementations.put(method.getValue(), methodImplementations);
+                    }
+                    methodImplementations.add(implementation);
+                }
+            }
+        }
+        for (Map.Entry<MethodUnit, Set<MethodUnit>> method : implementations.entrySet()) {
+            MethodUnit implementation = selectImplementation(method.getValue(), preferredClasses);
+            if (implementation != null && implementation != method.getKey()) {
+                resolvedMethods.put(method.getKey(), implementation);
+            }
+        }
+    }
+
+    private MethodUnit selectImplementation(Set<MethodUnit> implementations, List<String> preferredClasses) throws SourceCodeAnalyzerException {
+        if (implementations.size() == 1) {
+            return implementations.iterator().next();
+        }
+        for (String preferredClass : preferredClasses) {
+            for (MethodUnit implementation : implementations) {
+                MethodSymbol symbol = symbolIndex.getSymbol(implementation);
+                if (preferredClass.equals(symbol.getPackageName() + symbol.getClassName())) {
+                    return implementation;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return method with body executed by instances of concrete class, the
+     * nearest one in chain of superclasses
+     */
+    private MethodUnit findImplementation(Datatype concreteClass, String methodSignature) {
+        Set<Datatype> visited = new LinkedHashSet<Datatype>();
+        Datatype type = concreteClass;
+        while (type != null && visited.add(type)) {
+            Map<String, MethodUnit> methods = declaredMethods.get(type);
+            MethodUnit methodUnit = methods == null ? null : methods.get(methodSignature);
+            if (methodUnit != null && hasBody(methodUnit)) {
+                return methodUnit;
+            }
+            type = getSuperclass(type);
+        }
+        return null;
+    }
+
+    private Datatype getSuperclass(Datatype type) {
+        List<Datatype> typeSupertypes = supertypes.get(type);
+        if (typeSupertypes != null) {
+            for (Datatype supertype : typeSupertypes) {
+                if (supertype instanceof ClassUnit) {
+                    return supertype;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the type and all its supertypes in the model
+     */
+    private Set<Datatype> getTypeClosure(Datatype type) {
+        Set<Datatype> closure = new LinkedHashSet<Datatype>();
+        List<Datatype> pending = new ArrayList<Datatype>();
+        pending.add(type);
+        while (!pending.isEmpty()) {
+            Datatype next = pending.remove(pending.size() - 1);
+            if (closure.add(next) && supertypes.containsKey(next)) {
+                pending.addAll(supertypes.get(next));
+            }
+        }
+        return closure;
+    }
+
+    private boolean isConcreteClass(Datatype type) {
+        return type instanceof ClassUnit && !Boolean.TRUE.equals(((ClassUnit) type).getIsAbstract());
+    }
+
+    private boolean hasBody(MethodUnit methodUnit) {
+        for (AbstractCodeElement element : methodUnit.getCodeElement()) {
+            if (element instanceof BlockUnit) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+
+/**
+ * Extracts sequence diagram from call graph of KDM model, methods are
+ * represented by their numbers in the graph.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class KdmDiagramExtractor extends DiagramExtractor<Integer> {
+
+    private final CallGraph callGraph;
+
+    /**
+     * @param callGraph call graph of analyzed KDM model
+     * @param methodExpansions complete method expansions, may be shared by
+     * extractors of several entry methods running in parallel
+     * @param maxDepth maximum depth of expanded calls
+     * @param maxMessages message budget of extracted diagram
+     * @param packagePolicy policy of packages whose calls are not extracted
+     */
+    public KdmDiagramExtractor(CallGraph callGraph, ExpansionCache<Integer> methodExpansions, int maxDepth, int maxMessages, PackagePolicy packagePolicy) {
+        super(methodExpansions, maxDepth, maxMessages, packagePolicy);
+        this.callGraph = callGraph;
+    }
+
+    @Override
+    protected void analyzeMethodBody(Integer method) throws SourceCodeAnalyzerException {
+        for (int call = callGraph.getFirstCall(method); call < callGraph.getCallEnd(method); call++) {
+            int target = callGraph.getCallTarget(call);
+            MessageType type = MessageType.SYNCH;
+            String variableName = callGraph.getVariableName(call);
+            if (callGraph.isSelfCall(call)) {
+                type = MessageType.SELF;
+                variableName = MethodExpansion.VARIABLE_PLACEHOLDER;
+            }
+            addMethodCall(type, target, variableName,
+                    new LifelineImpl(variableName + callGraph.getClassName(target), callGraph.getPackageName(target)),
+                    new LifelineImpl(MethodExpansion.VARIABLE_PLACEHOLDER + callGraph.getClassName(method), callGraph.getPackageName(method)),
+                    callGraph.getCombinedFragments(call));
+        }
+    }
+
+    @Override
+    protected String getMethodName(Integer method) {
+        return callGraph.getMethodName(method);
+    }
+
+    @Override
+    protected String getClassPackage(Integer method) {
+        return callGraph.getPackageName(method);
+    }
+
+    @Override
+    protected String getInteractionReference(Integer method) {
+        return callGraph.getQualifiedName(method);
+    }
+}
@@ -0,0 +1,224 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.gmt.modisco.omg.kdm.code.AbstractCodeElement;
+import org.eclipse.gmt.modisco.omg.kdm.code.ClassUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.Datatype;
+import org.eclipse.gmt.modisco.omg.kdm.code.InterfaceUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.MethodUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.Package;
+import org.eclipse.gmt.modisco.omg.kdm.code.ParameterKind;
+import org.eclipse.gmt.modisco.omg.kdm.code.ParameterUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.Signature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+
+/**
+ * Symbols of KDM model built in one pass over the resource. Packages of
+ * classes and interfaces, names of their methods and qualified method
+ * signatures are resolved once, index is read-only afterwards and can be
+ * shared by extractions running in parallel.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class KdmSymbolIndex {
+
+    private final Logger logger = LoggerFactory.getLogger(KdmSymbolIndex.class);
+    private final Map<EObject, String> packageNames = new HashMap<EObject, String>();
+    private final Map<MethodUnit, MethodSymbol> methodSymbols = new LinkedHashMap<MethodUnit, MethodSymbol>();
+    private final Map<String, MethodUnit> methodsBySignature = new HashMap<String, MethodUnit>();
+    private final List<Datatype> types = new ArrayList<Datatype>();
+    private MethodUnit mainMethod;
+
+    public KdmSymbolIndex(Resource kdmResource) {
+        Iterator<EObject> it = kdmResource.getAllContents();
+        while (it.hasNext()) {
+            EObject next = it.next();
+            if (next instanceof Package) {
+                packageNames.put(next, getPackageName(next.eContainer()) + ((Package) next).getName() + ".");
+            } else if (next instanceof MethodUnit) {
+                indexMethod((MethodUnit) next);
+            } else if (next instanceof ClassUnit || next instanceof InterfaceUnit) {
+                types.add((Datatype) next);
+            }
+        }
+        logger.debug("KDM symbol index created, number of indexed methods {}", methodSymbols.size());
+    }
+
+    /**
+     * @return the first method named main in order of KDM model
+     */
+    public MethodUnit getMainMethod() throws MainMethodNotFoundException {
+        if (mainMethod == null) {
+            throw new MainMethodNotFoundException("Unable to find main method in KDM structure");
+        }
+        return mainMethod;
+    }
+
+    /**
+     * @param signature signature in form package.Class.method(Type,Type)
+     * @return method with the signature or null if it is not in KDM model
+     */
+    public MethodUnit getMethod(String signature) {
+        return methodsBySignature.get(signature);
+    }
+
+    /**
+     * @return methods declared in classes and interfaces in order of KDM model
+     */
+    public Collection<MethodUnit> getMethods() {
+        return Collections.unmodifiableCollection(methodSymbols.keySet());
+    }
+
+    /**
+     * @return classes and interfaces in order of KDM model
+     */
+    public List<Datatype> getTypes() {
+        return Collections.unmodifiableList(types);
+    }
+
+    /**
+     * Methods outside of indexed resource are resolved on every call.
+     */
+    public MethodSymbol getSymbol(MethodUnit methodUnit) throws SourceCodeAnalyzerException {
+        MethodSymbol symbol = methodSymbols.get(methodUnit);
+        if (symbol == null) {
+            symbol = createSymbol(methodUnit);
+            if (symbol == null) {
+                throw new SourceCodeAnalyzerException("Unable to extract class name of method " + methodUnit.getName());
+            }
+        }
+        return symbol;
+    }
+
+    private void indexMethod(MethodUnit methodUnit) {
+        MethodSymbol symbol = createSymbol(methodUnit);
+        if (symbol == null) {
+            return;
+        }
+        methodSymbols.put(methodUnit, symbol);
+        methodsBySignature.put(symbol.getSignature(), methodUnit);
+        if (mainMethod == null && "main".equals(methodUnit.getName())) {
+            mainMethod = methodUnit;
+        }
+    }
+
+    private MethodSymbol createSymbol(MethodUnit methodUnit) {
+        EObject owner = methodUnit.eContainer();
+        String className;
+        if (owner instanceof ClassUnit) {
+            className = ((ClassUnit) owner).getName();
+        } else if (owner instanceof InterfaceUnit) {
+            className = ((InterfaceUnit) owner).getName();
+        } else {
+            return null;
+        }
+        return new MethodSymbol(className, getPackageName(owner.eContainer()), methodUnit.getName(), getParameterTypes(methodUnit), owner instanceof ClassUnit);
+    }
+
+    private String getPackageName(EObject container) {
+        if (!(container instanceof Package)) {
+            return "";
+        }
+        String packageName = packageNames.get(container);
+        if (packageName == null) {
+            packageName = getPackageName(container.eContainer()) + ((Package) container).getName() + ".";
+        }
+        return packageName;
+    }
+
+    private String getParameterTypes(MethodUnit methodUnit) {
+        StringBuilder types = new StringBuilder();
+        for (AbstractCodeElement element : methodUnit.getCodeElement()) {
+            if (element instanceof Signature) {
+                for (ParameterUnit parameter : ((Signature) element).getParameterUnit()) {
+                    if (parameter.getKind() == ParameterKind.RETURN || parameter.getKind() == ParameterKind.THROWS) {
+                        continue;
+                    }
+                    if (types.length() > 0) {
+                        types.append(",");
+                    }
+                    types.append(parameter.getType() == null ? "" : parameter.getType().getName());
+                }
+            }
+        }
+        return types.toString();
+    }
+
+    public static class MethodSymbol {
+
+        private final String className;
+        private final String packageName;
+        private final String qualifiedName;
+        private final String signature;
+        private final String methodSignature;
+        private final boolean classMethod;
+
+        private MethodSymbol(String className, String packageName, String methodName, String parameterTypes, boolean classMethod) {
+            this.className = className;
+            this.packageName = packageName;
+            this.qualifiedName = packageName + className + "." + methodName;
+            this.signature = qualifiedName + "(" + parameterTypes + ")";
+            this.methodSignature = methodName + "(" + parameterTypes + ")";
+            this.classMethod = classMethod;
+        }
+
+        /**
+         * @return simple name of class or interface declaring the method
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return package of declaring type ending with dot, empty string for
+         * default package and nested types
+         */
+        public String getPackageName() {
+            return packageName;
+        }
+
+        /**
+         * @return name in form package.Class.method
+         */
+        public String getQualifiedName() {
+            return qualifiedName;
+        }
+
+        /**
+         * @return name in form package.Class.method(Type,Type)
+         */
+        public String getSignature() {
+            return signature;
+        }
+
+        /**
+         * @return name in form method(Type,Type), equal for overriding
+         * methods
+         */
+        public String getMethodSignature() {
+            return methodSignature;
+        }
+
+        /**
+         * @return true if the method is declared in class, false for
+         * interface methods
+         */
+        public boolean isClassMethod() {
+            return classMethod;
+        }
+    }
+}
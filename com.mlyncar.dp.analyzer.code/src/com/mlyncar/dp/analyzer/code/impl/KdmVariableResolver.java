@@ -0,0 +1,301 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.gmt.modisco.omg.kdm.action.AbstractActionRelationship;
+import org.eclipse.gmt.modisco.omg.kdm.action.ActionElement;
+import org.eclipse.gmt.modisco.omg.kdm.action.Addresses;
+import org.eclipse.gmt.modisco.omg.kdm.action.Writes;
+import org.eclipse.gmt.modisco.omg.kdm.code.AbstractCodeElement;
+import org.eclipse.gmt.modisco.omg.kdm.code.DataElement;
+import org.eclipse.gmt.modisco.omg.kdm.code.MethodUnit;
+import org.eclipse.gmt.modisco.omg.kdm.source.SourceRef;
+import org.eclipse.gmt.modisco.omg.kdm.source.SourceRegion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.CombFragmentType;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentImpl;
+
+/**
+ * Resolves variable names of called objects and combined fragments enclosing
+ * calls directly from KDM model. Variables are taken from storable unit
+ * relations of action elements, source regions of action elements are used
+ * to pick receiver of a call and to render conditions of fragments. Naming
+ * rules are the same as in other analyzer engines: receiver variable of
+ * method call, assigned variable of created object, "new" if created object
+ * is assigned to something else than a variable and empty string otherwise.
+ *
+ * Source files are read once and cached as well as fragments of every
+ * container of action elements, resolver can be shared by extractions running
+ * in parallel.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class KdmVariableResolver {
+
+    private static final String UNKNOWN_CONDITION = "[Unknown]";
+    private static final Pattern DECLARED_VARIABLE = Pattern.compile("^[\\w.<>\\[\\],?\\s]+\\s+(\\w+\\s*=.*)$", Pattern.DOTALL);
+
+    private final Logger logger = LoggerFactory.getLogger(KdmVariableResolver.class);
+    private final Map<String, List<String>> sourceLines = new ConcurrentHashMap<String, List<String>>();
+    private final Map<EObject, List<CombFragment>> containerFragments = new ConcurrentHashMap<EObject, List<CombFragment>>();
+
+    /**
+     * @param invocation action element of method invocation
+     * @param methodName name of called method
+     * @return variable name of called object followed by colon or empty
+     * string if method is not called on variable
+     */
+    public String getReceiverVariableName(ActionElement invocation, String methodName) {
+        DataElement addressed = null;
+        List<DataElement> candidates = new ArrayList<DataElement>();
+        for (AbstractActionRelationship relation : invocation.getActionRelation()) {
+            if (relation.getTo() instanceof DataElement) {
+                if (addressed == null && relation instanceof Addresses) {
+                    addressed = (DataElement) relation.getTo();
+                }
+                candidates.add((DataElement) relation.getTo());
+            }
+        }
+        for (AbstractCodeElement codeElement : invocation.getCodeElement()) {
+            if (codeElement instanceof ActionElement) {
+                for (AbstractActionRelationship relation : ((ActionElement) codeElement).getActionRelation()) {
+                    if (relation.getTo() instanceof DataElement) {
+                        candidates.add((DataElement) relation.getTo());
+                    }
+                }
+            }
+        }
+        String text = getSourceText(invocation);
+        if (text == null) {
+            //arguments are read as well, without source text only addressed element is known to be receiver
+            logger.debug("Source region of invocation of {} is not available", methodName);
+            return addressed == null ? "" : addressed.getName() + ":";
+        }
+        Matcher matcher = Pattern.compile("(\\w+)\\s*\\.\\s*(?:<[^>]*>\\s*)?" + Pattern.quote(methodName) + "\\s*\\(").matcher(text);
+        if (matcher.find()) {
+            String receiver = matcher.group(1);
+            for (DataElement candidate : candidates) {
+                if (receiver.equals(candidate.getName())) {
+                    return receiver + ":";
+                }
+            }
+            logger.debug("Receiver {} of {} is not a variable", receiver, methodName);
+        }
+        return "";
+    }
+
+    /**
+     * @param creation action element of class instance creation
+     * @return variable name the created object is assigned to followed by
+     * colon, "new" if it is not assigned to variable or empty string if
+     * created object is not assigned
+     */
+    public String getCreatedVariableName(ActionElement creation) {
+        EObject container = creation.eContainer();
+        if (!(container instanceof ActionElement) || !"ASSIGN".equals(((ActionElement) container).getName())) {
+            return "";
+        }
+        for (AbstractActionRelationship relation : ((ActionElement) container).getActionRelation()) {
+            if (relation instanceof Writes && relation.getTo() instanceof DataElement) {
+                return relation.getTo().getName() + ":";
+            }
+        }
+        return "new";
+    }
+
+    /**
+     * @return unmodifiable list of fragments of if and for statements
+     * enclosing the element, innermost first, shared by all elements of the
+     * same container
+     */
+    public List<CombFragment> getCombinedFragments(ActionElement element) {
+        return getContainerFragments(element.eContainer());
+    }
+
+    /**
+     * Fragments of container are its own fragment followed by fragments of
+     * its container, they are created once per container.
+     */
+    private List<CombFragment> getContainerFragments(EObject container) {
+        if (container == null || container instanceof MethodUnit) {
+            return Collections.emptyList();
+        }
+        List<CombFragment> fragments = containerFragments.get(container);
+        if (fragments == null) {
+            List<CombFragment> outerFragments = getContainerFragments(container.eContainer());
+            CombFragment fragment = container instanceof ActionElement ? createFragment((ActionElement) container) : null;
+            if (fragment == null) {
+                fragments = outerFragments;
+            } else {
+                List<CombFragment> containerList = new ArrayList<CombFragment>(outerFragments.size() + 1);
+                containerList.add(fragment);
+                containerList.addAll(outerFragments);
+                fragments = Collections.unmodifiableList(containerList);
+            }
+            containerFragments.put(container, fragments);
+        }
+        return fragments;
+    }
+
+    private CombFragment createFragment(ActionElement statement) {
+        if (isStatement(statement, "if")) {
+            String condition = getCondition(statement);
+            logger.debug("Created combined Fragment intance with condition {} and type {}", condition, CombFragmentType.OPT.getCode());
+            return new CombFragmentImpl(condition, CombFragmentType.OPT);
+        } else if (isStatement(statement, "for")) {
+            String condition = getLoopCondition(statement);
+            logger.debug("Created combined Fragment intance with condition {} and type {}", condition, CombFragmentType.LOOP.getCode());
+            return new CombFragmentImpl(condition, CombFragmentType.LOOP);
+        }
+        return null;
+    }
+
+    private boolean isStatement(ActionElement element, String statement) {
+        return statement.equalsIgnoreCase(element.getName()) || statement.equalsIgnoreCase(element.getKind());
+    }
+
+    private String getCondition(ActionElement ifStatement) {
+        String text = getSourceText(ifStatement);
+        String condition = text == null ? null : getParenthesized(text);
+        return condition == null ? UNKNOWN_CONDITION : condition.replaceAll("\\s+", "");
+    }
+
+    private String getLoopCondition(ActionElement forStatement) {
+        String text = getSourceText(forStatement);
+        String header = text == null ? null : getParenthesized(text);
+        if (header == null) {
+            return UNKNOWN_CONDITION;
+        }
+        String[] parts = header.split(";", -1);
+        Matcher matcher = DECLARED_VARIABLE.matcher(parts[0].trim());
+        if (matcher.matches()) {
+            parts[0] = matcher.group(1);
+        }
+        StringBuilder condition = new StringBuilder();
+        for (String part : parts) {
+            if (condition.length() > 0) {
+                condition.append(";");
+            }
+            condition.append(part.replaceAll("\\s+", ""));
+        }
+        return condition.toString();
+    }
+
+    /**
+     * @return content of the first parenthesis of statement text
+     */
+    private String getParenthesized(String text) {
+        int start = text.indexOf('(');
+        if (start < 0) {
+            return null;
+        }
+        int depth = 0;
+        for (int i = start; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character == '(') {
+                depth++;
+            } else if (character == ')') {
+                depth--;
+                if (depth == 0) {
+                    return text.substring(start + 1, i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return snippet of source reference of the element or text of its
+     * source region, null if neither is available
+     */
+    private String getSourceText(ActionElement element) {
+        for (SourceRef sourceRef : element.getSource()) {
+            if (sourceRef.getSnippet() != null && !sourceRef.getSnippet().isEmpty()) {
+                return sourceRef.getSnippet();
+            }
+            for (SourceRegion region : sourceRef.getRegion()) {
+                String text = getRegionText(region);
+                if (text != null) {
+                    return text;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lines of source region are counted from one, positions are columns of
+     * the first and the last character of region counted from one.
+     */
+    private String getRegionText(SourceRegion region) {
+        String path = region.getPath();
+        if (path == null && region.getFile() != null) {
+            path = region.getFile().getPath();
+        }
+        if (path == null || region.getStartLine() == null || region.getEndLine() == null) {
+            return null;
+        }
+        List<String> lines = getSourceLines(path);
+        int startLine = region.getStartLine();
+        int endLine = Math.min(region.getEndLine(), lines.size());
+        if (startLine < 1 || startLine > endLine) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int lineNumber = startLine; lineNumber <= endLine; lineNumber++) {
+            String line = lines.get(lineNumber - 1);
+            int begin = lineNumber == startLine && region.getStartPosition() != null ? Math.max(0, region.getStartPosition() - 1) : 0;
+            int end = lineNumber == endLine && region.getEndPosition() != null ? Math.min(line.length(), region.getEndPosition()) : line.length();
+            if (begin < end) {
+                text.append(line, begin, end);
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    private List<String> getSourceLines(String path) {
+        List<String> lines = sourceLines.get(path);
+        if (lines == null) {
+            lines = readSourceLines(path);
+            sourceLines.put(path, lines);
+        }
+        return lines;
+    }
+
+    private List<String> readSourceLines(String path) {
+        File file = new File(path);
+        if (!file.isFile()) {
+            IResource resource = ResourcesPlugin.getWorkspace().getRoot().findMember(path);
+            IPath location = resource == null ? null : resource.getLocation();
+            if (location == null) {
+                logger.debug("Source file {} not found", path);
+                return Collections.emptyList();
+            }
+            file = location.toFile();
+        }
+        try {
+            return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            logger.debug("Unable to read source file {}", path, ex);
+            return Collections.emptyList();
+        }
+    }
+}
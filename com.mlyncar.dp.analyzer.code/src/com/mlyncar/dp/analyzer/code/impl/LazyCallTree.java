@@ -0,0 +1,190 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
+
+/**
+ * Call tree whose calls are extracted from method body on first request.
+ * Depth limit and recursion are checked against calls above in the tree,
+ * recursive calls and calls over the budget are interaction references which
+ * are never expanded. Calls of method body are
+ * extracted once per extractor and relocated to every call of the method.
+ *
+ * Message budget is applied per subtree, so the tree does not depend on order
+ * its calls are requested in. Direct calls of a method are charged to budget
+ * of its subtree in order of the method body and the rest of the budget is
+ * split evenly among expanded calls.
+ *
+ * Tree uses call stack of its extractor and must not be read by several
+ * threads.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ * @param <M> method representation of source model
+ */
+public class LazyCallTree<M> implements CallTree {
+
+    private final Logger logger = LoggerFactory.getLogger(LazyCallTree.class);
+    private final DiagramExtractor<M> extractor;
+    private final LazyCallTree<M> parent;
+    private final int maxDepth;
+    private final int messageBudget;
+    private final M method;
+    private final String qualifiedName;
+    private final String variableName;
+    private final Message callMessage;
+    private final Message returnMessage;
+    private final List<CombFragment> fragments;
+    private final int depth;
+    private List<CallTree> calls;
+
+    /**
+     * Creates root of the tree.
+     *
+     * @param extractor extractor of calls of method bodies
+     * @param entryMethod method the tree starts in
+     * @param qualifiedName qualified name of entry method
+     * @param startMessage message invoking entry method
+     * @param variableName variable name of object entry method is invoked on
+     * @param maxDepth maximum depth of extracted calls
+     * @param maxMessages message budget of the tree including start message
+     */
+    LazyCallTree(DiagramExtractor<M> extractor, M entryMethod, String qualifiedName, Message startMessage, String variableName, int maxDepth, int maxMessages) {
+        this(extractor, null, maxDepth, maxMessages - 1, entryMethod, qualifiedName, variableName,
+                startMessage, null, Collections.<CombFragment>emptyList(), 0);
+    }
+
+    private LazyCallTree(DiagramExtractor<M> extractor, LazyCallTree<M> parent, int maxDepth, int messageBudget, M method, String qualifiedName,
+            String variableName, Message callMessage, Message returnMessage, List<CombFragment> fragments, int depth) {
+        this.extractor = extractor;
+        this.parent = parent;
+        this.maxDepth = maxDepth;
+        this.messageBudget = messageBudget;
+        this.method = method;
+        this.qualifiedName = qualifiedName;
+        this.variableName = variableName;
+        this.callMessage = callMessage;
+        this.returnMessage = returnMessage;
+        this.fragments = fragments;
+        this.depth = depth;
+    }
+
+    @Override
+    public String getQualifiedName() {
+        return qualifiedName;
+    }
+
+    @Override
+    public Message getCallMessage() {
+        return callMessage;
+    }
+
+    @Override
+    public Message getReturnMessage() {
+        return returnMessage;
+    }
+
+    @Override
+    public List<CallTree> getCalls() throws SourceCodeAnalyzerException {
+        if (calls == null) {
+            if (isExpandable()) {
+                calls = Collections.unmodifiableList(createCalls(extractor.extractCalls(method)));
+            } else {
+                calls = Collections.emptyList();
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Expanded call costs call and return message, reference costs single
+     * message.
+     */
+    private List<CallTree> createCalls(List<MethodCall<M>> methodCalls) {
+        boolean[] expandedCalls = new boolean[methodCalls.size()];
+        int expandedCount = 0;
+        int remainingMessages = messageBudget;
+        for (int i = 0; i < methodCalls.size(); i++) {
+            if (!isActive(methodCalls.get(i).getMethod()) && remainingMessages >= 2) {
+                expandedCalls[i] = true;
+                expandedCount++;
+                remainingMessages -= 2;
+            } else {
+                remainingMessages--;
+            }
+        }
+        int subtreeMessages = Math.max(remainingMessages, 0);
+        int expandedIndex = 0;
+        List<CallTree> extractedCalls = new ArrayList<CallTree>();
+        for (int i = 0; i < methodCalls.size(); i++) {
+            if (expandedCalls[i]) {
+                int subtreeBudget = subtreeMessages / expandedCount + (expandedIndex < subtreeMessages % expandedCount ? 1 : 0);
+                extractedCalls.add(createCall(methodCalls.get(i), subtreeBudget));
+                expandedIndex++;
+            } else {
+                extractedCalls.add(createReference(methodCalls.get(i)));
+            }
+        }
+        return extractedCalls;
+    }
+
+    private boolean isExpandable() {
+        if (callMessage.getType() == MessageType.REFERENCE) {
+            return false;
+        }
+        if (depth >= maxDepth) {
+            logger.debug("Call of method {} exceeds maximum depth {} and is not expanded", callMessage.getName(), maxDepth);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isActive(M calledMethod) {
+        for (LazyCallTree<M> caller = this; caller != null; caller = caller.parent) {
+            if (caller.method.equals(calledMethod)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getCallVariableName(MethodCall<M> call) {
+        return MethodExpansion.VARIABLE_PLACEHOLDER.equals(call.getVariableName()) ? variableName : call.getVariableName();
+    }
+
+    /**
+     * @param subtreeBudget message budget of calls below the call
+     */
+    private CallTree createCall(MethodCall<M> call, int subtreeBudget) {
+        Message message = MethodExpansion.relocate(call.getMessage(), 0, variableName, fragments);
+        Message returnMessage = new MessageImpl(0, MessageType.RETURN, message.getName() + "Ret",
+                new LifelineImpl(message.getSourceLifeline().getName(), message.getSourceLifeline().getPackageName()),
+                new LifelineImpl(message.getTargetLifeline().getName(), message.getTargetLifeline().getPackageName()), message.getCombFragments());
+        return new LazyCallTree<M>(extractor, this, maxDepth, subtreeBudget, call.getMethod(), call.getQualifiedName(), getCallVariableName(call),
+                message, returnMessage, message.getCombFragments(), depth + 1);
+    }
+
+    private CallTree createReference(MethodCall<M> call) {
+        Message message = MethodExpansion.relocate(call.getMessage(), 0, variableName, fragments);
+        if (isActive(call.getMethod())) {
+            logger.debug("Recursive call of method {} is not expanded, adding interaction reference", message.getName());
+        } else {
+            logger.debug("Call of method {} exceeds message budget of its caller, adding interaction reference", message.getName());
+        }
+        Message reference = new MessageImpl(0, MessageType.REFERENCE, message.getName(), message.getTargetLifeline(),
+                message.getSourceLifeline(), message.getCombFragments(), call.getQualifiedName());
+        return new LazyCallTree<M>(extractor, this, maxDepth, 0, call.getMethod(), call.getQualifiedName(), getCallVariableName(call),
+                reference, null, reference.getCombFragments(), depth + 1);
+    }
+}
@@ -0,0 +1,50 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import com.mlyncar.dp.analyzer.entity.Message;
+
+/**
+ * Call made by method body, reported relative to placeholder variable of the
+ * object the method is executed on.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ * @param <M> method representation of source model
+ */
+public class MethodCall<M> {
+
+    private final M method;
+    private final String variableName;
+    private final String qualifiedName;
+    private final Message message;
+
+    public MethodCall(M method, String variableName, String qualifiedName, Message message) {
+        this.method = method;
+        this.variableName = variableName;
+        this.qualifiedName = qualifiedName;
+        this.message = message;
+    }
+
+    /**
+     * @return called method
+     */
+    public M getMethod() {
+        return method;
+    }
+
+    /**
+     * @return variable name of called object at call site
+     */
+    public String getVariableName() {
+        return variableName;
+    }
+
+    /**
+     * @return qualified name of called method in form package.Class.method
+     */
+    public String getQualifiedName() {
+        return qualifiedName;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+}
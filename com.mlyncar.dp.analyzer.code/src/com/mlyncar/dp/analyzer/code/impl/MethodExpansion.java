@@ -0,0 +1,83 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.Lifeline;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
+
+/**
+ * Message sequence produced by body of one method. Sequence is extracted
+ * once, relative to placeholder variable of called object and without
+ * fragments of the call site, and relocated to every call site.
+ * Only complete expansions are reusable, truncated ones depend on call stack
+ * they were created in.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class MethodExpansion {
+
+    /**
+     * Variable name of called object used while method body is extracted.
+     */
+    public static final String VARIABLE_PLACEHOLDER = "\u0000";
+
+    private final List<Message> messages;
+    private final int height;
+    private final boolean complete;
+
+    /**
+     * @param messages messages of method body
+     * @param height number of nested method levels expanded in body,
+     * including the method itself
+     * @param complete false if some call in body was not expanded because of
+     * recursion or depth limit
+     */
+    public MethodExpansion(List<Message> messages, int height, boolean complete) {
+        this.messages = Collections.unmodifiableList(new ArrayList<Message>(messages));
+        this.height = height;
+        this.complete = complete;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Copies message of method body to call site. Lifelines of called object
+     * are renamed to variable used at call site and fragments of call site
+     * are prepended to fragments of the message.
+     *
+     * @param message message of method body
+     * @param seqNumber sequence number of message at call site
+     * @param variableName variable name of called object at call site
+     * @param fragments combined fragments enclosing call site
+     */
+    public static Message relocate(Message message, int seqNumber, String variableName, List<CombFragment> fragments) {
+        List<CombFragment> messageFragments = new ArrayList<CombFragment>(fragments);
+        messageFragments.addAll(message.getCombFragments());
+        return new MessageImpl(seqNumber, message.getType(), message.getName(),
+                renameLifeline(message.getTargetLifeline(), variableName),
+                renameLifeline(message.getSourceLifeline(), variableName), messageFragments, message.getInteractionReference());
+    }
+
+    private static Lifeline renameLifeline(Lifeline lifeline, String variableName) {
+        String name = lifeline.getName();
+        if (name.startsWith(VARIABLE_PLACEHOLDER)) {
+            name = variableName + name.substring(VARIABLE_PLACEHOLDER.length());
+        }
+        return new LifelineImpl(name, lifeline.getPackageName());
+    }
+}
@@ -0,0 +1,58 @@
+package com.mlyncar.dp.analyzer.code.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+
+/**
+ * Runs extraction of entry point diagrams on fork join pool. Every
+ * extraction pushes messages into its own sink, sinks are never shared
+ * between threads.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class ParallelExtraction {
+
+    private ParallelExtraction() {
+    }
+
+    public interface ExtractionTask<M> {
+
+        public void extract(M entryMethod, MessageSink sink) throws SourceCodeAnalyzerException;
+    }
+
+    /**
+     * @param entrySinks sinks of diagrams keyed by their entry methods
+     */
+    public static <M> void extractDiagrams(Map<M, MessageSink> entrySinks, int parallelism, ExtractionTask<M> task) throws SourceCodeAnalyzerException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+            for (Map.Entry<M, MessageSink> entrySink : entrySinks.entrySet()) {
+                tasks.add(pool.submit(() -> {
+                    task.extract(entrySink.getKey(), entrySink.getValue());
+                    return null;
+                }));
+            }
+            for (ForkJoinTask<?> extraction : tasks) {
+                extraction.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SourceCodeAnalyzerException("Extraction of sequence diagrams was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SourceCodeAnalyzerException) {
+                throw (SourceCodeAnalyzerException) ex.getCause();
+            }
+            throw new SourceCodeAnalyzerException("Failed to extract sequence diagram", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.IJavaProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
+import com.mlyncar.dp.analyzer.code.SourceCodeAnalyzer;
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
+import com.mlyncar.dp.analyzer.code.entry.EntryPointSelector;
+import com.mlyncar.dp.analyzer.code.entry.MessageSelector;
+import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.DiagramCollector;
+import com.mlyncar.dp.analyzer.code.impl.ExpansionCache;
+import com.mlyncar.dp.analyzer.code.impl.ParallelExtraction;
+import com.mlyncar.dp.analyzer.entity.Lifeline;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
+import com.mlyncar.dp.analyzer.entity.impl.SeqDiagramImpl;
+import com.mlyncar.dp.analyzer.helper.EclipseProjectNavigatorHelper;
+import com.mlyncar.dp.analyzer.test.TestHelper;
+
+/**
+ * Source code analyzer reading compiled class files from output folders of
+ * the project. Project must be built, variable names are available only if
+ * classes are compiled with local variable debug information.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class BytecodeAnalyzer implements SourceCodeAnalyzer {
+
+    private static final String MAIN_DESCRIPTOR = "([Ljava/lang/String;)V";
+
+    private final Logger logger = LoggerFactory.getLogger(BytecodeAnalyzer.class);
+    private final int maxDepth;
+    private final int maxMessages;
+    private final int parallelism;
+    private final PackagePolicy packagePolicy;
+    private final IJavaProject project;
+
+    public BytecodeAnalyzer() {
+        this(new CodeAnalyzerConfiguration());
+    }
+
+    public BytecodeAnalyzer(CodeAnalyzerConfiguration configuration) {
+        this(configuration, EclipseProjectNavigatorHelper.getCurrentProject());
+    }
+
+    public BytecodeAnalyzer(CodeAnalyzerConfiguration configuration, IJavaProject project) {
+        this.project = project;
+        this.maxDepth = configuration.getMaxCallDepth();
+        this.maxMessages = configuration.getMaxMessages();
+        this.parallelism = configuration.getParallelism();
+        this.packagePolicy = configuration.getPackagePolicy();
+    }
+
+    @Override
+    public SeqDiagram extractSequenceDiagramFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        DiagramCollector collector = new DiagramCollector();
+        extractSequenceDiagramFromMain(collector, monitor);
+        SeqDiagram diagram = collector.getDiagrams().get(0);
+        TestHelper.validateDiagram(diagram);
+        return diagram;
+    }
+
+    @Override
+    public void extractSequenceDiagramFromMain(MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        try {
+            BytecodeIndex index = createIndex(project, monitor);
+            MethodRef mainMethod = findMainMethod(index);
+            BytecodeDiagramExtractor extractor = new BytecodeDiagramExtractor(index,
+                    new ExpansionCache<MethodRef>(), maxDepth, maxMessages, packagePolicy);
+            extractor.extractDiagram(mainMethod, createStartMessage(mainMethod), getEntryVariableName(mainMethod),
+                    sinkFactory.createSink(new SeqDiagramImpl()));
+        } catch (MainMethodNotFoundException ex) {
+            throw new SourceCodeAnalyzerException(
+                    "Failed to extract sequence diagram from class files", ex);
+        }
+    }
+
+    @Override
+    public List<SeqDiagram> extractSequenceDiagrams(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        DiagramCollector collector = new DiagramCollector();
+        extractSequenceDiagrams(selectors, collector, monitor);
+        return collector.getDiagrams();
+    }
+
+    @Override
+    public void extractSequenceDiagrams(List<EntryPointSelector> selectors, MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        BytecodeIndex index = createIndex(project, monitor);
+        Map<MethodRef, MessageSink> entrySinks = new LinkedHashMap<MethodRef, MessageSink>();
+        for (MethodRef entryMethod : findEntryMethods(index, selectors, project)) {
+            SeqDiagram diagram = new SeqDiagramImpl();
+            diagram.setName(entryMethod.getQualifiedName());
+            entrySinks.put(entryMethod, sinkFactory.createSink(diagram));
+        }
+        logger.debug("Extracting {} sequence diagrams using {} threads", entrySinks.size(), parallelism);
+        ExpansionCache<MethodRef> methodExpansions = new ExpansionCache<MethodRef>();
+        ParallelExtraction.extractDiagrams(entrySinks, parallelism, (entryMethod, sink) -> {
+            BytecodeDiagramExtractor extractor = new BytecodeDiagramExtractor(index, methodExpansions, maxDepth, maxMessages, packagePolicy);
+            extractor.extractDiagram(entryMethod, createStartMessage(entryMethod), getEntryVariableName(entryMethod), sink);
+        });
+    }
+
+    @Override
+    public CallTree extractCallTreeFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        try {
+            BytecodeIndex index = createIndex(project, monitor);
+            MethodRef mainMethod = findMainMethod(index);
+            BytecodeDiagramExtractor extractor = new BytecodeDiagramExtractor(index,
+                    new ExpansionCache<MethodRef>(), maxDepth, maxMessages, packagePolicy);
+            return extractor.extractCallTree(mainMethod, createStartMessage(mainMethod), getEntryVariableName(mainMethod));
+        } catch (MainMethodNotFoundException ex) {
+            throw new SourceCodeAnalyzerException(
+                    "Failed to extract call tree from class files", ex);
+        }
+    }
+
+    @Override
+    public List<CallTree> extractCallTrees(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        BytecodeIndex index = createIndex(project, monitor);
+        ExpansionCache<MethodRef> methodExpansions = new ExpansionCache<MethodRef>();
+        List<CallTree> callTrees = new ArrayList<CallTree>();
+        for (MethodRef entryMethod : findEntryMethods(index, selectors, project)) {
+            BytecodeDiagramExtractor extractor = new BytecodeDiagramExtractor(index, methodExpansions, maxDepth, maxMessages, packagePolicy);
+            callTrees.add(extractor.extractCallTree(entryMethod, createStartMessage(entryMethod), getEntryVariableName(entryMethod)));
+        }
+        return callTrees;
+    }
+
+    @Override
+    public List<CallTree> extractTargetedCallTrees(List<Message> rootMessages, List<Integer> depthLimits, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        BytecodeIndex index = createIndex(project, monitor);
+        ExpansionCache<MethodRef> methodExpansions = new ExpansionCache<MethodRef>();
+        List<CallTree> callTrees = new ArrayList<CallTree>();
+        for (int i = 0; i < rootMessages.size(); i++) {
+            Message rootMessage = rootMessages.get(i);
+            MessageSelector selector = new MessageSelector(rootMessage);
+            List<MethodRef> entryMethods = findEntryMethods(index, Collections.<EntryPointSelector>singletonList(selector), project);
+            if (entryMethods.isEmpty()) {
+                logger.debug("No method found for root message {}", selector);
+                callTrees.add(null);
+                continue;
+            }
+            if (entryMethods.size() > 1) {
+                logger.debug("Root message {} matches {} methods, skipping ambiguous root", selector, entryMethods.size());
+                callTrees.add(null);
+                continue;
+            }
+            BytecodeDiagramExtractor extractor = new BytecodeDiagramExtractor(index, methodExpansions, maxDepth, maxMessages, packagePolicy);
+            callTrees.add(extractor.extractCallTree(entryMethods.get(0), rootMessage, selector.getVariableName(), depthLimits.get(i)));
+        }
+        return callTrees;
+    }
+
+    /**
+     * Index of class files is read without progress reporting, cancellation
+     * is checked when it is complete.
+     */
+    private BytecodeIndex createIndex(IJavaProject project, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        BytecodeIndex index = new BytecodeIndex(project);
+        if (monitor.isCanceled()) {
+            throw new OperationCanceledException();
+        }
+        return index;
+    }
+
+    private List<MethodRef> findEntryMethods(BytecodeIndex index, List<EntryPointSelector> selectors, IJavaProject project) {
+        List<MethodRef> entryMethods = new ArrayList<MethodRef>();
+        for (BytecodeMethod method : index.getMethods()) {
+            if (method.isSynthetic() || method.getReference().getName().startsWith("<clinit")) {
+                continue;
+            }
+            String qualifiedName = method.getReference().getQualifiedName();
+            for (EntryPointSelector selector : selectors) {
+                if (selector.matches(qualifiedName, project)) {
+                    logger.debug("Method {} selected as entry point", qualifiedName);
+                    entryMethods.add(method.getReference());
+                    break;
+                }
+            }
+        }
+        return entryMethods;
+    }
+
+    private MethodRef findMainMethod(BytecodeIndex index) throws MainMethodNotFoundException {
+        for (BytecodeMethod method : index.getMethods()) {
+            MethodRef reference = method.getReference();
+            if (method.isStatic() && reference.getName().equals("main") && reference.getDescriptor().equals(MAIN_DESCRIPTOR)) {
+                return reference;
+            }
+        }
+        throw new MainMethodNotFoundException("Unable to find main method in class files");
+    }
+
+    private Message createStartMessage(MethodRef entryMethod) {
+        Lifeline actorLifeline = new LifelineImpl("Actor");
+        Lifeline lifeline = new LifelineImpl(getEntryVariableName(entryMethod) + entryMethod.getClassName());
+        return new MessageImpl(0, MessageType.SYNCH, entryMethod.getMethodName(), lifeline, actorLifeline, null);
+    }
+
+    private String getEntryVariableName(MethodRef entryMethod) {
+        return entryMethod.getMethodName() + ":";
+    }
+}
@@ -0,0 +1,40 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+import java.util.List;
+
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+
+/**
+ * Invoke instruction of method body together with variable holding called
+ * object and combined fragments enclosing the instruction.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class BytecodeCall {
+
+    private final MethodRef target;
+    private final String variableName;
+    private final List<CombFragment> fragments;
+
+    public BytecodeCall(MethodRef target, String variableName, List<CombFragment> fragments) {
+        this.target = target;
+        this.variableName = variableName;
+        this.fragments = fragments;
+    }
+
+    public MethodRef getTarget() {
+        return target;
+    }
+
+    /**
+     * @return variable name followed by colon, empty string if called object
+     * is not held by variable
+     */
+    public String getVariableName() {
+        return variableName;
+    }
+
+    public List<CombFragment> getFragments() {
+        return fragments;
+    }
+}
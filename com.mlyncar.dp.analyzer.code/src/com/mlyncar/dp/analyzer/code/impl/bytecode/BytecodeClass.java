@@ -0,0 +1,45 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+import java.util.List;
+
+/**
+ * Class file reduced to its super class and methods with code.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class BytecodeClass {
+
+    private final String name;
+    private final String superName;
+    private final int access;
+    private final List<BytecodeMethod> methods;
+
+    public BytecodeClass(String name, String superName, int access, List<BytecodeMethod> methods) {
+        this.name = name;
+        this.superName = superName;
+        this.access = access;
+        this.methods = methods;
+    }
+
+    /**
+     * @return internal name of class
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return internal name of super class or null for java/lang/Object
+     */
+    public String getSuperName() {
+        return superName;
+    }
+
+    public boolean isInterface() {
+        return (access & ClassFileReader.ACC_INTERFACE) != 0;
+    }
+
+    public List<BytecodeMethod> getMethods() {
+        return methods;
+    }
+}
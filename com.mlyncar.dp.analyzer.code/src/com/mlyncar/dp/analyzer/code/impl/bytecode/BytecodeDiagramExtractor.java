@@ -0,0 +1,66 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.DiagramExtractor;
+import com.mlyncar.dp.analyzer.code.impl.ExpansionCache;
+import com.mlyncar.dp.analyzer.code.impl.MethodExpansion;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+
+/**
+ * Extracts sequence diagram from calls of compiled method bodies.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class BytecodeDiagramExtractor extends DiagramExtractor<MethodRef> {
+
+    private final Logger logger = LoggerFactory.getLogger(BytecodeDiagramExtractor.class);
+    private final BytecodeIndex index;
+
+    public BytecodeDiagramExtractor(BytecodeIndex index, ExpansionCache<MethodRef> methodExpansions, int maxDepth, int maxMessages, PackagePolicy packagePolicy) {
+        super(methodExpansions, maxDepth, maxMessages, packagePolicy);
+        this.index = index;
+    }
+
+    @Override
+    protected void analyzeMethodBody(MethodRef method) throws SourceCodeAnalyzerException {
+        BytecodeMethod bytecodeMethod = index.getMethod(method);
+        if (bytecodeMethod == null) {
+            return;
+        }
+        String currentVariableName = MethodExpansion.VARIABLE_PLACEHOLDER;
+        for (BytecodeCall call : bytecodeMethod.getCalls()) {
+            MethodRef newMethod = index.resolve(call.getTarget());
+            String variableName = call.getVariableName();
+            MessageType type = MessageType.SYNCH;
+            if (!newMethod.isConstructor() && newMethod.getClassName().equals(method.getClassName())) {
+                type = MessageType.SELF;
+                variableName = currentVariableName;
+            }
+            logger.debug("Adding new message to diagram: {}", newMethod);
+            addMethodCall(type, newMethod, variableName,
+                    new LifelineImpl(variableName + newMethod.getClassName(), newMethod.getClassPackage()),
+                    new LifelineImpl(currentVariableName + method.getClassName(), method.getClassPackage()), call.getFragments());
+        }
+    }
+
+    @Override
+    protected String getMethodName(MethodRef method) {
+        return method.getMethodName();
+    }
+
+    @Override
+    protected String getClassPackage(MethodRef method) {
+        return method.getClassPackage();
+    }
+
+    @Override
+    protected String getInteractionReference(MethodRef method) {
+        return method.getQualifiedName();
+    }
+}
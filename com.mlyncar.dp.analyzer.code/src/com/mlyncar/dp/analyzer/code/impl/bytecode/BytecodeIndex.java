@@ -0,0 +1,143 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+
+/**
+ * Methods of compiled classes of project. Class files are streamed from
+ * output folders one at a time, only calls of method bodies and super class
+ * names are retained after a class is read.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class BytecodeIndex {
+
+    private static final String CLASS_FILE_EXTENSION = ".class";
+
+    private final Map<MethodRef, BytecodeMethod> methods = new LinkedHashMap<MethodRef, BytecodeMethod>();
+    private final Map<String, String> superClasses = new HashMap<String, String>();
+    private final Logger logger = LoggerFactory.getLogger(BytecodeIndex.class);
+
+    public BytecodeIndex(IJavaProject project) throws SourceCodeAnalyzerException {
+        int classes = 0;
+        for (File outputFolder : getOutputFolders(project)) {
+            Deque<File> folders = new ArrayDeque<File>();
+            folders.push(outputFolder);
+            while (!folders.isEmpty()) {
+                File[] files = folders.pop().listFiles();
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (file.isDirectory()) {
+                        folders.push(file);
+                    } else if (file.getName().endsWith(CLASS_FILE_EXTENSION)) {
+                        readClass(file);
+                        classes++;
+                    }
+                }
+            }
+        }
+        logger.debug("Read {} class files of project {}, number of indexed methods {}", classes, project.getElementName(), methods.size());
+    }
+
+    /**
+     * @return method with body or null if method is not compiled in project
+     */
+    public BytecodeMethod getMethod(MethodRef reference) {
+        return methods.get(reference);
+    }
+
+    /**
+     * @return methods with body in order of class files
+     */
+    public Collection<BytecodeMethod> getMethods() {
+        return Collections.unmodifiableCollection(methods.values());
+    }
+
+    /**
+     * Resolves method inherited by class referenced in invoke instruction.
+     *
+     * @return reference to method declared in the nearest super class or
+     * original reference if the method is not found in project classes
+     */
+    public MethodRef resolve(MethodRef reference) {
+        String owner = reference.getOwner();
+        while (owner != null) {
+            MethodRef declared = new MethodRef(owner, reference.getName(), reference.getDescriptor());
+            if (methods.containsKey(declared)) {
+                return declared;
+            }
+            if (reference.isConstructor()) {
+                break;
+            }
+            owner = superClasses.get(owner);
+        }
+        return reference;
+    }
+
+    private void readClass(File file) {
+        InputStream input = null;
+        try {
+            input = new BufferedInputStream(new FileInputStream(file));
+            BytecodeClass bytecodeClass = ClassFileReader.read(input);
+            superClasses.put(bytecodeClass.getName(), bytecodeClass.getSuperName());
+            for (BytecodeMethod method : bytecodeClass.getMethods()) {
+                methods.put(method.getReference(), method);
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.debug("Unable to read class file {}", file.getAbsolutePath(), ex);
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ex) {
+                    logger.debug("Unable to close class file {}", file.getAbsolutePath(), ex);
+                }
+            }
+        }
+    }
+
+    private Set<File> getOutputFolders(IJavaProject project) throws SourceCodeAnalyzerException {
+        Set<File> folders = new LinkedHashSet<File>();
+        try {
+            addOutputFolder(folders, project, project.getOutputLocation());
+            for (IClasspathEntry entry : project.getRawClasspath()) {
+                if (entry.getEntryKind() == IClasspathEntry.CPE_SOURCE && entry.getOutputLocation() != null) {
+                    addOutputFolder(folders, project, entry.getOutputLocation());
+                }
+            }
+        } catch (JavaModelException ex) {
+            throw new SourceCodeAnalyzerException("Unable to find output folders of project " + project.getElementName(), ex);
+        }
+        return folders;
+    }
+
+    private void addOutputFolder(Set<File> folders, IJavaProject project, IPath outputLocation) {
+        IPath location = project.getProject().getWorkspace().getRoot().getFolder(outputLocation).getLocation();
+        if (location != null) {
+            folders.add(location.toFile());
+        }
+    }
+}
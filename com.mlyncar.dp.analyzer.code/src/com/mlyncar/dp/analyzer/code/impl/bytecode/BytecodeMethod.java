@@ -0,0 +1,37 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+import java.util.List;
+
+/**
+ * Method of class file reduced to sequence of calls of its body.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class BytecodeMethod {
+
+    private final MethodRef reference;
+    private final int access;
+    private final List<BytecodeCall> calls;
+
+    public BytecodeMethod(MethodRef reference, int access, List<BytecodeCall> calls) {
+        this.reference = reference;
+        this.access = access;
+        this.calls = calls;
+    }
+
+    public MethodRef getReference() {
+        return reference;
+    }
+
+    public boolean isStatic() {
+        return (access & ClassFileReader.ACC_STATIC) != 0;
+    }
+
+    public boolean isSynthetic() {
+        return (access & ClassFileReader.ACC_SYNTHETIC) != 0;
+    }
+
+    public List<BytecodeCall> getCalls() {
+        return calls;
+    }
+}
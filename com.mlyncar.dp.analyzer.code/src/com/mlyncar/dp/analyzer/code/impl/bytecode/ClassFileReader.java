@@ -0,0 +1,117 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads single class file and reduces every method with code to sequence of
+ * calls. Only constant pool, method headers, code and local variable tables
+ * are decoded, other attributes are skipped without being stored.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class ClassFileReader {
+
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_SYNTHETIC = 0x1000;
+    public static final int ACC_INTERFACE = 0x0200;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final String CODE_ATTRIBUTE = "Code";
+    private static final String LOCAL_VARIABLE_TABLE_ATTRIBUTE = "LocalVariableTable";
+
+    private ClassFileReader() {
+    }
+
+    /**
+     * @param input stream of class file, stream is not closed
+     * @return class reduced to methods and their calls
+     * @throws IOException if class file is malformed
+     */
+    public static BytecodeClass read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        data.readUnsignedShort();
+        data.readUnsignedShort();
+        ConstantPool pool = new ConstantPool(data);
+        int access = data.readUnsignedShort();
+        String className = pool.getClassName(data.readUnsignedShort());
+        int superIndex = data.readUnsignedShort();
+        String superName = superIndex == 0 ? null : pool.getClassName(superIndex);
+        int interfaces = data.readUnsignedShort();
+        for (int i = 0; i < interfaces; i++) {
+            data.readUnsignedShort();
+        }
+        int fields = data.readUnsignedShort();
+        for (int i = 0; i < fields; i++) {
+            data.readUnsignedShort();
+            data.readUnsignedShort();
+            data.readUnsignedShort();
+            skipAttributes(data);
+        }
+        List<BytecodeMethod> methods = new ArrayList<BytecodeMethod>();
+        int methodCount = data.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            BytecodeMethod method = readMethod(data, pool, className);
+            if (method != null) {
+                methods.add(method);
+            }
+        }
+        return new BytecodeClass(className, superName, access, methods);
+    }
+
+    private static BytecodeMethod readMethod(DataInputStream data, ConstantPool pool, String className) throws IOException {
+        int access = data.readUnsignedShort();
+        String name = pool.getUtf8(data.readUnsignedShort());
+        String descriptor = pool.getUtf8(data.readUnsignedShort());
+        BytecodeMethod method = null;
+        int attributes = data.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            String attributeName = pool.getUtf8(data.readUnsignedShort());
+            int length = data.readInt();
+            if (!CODE_ATTRIBUTE.equals(attributeName)) {
+                data.skipBytes(length);
+                continue;
+            }
+            data.readUnsignedShort();
+            data.readUnsignedShort();
+            byte[] code = new byte[data.readInt()];
+            data.readFully(code);
+            int handlerCount = data.readUnsignedShort();
+            int[] handlers = new int[handlerCount];
+            for (int j = 0; j < handlerCount; j++) {
+                data.readUnsignedShort();
+                data.readUnsignedShort();
+                handlers[j] = data.readUnsignedShort();
+                data.readUnsignedShort();
+            }
+            LocalVariableTable localVariables = new LocalVariableTable();
+            int codeAttributes = data.readUnsignedShort();
+            for (int j = 0; j < codeAttributes; j++) {
+                String codeAttributeName = pool.getUtf8(data.readUnsignedShort());
+                int codeAttributeLength = data.readInt();
+                if (LOCAL_VARIABLE_TABLE_ATTRIBUTE.equals(codeAttributeName)) {
+                    localVariables.read(data, pool);
+                } else {
+                    data.skipBytes(codeAttributeLength);
+                }
+            }
+            MethodBodyReader bodyReader = new MethodBodyReader(pool, className, (access & ACC_STATIC) != 0, code, handlers, localVariables);
+            method = new BytecodeMethod(new MethodRef(className, name, descriptor), access, bodyReader.readCalls());
+        }
+        return method;
+    }
+
+    private static void skipAttributes(DataInputStream data) throws IOException {
+        int attributes = data.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            data.readUnsignedShort();
+            data.skipBytes(data.readInt());
+        }
+    }
+}
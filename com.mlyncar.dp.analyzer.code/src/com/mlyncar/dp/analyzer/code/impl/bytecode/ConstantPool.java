@@ -0,0 +1,134 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Constant pool of class file. Only entries needed to resolve invoked methods,
+ * accessed fields and loaded constants are decoded, other entries are
+ * skipped.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+class ConstantPool {
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int INTERFACE_METHOD_REF = 11;
+    private static final int NAME_AND_TYPE = 12;
+    private static final int METHOD_HANDLE = 15;
+    private static final int METHOD_TYPE = 16;
+    private static final int DYNAMIC = 17;
+    private static final int INVOKE_DYNAMIC = 18;
+    private static final int MODULE = 19;
+    private static final int PACKAGE = 20;
+
+    private final int[] tags;
+    private final Object[] values;
+    private final int[] firstIndex;
+    private final int[] secondIndex;
+
+    ConstantPool(DataInputStream input) throws IOException {
+        int count = input.readUnsignedShort();
+        tags = new int[count];
+        values = new Object[count];
+        firstIndex = new int[count];
+        secondIndex = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = input.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+                case UTF8:
+                    values[i] = input.readUTF();
+                    break;
+                case INTEGER:
+                    values[i] = String.valueOf(input.readInt());
+                    break;
+                case FLOAT:
+                    values[i] = String.valueOf(input.readFloat());
+                    break;
+                case LONG:
+                    values[i] = String.valueOf(input.readLong());
+                    i++;
+                    break;
+                case DOUBLE:
+                    values[i] = String.valueOf(input.readDouble());
+                    i++;
+                    break;
+                case CLASS:
+                case STRING:
+                case METHOD_TYPE:
+                case MODULE:
+                case PACKAGE:
+                    firstIndex[i] = input.readUnsignedShort();
+                    break;
+                case FIELD_REF:
+                case METHOD_REF:
+                case INTERFACE_METHOD_REF:
+                case NAME_AND_TYPE:
+                case DYNAMIC:
+                case INVOKE_DYNAMIC:
+                    firstIndex[i] = input.readUnsignedShort();
+                    secondIndex[i] = input.readUnsignedShort();
+                    break;
+                case METHOD_HANDLE:
+                    input.readUnsignedByte();
+                    firstIndex[i] = input.readUnsignedShort();
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+        }
+    }
+
+    String getUtf8(int index) {
+        return (String) values[index];
+    }
+
+    /**
+     * @return internal name of class, e.g. java/lang/String
+     */
+    String getClassName(int index) {
+        return getUtf8(firstIndex[index]);
+    }
+
+    /**
+     * @return class owning field or method reference
+     */
+    String getMemberOwner(int index) {
+        return getClassName(firstIndex[index]);
+    }
+
+    String getMemberName(int index) {
+        return getUtf8(firstIndex[secondIndex[index]]);
+    }
+
+    String getMemberDescriptor(int index) {
+        return getUtf8(secondIndex[secondIndex[index]]);
+    }
+
+    /**
+     * @return textual value of numeric or string constant, null for other
+     * constants
+     */
+    String getConstantValue(int index) {
+        switch (tags[index]) {
+            case INTEGER:
+            case FLOAT:
+            case LONG:
+            case DOUBLE:
+                return (String) values[index];
+            case STRING:
+                return "\"" + getUtf8(firstIndex[index]) + "\"";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Names of local variables of method. Table is present only in class files
+ * compiled with debug information, variables are unnamed otherwise.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+class LocalVariableTable {
+
+    private int[] startPcs = new int[0];
+    private int[] lengths = new int[0];
+    private int[] slots = new int[0];
+    private String[] names = new String[0];
+
+    void read(DataInputStream data, ConstantPool pool) throws IOException {
+        int count = data.readUnsignedShort();
+        int offset = names.length;
+        startPcs = grow(startPcs, offset + count);
+        lengths = grow(lengths, offset + count);
+        slots = grow(slots, offset + count);
+        String[] grownNames = new String[offset + count];
+        System.arraycopy(names, 0, grownNames, 0, offset);
+        names = grownNames;
+        for (int i = offset; i < offset + count; i++) {
+            startPcs[i] = data.readUnsignedShort();
+            lengths[i] = data.readUnsignedShort();
+            names[i] = pool.getUtf8(data.readUnsignedShort());
+            data.readUnsignedShort();
+            slots[i] = data.readUnsignedShort();
+        }
+    }
+
+    /**
+     * @return name of variable stored in slot at given code offset or null
+     * if variable is unnamed
+     */
+    String getName(int slot, int pc) {
+        for (int i = 0; i < names.length; i++) {
+            if (slots[i] == slot && startPcs[i] <= pc && pc < startPcs[i] + lengths[i]) {
+                return names[i];
+            }
+        }
+        return null;
+    }
+
+    private int[] grow(int[] array, int size) {
+        int[] grown = new int[size];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
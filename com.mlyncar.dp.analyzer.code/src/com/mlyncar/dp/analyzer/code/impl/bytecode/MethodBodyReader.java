@@ -0,0 +1,721 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.CombFragmentType;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentImpl;
+
+/**
+ * Decodes code of one method into calls. Receiver of every invoke
+ * instruction is found by simulating operand stack over straight line code,
+ * values are traced back to local variables or fields they were loaded from.
+ * Opt fragments are derived from forward conditional branches and loop
+ * fragments from back edges, condition operands are reconstructed from
+ * instructions preceding the branch. Conditions joined by && can not be told
+ * apart from directly nested conditions ending at the same instruction, both
+ * form single opt fragment.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+class MethodBodyReader {
+
+    private static final int ICONST_M1 = 2;
+    private static final int ICONST_5 = 8;
+    private static final int LCONST_0 = 9;
+    private static final int DCONST_1 = 15;
+    private static final int BIPUSH = 16;
+    private static final int SIPUSH = 17;
+    private static final int LDC = 18;
+    private static final int LDC_W = 19;
+    private static final int LDC2_W = 20;
+    private static final int ILOAD = 21;
+    private static final int LLOAD = 22;
+    private static final int DLOAD = 24;
+    private static final int ALOAD = 25;
+    private static final int ILOAD_0 = 26;
+    private static final int ALOAD_3 = 45;
+    private static final int IALOAD = 46;
+    private static final int SALOAD = 53;
+    private static final int ISTORE = 54;
+    private static final int LSTORE = 55;
+    private static final int DSTORE = 57;
+    private static final int ASTORE = 58;
+    private static final int ISTORE_0 = 59;
+    private static final int ASTORE_3 = 78;
+    private static final int IASTORE = 79;
+    private static final int SASTORE = 86;
+    private static final int POP = 87;
+    private static final int POP2 = 88;
+    private static final int DUP = 89;
+    private static final int DUP_X1 = 90;
+    private static final int DUP_X2 = 91;
+    private static final int DUP2 = 92;
+    private static final int DUP2_X1 = 93;
+    private static final int DUP2_X2 = 94;
+    private static final int SWAP = 95;
+    private static final int IADD = 96;
+    private static final int DREM = 115;
+    private static final int INEG = 116;
+    private static final int DNEG = 119;
+    private static final int ISHL = 120;
+    private static final int LXOR = 131;
+    private static final int IINC = 132;
+    private static final int I2L = 133;
+    private static final int I2S = 147;
+    private static final int LCMP = 148;
+    private static final int DCMPG = 152;
+    private static final int IFEQ = 153;
+    private static final int IFLE = 158;
+    private static final int IF_ICMPEQ = 159;
+    private static final int IF_ACMPNE = 166;
+    private static final int GOTO = 167;
+    private static final int JSR = 168;
+    private static final int RET = 169;
+    private static final int TABLESWITCH = 170;
+    private static final int LOOKUPSWITCH = 171;
+    private static final int IRETURN = 172;
+    private static final int RETURN = 177;
+    private static final int GETSTATIC = 178;
+    private static final int PUTSTATIC = 179;
+    private static final int GETFIELD = 180;
+    private static final int PUTFIELD = 181;
+    private static final int INVOKEVIRTUAL = 182;
+    private static final int INVOKESPECIAL = 183;
+    private static final int INVOKESTATIC = 184;
+    private static final int INVOKEINTERFACE = 185;
+    private static final int INVOKEDYNAMIC = 186;
+    private static final int NEW = 187;
+    private static final int NEWARRAY = 188;
+    private static final int ANEWARRAY = 189;
+    private static final int ARRAYLENGTH = 190;
+    private static final int ATHROW = 191;
+    private static final int CHECKCAST = 192;
+    private static final int INSTANCEOF = 193;
+    private static final int MONITORENTER = 194;
+    private static final int MONITOREXIT = 195;
+    private static final int WIDE = 196;
+    private static final int MULTIANEWARRAY = 197;
+    private static final int IFNULL = 198;
+    private static final int IFNONNULL = 199;
+    private static final int GOTO_W = 200;
+    private static final int JSR_W = 201;
+
+    /**
+     * Operators of conditional branches indexed by opcode - IFEQ.
+     */
+    private static final String[] OPERATORS = {"==", "!=", "<", ">=", ">", "<=", "==", "!=", "<", ">=", ">", "<=", "==", "!="};
+    private static final String[] NEGATED_OPERATORS = {"!=", "==", ">=", "<", "<=", ">", "!=", "==", ">=", "<", "<=", ">", "!=", "=="};
+
+    private static final Object CREATED = new Object();
+
+    private final ConstantPool pool;
+    private final String className;
+    private final boolean staticMethod;
+    private final byte[] code;
+    private final int[] handlers;
+    private final LocalVariableTable localVariables;
+    private final List<Instruction> instructions = new ArrayList<Instruction>();
+    private final Map<Integer, Integer> instructionIndex = new HashMap<Integer, Integer>();
+    private final Set<Integer> branchTargets = new HashSet<Integer>();
+
+    MethodBodyReader(ConstantPool pool, String className, boolean staticMethod, byte[] code, int[] handlers, LocalVariableTable localVariables) {
+        this.pool = pool;
+        this.className = className;
+        this.staticMethod = staticMethod;
+        this.code = code;
+        this.handlers = handlers;
+        this.localVariables = localVariables;
+    }
+
+    List<BytecodeCall> readCalls() {
+        decode();
+        List<Region> regions = findRegions();
+        List<BytecodeCall> calls = new ArrayList<BytecodeCall>();
+        Set<Integer> handlerPcs = new HashSet<Integer>();
+        for (int handler : handlers) {
+            handlerPcs.add(handler);
+        }
+        List<Object> stack = new ArrayList<Object>();
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction instruction = instructions.get(i);
+            if (handlerPcs.contains(instruction.pc)) {
+                stack.clear();
+                stack.add(null);
+            } else if (branchTargets.contains(instruction.pc)) {
+                stack.clear();
+            }
+            int opcode = instruction.opcode;
+            if (opcode >= INVOKEVIRTUAL && opcode <= INVOKEDYNAMIC) {
+                BytecodeCall call = simulateInvoke(instruction, i, stack, regions);
+                if (call != null) {
+                    calls.add(call);
+                }
+            } else {
+                simulate(instruction, stack);
+            }
+        }
+        return calls;
+    }
+
+    private BytecodeCall simulateInvoke(Instruction instruction, int index, List<Object> stack, List<Region> regions) {
+        int opcode = instruction.opcode;
+        String descriptor = pool.getMemberDescriptor(instruction.operand);
+        pop(stack, getArgumentWords(descriptor));
+        Object receiver = null;
+        if (opcode != INVOKESTATIC && opcode != INVOKEDYNAMIC) {
+            receiver = pop(stack);
+        }
+        push(stack, null, getReturnWords(descriptor));
+        if (opcode == INVOKEDYNAMIC || pool.getMemberOwner(instruction.operand).startsWith("[")) {
+            // lambda bootstrap or method of array type
+            return null;
+        }
+        MethodRef target = new MethodRef(pool.getMemberOwner(instruction.operand), pool.getMemberName(instruction.operand), descriptor);
+        String variableName = receiver instanceof String ? (String) receiver : "";
+        if (target.isConstructor()) {
+            if (receiver != CREATED) {
+                // super or this constructor invocation
+                return null;
+            }
+            variableName = getAssignedVariable(index + 1);
+        }
+        return new BytecodeCall(target, variableName, getFragments(instruction.pc, regions));
+    }
+
+    /**
+     * @return variable name of object created by constructor call if it is
+     * stored directly after the call
+     */
+    private String getAssignedVariable(int index) {
+        if (index >= instructions.size()) {
+            return "";
+        }
+        Instruction next = instructions.get(index);
+        if (next.opcode == ASTORE) {
+            String name = localVariables.getName(next.operand, next.pc + next.length);
+            return name == null ? "" : name + ":";
+        } else if (next.opcode == PUTFIELD || next.opcode == PUTSTATIC) {
+            return pool.getMemberName(next.operand) + ":";
+        }
+        return "";
+    }
+
+    private void simulate(Instruction instruction, List<Object> stack) {
+        int opcode = instruction.opcode;
+        if (opcode == 0 || opcode == IINC || opcode == RET) {
+            return;
+        }
+        if (opcode >= 1 && opcode <= DCONST_1) {
+            push(stack, null, opcode == LCONST_0 || opcode == LCONST_0 + 1 || opcode >= DCONST_1 - 1 ? 2 : 1);
+        } else if (opcode == BIPUSH || opcode == SIPUSH || opcode == LDC || opcode == LDC_W) {
+            push(stack, null, 1);
+        } else if (opcode == LDC2_W) {
+            push(stack, null, 2);
+        } else if (opcode >= ILOAD && opcode <= ALOAD) {
+            push(stack, opcode == ALOAD ? getVariableValue(instruction) : null, opcode == LLOAD || opcode == DLOAD ? 2 : 1);
+        } else if (opcode >= IALOAD && opcode <= SALOAD) {
+            pop(stack, 2);
+            push(stack, null, opcode == IALOAD + 1 || opcode == IALOAD + 3 ? 2 : 1);
+        } else if (opcode >= ISTORE && opcode <= ASTORE) {
+            pop(stack, opcode == LSTORE || opcode == DSTORE ? 2 : 1);
+        } else if (opcode >= IASTORE && opcode <= SASTORE) {
+            pop(stack, opcode == IASTORE + 1 || opcode == IASTORE + 3 ? 4 : 3);
+        } else if (opcode >= POP && opcode <= SWAP) {
+            simulateStackOperation(opcode, stack);
+        } else if (opcode >= IADD && opcode <= DREM) {
+            int words = (opcode - IADD) % 2 == 1 ? 2 : 1;
+            pop(stack, words * 2);
+            push(stack, null, words);
+        } else if (opcode >= INEG && opcode <= DNEG) {
+            int words = (opcode - INEG) % 2 == 1 ? 2 : 1;
+            pop(stack, words);
+            push(stack, null, words);
+        } else if (opcode >= ISHL && opcode <= LXOR) {
+            boolean wide = (opcode - ISHL) % 2 == 1;
+            boolean shift = opcode <= ISHL + 5;
+            pop(stack, wide ? (shift ? 3 : 4) : 2);
+            push(stack, null, wide ? 2 : 1);
+        } else if (opcode >= I2L && opcode <= I2S) {
+            simulateConversion(opcode, stack);
+        } else if (opcode >= LCMP && opcode <= DCMPG) {
+            pop(stack, opcode == LCMP || opcode >= DCMPG - 1 ? 4 : 2);
+            push(stack, null, 1);
+        } else if (opcode >= IFEQ && opcode <= IFLE || opcode == IFNULL || opcode == IFNONNULL
+                || opcode == TABLESWITCH || opcode == LOOKUPSWITCH || opcode == MONITORENTER || opcode == MONITOREXIT) {
+            pop(stack, 1);
+        } else if (opcode >= IF_ICMPEQ && opcode <= IF_ACMPNE) {
+            pop(stack, 2);
+        } else if (opcode == GOTO || opcode == GOTO_W || opcode >= IRETURN && opcode <= RETURN || opcode == ATHROW) {
+            stack.clear();
+        } else if (opcode == JSR || opcode == JSR_W) {
+            push(stack, null, 1);
+        } else if (opcode == GETSTATIC) {
+            String owner = pool.getMemberOwner(instruction.operand);
+            push(stack, owner.equals(className) ? pool.getMemberName(instruction.operand) + ":" : null,
+                    getFieldWords(pool.getMemberDescriptor(instruction.operand)));
+        } else if (opcode == PUTSTATIC) {
+            pop(stack, getFieldWords(pool.getMemberDescriptor(instruction.operand)));
+        } else if (opcode == GETFIELD) {
+            Object object = pop(stack);
+            boolean thisField = object == null && !staticMethod && isThisLoad(instruction);
+            push(stack, thisField ? pool.getMemberName(instruction.operand) + ":" : null,
+                    getFieldWords(pool.getMemberDescriptor(instruction.operand)));
+        } else if (opcode == PUTFIELD) {
+            pop(stack, getFieldWords(pool.getMemberDescriptor(instruction.operand)) + 1);
+        } else if (opcode == NEW) {
+            push(stack, CREATED, 1);
+        } else if (opcode == NEWARRAY || opcode == ANEWARRAY || opcode == ARRAYLENGTH || opcode == INSTANCEOF) {
+            pop(stack, 1);
+            push(stack, null, 1);
+        } else if (opcode == MULTIANEWARRAY) {
+            pop(stack, instruction.operand2);
+            push(stack, null, 1);
+        }
+        // CHECKCAST keeps the value on top of the stack
+    }
+
+    private void simulateStackOperation(int opcode, List<Object> stack) {
+        switch (opcode) {
+            case POP:
+                pop(stack, 1);
+                break;
+            case POP2:
+                pop(stack, 2);
+                break;
+            case DUP:
+                insert(stack, 1, 0);
+                break;
+            case DUP_X1:
+                insert(stack, 1, 1);
+                break;
+            case DUP_X2:
+                insert(stack, 1, 2);
+                break;
+            case DUP2:
+                insert(stack, 2, 0);
+                break;
+            case DUP2_X1:
+                insert(stack, 2, 1);
+                break;
+            case DUP2_X2:
+                insert(stack, 2, 2);
+                break;
+            default:
+                Object first = pop(stack);
+                Object second = pop(stack);
+                stack.add(first);
+                stack.add(second);
+        }
+    }
+
+    private void simulateConversion(int opcode, List<Object> stack) {
+        // i2l, i2f, i2d, l2i, l2f, l2d, f2i, f2l, f2d, d2i, d2l, d2f, i2b, i2c, i2s
+        int[] popped = {1, 1, 1, 2, 2, 2, 1, 1, 1, 2, 2, 2, 1, 1, 1};
+        int[] pushed = {2, 1, 2, 1, 1, 2, 1, 2, 2, 1, 2, 1, 1, 1, 1};
+        pop(stack, popped[opcode - I2L]);
+        push(stack, null, pushed[opcode - I2L]);
+    }
+
+    /**
+     * Duplicates top words of stack and inserts the copy below skipped words.
+     */
+    private void insert(List<Object> stack, int words, int skipped) {
+        if (stack.size() < words + skipped) {
+            push(stack, null, words);
+            return;
+        }
+        List<Object> copy = new ArrayList<Object>(stack.subList(stack.size() - words, stack.size()));
+        stack.addAll(stack.size() - words - skipped, copy);
+    }
+
+    private boolean isThisLoad(Instruction getField) {
+        Integer index = instructionIndex.get(getField.pc);
+        if (index == null || index == 0) {
+            return false;
+        }
+        Instruction previous = instructions.get(index - 1);
+        return previous.opcode == ALOAD && previous.operand == 0;
+    }
+
+    /**
+     * @return variable name followed by colon or null for this and unnamed
+     * variables
+     */
+    private Object getVariableValue(Instruction load) {
+        if (!staticMethod && load.operand == 0) {
+            return null;
+        }
+        String name = localVariables.getName(load.operand, load.pc);
+        return name == null ? null : name + ":";
+    }
+
+    private Object pop(List<Object> stack) {
+        return stack.isEmpty() ? null : stack.remove(stack.size() - 1);
+    }
+
+    private void pop(List<Object> stack, int words) {
+        for (int i = 0; i < words; i++) {
+            pop(stack);
+        }
+    }
+
+    private void push(List<Object> stack, Object value, int words) {
+        for (int i = 0; i < words; i++) {
+            stack.add(value);
+        }
+    }
+
+    private List<CombFragment> getFragments(int pc, List<Region> regions) {
+        List<Region> enclosing = new ArrayList<Region>();
+        for (Region region : regions) {
+            if (region.start <= pc && pc < region.end) {
+                enclosing.add(region);
+            }
+        }
+        Collections.sort(enclosing, new Comparator<Region>() {
+            @Override
+            public int compare(Region first, Region second) {
+                return Integer.compare(first.end - first.start, second.end - second.start);
+            }
+        });
+        List<CombFragment> fragments = new ArrayList<CombFragment>();
+        for (Region region : enclosing) {
+            fragments.add(region.fragment);
+        }
+        return fragments;
+    }
+
+    /**
+     * Finds loops by back edges and optional blocks by forward conditional
+     * branches. Conditional branch leaving loop is loop condition and does
+     * not form optional block.
+     */
+    private List<Region> findRegions() {
+        List<Region> regions = new ArrayList<Region>();
+        Set<Integer> loopBranches = new HashSet<Integer>();
+        Map<Integer, Integer> backEdges = new HashMap<Integer, Integer>();
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction branch = instructions.get(i);
+            if (isBranch(branch) && branch.operand <= branch.pc) {
+                // last back edge to loop start closes the loop, earlier ones are continue statements
+                backEdges.put(branch.operand, i);
+                loopBranches.add(branch.pc);
+            }
+        }
+        for (int backEdgeIndex : backEdges.values()) {
+            regions.add(createLoopRegion(backEdgeIndex, loopBranches));
+        }
+        Set<Integer> optEnds = new HashSet<Integer>();
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction branch = instructions.get(i);
+            if (!isConditionalBranch(branch) || branch.operand <= branch.pc || loopBranches.contains(branch.pc)) {
+                continue;
+            }
+            int start = branch.pc + branch.length;
+            int end = branch.operand;
+            if (!optEnds.add(end)) {
+                // further condition of the same block joined by &&
+                continue;
+            }
+            CombFragment fragment = new CombFragmentImpl(getCondition(i, true), CombFragmentType.OPT);
+            regions.add(new Region(start, end, fragment));
+            Integer endIndex = instructionIndex.get(end);
+            if (endIndex != null && endIndex > 0) {
+                Instruction previous = instructions.get(endIndex - 1);
+                if ((previous.opcode == GOTO || previous.opcode == GOTO_W) && previous.operand > end) {
+                    regions.add(new Region(end, previous.operand, fragment));
+                }
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Loop is either compiled with condition at its start and unconditional
+     * back edge (javac), or with entry jump to condition at its end which is
+     * the back edge itself (Eclipse compiler).
+     */
+    private Region createLoopRegion(int backEdgeIndex, Set<Integer> loopBranches) {
+        Instruction backEdge = instructions.get(backEdgeIndex);
+        int start = backEdge.operand;
+        int end = backEdge.pc + backEdge.length;
+        int startIndex = instructionIndex.containsKey(start) ? instructionIndex.get(start) : backEdgeIndex;
+        String condition = null;
+        int initIndex = startIndex - 1;
+        int conditionStart = backEdge.pc;
+        if (isConditionalBranch(backEdge)) {
+            condition = getCondition(backEdgeIndex, false);
+            if (initIndex >= 0) {
+                Instruction entry = instructions.get(initIndex);
+                if ((entry.opcode == GOTO || entry.opcode == GOTO_W) && entry.operand > start && entry.operand <= backEdge.pc) {
+                    conditionStart = entry.operand;
+                    initIndex--;
+                }
+            }
+        } else {
+            for (int i = startIndex; i < backEdgeIndex; i++) {
+                Instruction exit = instructions.get(i);
+                if (isConditionalBranch(exit) && exit.operand == end) {
+                    condition = getCondition(i, true);
+                    loopBranches.add(exit.pc);
+                    break;
+                }
+            }
+        }
+        String result = getLoopInitializer(initIndex);
+        if (condition != null) {
+            result += ";" + condition;
+        }
+        String update = getLoopUpdate(startIndex, conditionStart);
+        if (update != null) {
+            result += ";" + update;
+        }
+        return new Region(start, end, new CombFragmentImpl(result, CombFragmentType.LOOP));
+    }
+
+    private String getLoopInitializer(int storeIndex) {
+        if (storeIndex < 1) {
+            return "";
+        }
+        Instruction store = instructions.get(storeIndex);
+        if (store.opcode < ISTORE || store.opcode > ASTORE) {
+            return "";
+        }
+        String name = localVariables.getName(store.operand, store.pc + store.length);
+        if (name == null) {
+            return "";
+        }
+        return name + "=" + describeOperand(instructions.get(storeIndex - 1));
+    }
+
+    private String getLoopUpdate(int startIndex, int conditionStart) {
+        String update = null;
+        for (int i = startIndex; i < instructions.size() && instructions.get(i).pc < conditionStart; i++) {
+            Instruction increment = instructions.get(i);
+            if (increment.opcode == IINC) {
+                String name = localVariables.getName(increment.operand, increment.pc);
+                if (name != null) {
+                    update = increment.operand2 == 1 ? name + "++" : increment.operand2 == -1 ? name + "--" : name + "+=" + increment.operand2;
+                }
+            }
+        }
+        return update;
+    }
+
+    /**
+     * @param negated true if branch skips the block guarded by condition
+     */
+    private String getCondition(int branchIndex, boolean negated) {
+        Instruction branch = instructions.get(branchIndex);
+        int opcode = branch.opcode;
+        String left;
+        String right;
+        int operator;
+        if (opcode == IFNULL || opcode == IFNONNULL) {
+            left = describeOperand(branchIndex > 0 ? instructions.get(branchIndex - 1) : null);
+            right = "null";
+            operator = opcode == IFNULL ? 0 : 1;
+        } else if (opcode <= IFLE) {
+            left = describeOperand(branchIndex > 0 ? instructions.get(branchIndex - 1) : null);
+            right = "0";
+            operator = opcode - IFEQ;
+        } else {
+            left = describeOperand(branchIndex > 1 ? instructions.get(branchIndex - 2) : null);
+            right = describeOperand(branchIndex > 0 ? instructions.get(branchIndex - 1) : null);
+            operator = opcode - IFEQ;
+        }
+        return left + (negated ? NEGATED_OPERATORS[operator] : OPERATORS[operator]) + right;
+    }
+
+    private String describeOperand(Instruction instruction) {
+        if (instruction == null) {
+            return "[Unknown]";
+        }
+        int opcode = instruction.opcode;
+        if (opcode == 1) {
+            return "null";
+        } else if (opcode >= ICONST_M1 && opcode <= ICONST_5) {
+            return String.valueOf(opcode - ICONST_M1 - 1);
+        } else if (opcode == BIPUSH || opcode == SIPUSH) {
+            return String.valueOf(instruction.operand);
+        } else if (opcode == LDC || opcode == LDC_W || opcode == LDC2_W) {
+            String value = pool.getConstantValue(instruction.operand);
+            return value == null ? "[Unknown]" : value;
+        } else if (opcode >= ILOAD && opcode <= ALOAD) {
+            String name = localVariables.getName(instruction.operand, instruction.pc);
+            return name == null ? "[Unknown]" : name;
+        } else if (opcode == GETFIELD || opcode == GETSTATIC) {
+            return pool.getMemberName(instruction.operand);
+        }
+        return "[Unknown]";
+    }
+
+    private boolean isBranch(Instruction instruction) {
+        return isConditionalBranch(instruction) || instruction.opcode == GOTO || instruction.opcode == GOTO_W;
+    }
+
+    private boolean isConditionalBranch(Instruction instruction) {
+        int opcode = instruction.opcode;
+        return opcode >= IFEQ && opcode <= IF_ACMPNE || opcode == IFNULL || opcode == IFNONNULL;
+    }
+
+    private void decode() {
+        int pc = 0;
+        while (pc < code.length) {
+            Instruction instruction = new Instruction(pc, readUnsignedByte(pc));
+            int opcode = instruction.opcode;
+            if (opcode >= ILOAD_0 && opcode <= ALOAD_3) {
+                instruction.opcode = ILOAD + (opcode - ILOAD_0) / 4;
+                instruction.operand = (opcode - ILOAD_0) % 4;
+            } else if (opcode >= ISTORE_0 && opcode <= ASTORE_3) {
+                instruction.opcode = ISTORE + (opcode - ISTORE_0) / 4;
+                instruction.operand = (opcode - ISTORE_0) % 4;
+            } else if (opcode == BIPUSH) {
+                instruction.operand = code[pc + 1];
+                instruction.length = 2;
+            } else if (opcode == LDC || opcode >= ILOAD && opcode <= ALOAD || opcode >= ISTORE && opcode <= ASTORE
+                    || opcode == RET || opcode == NEWARRAY) {
+                instruction.operand = readUnsignedByte(pc + 1);
+                instruction.length = 2;
+            } else if (opcode == SIPUSH) {
+                instruction.operand = readShort(pc + 1);
+                instruction.length = 3;
+            } else if (opcode == IINC) {
+                instruction.operand = readUnsignedByte(pc + 1);
+                instruction.operand2 = code[pc + 2];
+                instruction.length = 3;
+            } else if (opcode >= IFEQ && opcode <= JSR || opcode == IFNULL || opcode == IFNONNULL) {
+                instruction.operand = pc + readShort(pc + 1);
+                instruction.length = 3;
+                branchTargets.add(instruction.operand);
+            } else if (opcode == GOTO_W || opcode == JSR_W) {
+                instruction.operand = pc + readInt(pc + 1);
+                instruction.length = 5;
+                branchTargets.add(instruction.operand);
+            } else if (opcode == LDC_W || opcode == LDC2_W || opcode >= GETSTATIC && opcode <= INVOKESTATIC
+                    || opcode == NEW || opcode == ANEWARRAY || opcode == CHECKCAST || opcode == INSTANCEOF) {
+                instruction.operand = readUnsignedShort(pc + 1);
+                instruction.length = 3;
+            } else if (opcode == INVOKEINTERFACE || opcode == INVOKEDYNAMIC) {
+                instruction.operand = readUnsignedShort(pc + 1);
+                instruction.length = 5;
+            } else if (opcode == MULTIANEWARRAY) {
+                instruction.operand = readUnsignedShort(pc + 1);
+                instruction.operand2 = readUnsignedByte(pc + 3);
+                instruction.length = 4;
+            } else if (opcode == WIDE) {
+                instruction.opcode = readUnsignedByte(pc + 1);
+                instruction.operand = readUnsignedShort(pc + 2);
+                if (instruction.opcode == IINC) {
+                    instruction.operand2 = readShort(pc + 4);
+                    instruction.length = 6;
+                } else {
+                    instruction.length = 4;
+                }
+            } else if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+                instruction.length = decodeSwitch(pc, opcode);
+            }
+            instructionIndex.put(pc, instructions.size());
+            instructions.add(instruction);
+            pc += instruction.length;
+        }
+    }
+
+    private int decodeSwitch(int pc, int opcode) {
+        int base = pc + 1 + (4 - (pc + 1) % 4) % 4;
+        branchTargets.add(pc + readInt(base));
+        if (opcode == TABLESWITCH) {
+            int low = readInt(base + 4);
+            int high = readInt(base + 8);
+            int offsets = high - low + 1;
+            for (int i = 0; i < offsets; i++) {
+                branchTargets.add(pc + readInt(base + 12 + i * 4));
+            }
+            return base + 12 + offsets * 4 - pc;
+        }
+        int pairs = readInt(base + 4);
+        for (int i = 0; i < pairs; i++) {
+            branchTargets.add(pc + readInt(base + 12 + i * 8));
+        }
+        return base + 8 + pairs * 8 - pc;
+    }
+
+    private int readUnsignedByte(int offset) {
+        return code[offset] & 0xFF;
+    }
+
+    private int readShort(int offset) {
+        return (short) ((readUnsignedByte(offset) << 8) | readUnsignedByte(offset + 1));
+    }
+
+    private int readUnsignedShort(int offset) {
+        return (readUnsignedByte(offset) << 8) | readUnsignedByte(offset + 1);
+    }
+
+    private int readInt(int offset) {
+        return (readUnsignedShort(offset) << 16) | readUnsignedShort(offset + 2);
+    }
+
+    static int getArgumentWords(String descriptor) {
+        int words = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            char type = descriptor.charAt(i);
+            if (type == 'J' || type == 'D') {
+                words += 2;
+                i++;
+            } else {
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+                words++;
+            }
+        }
+        return words;
+    }
+
+    static int getReturnWords(String descriptor) {
+        char type = descriptor.charAt(descriptor.indexOf(')') + 1);
+        return type == 'V' ? 0 : getFieldWords(String.valueOf(type));
+    }
+
+    static int getFieldWords(String descriptor) {
+        return descriptor.charAt(0) == 'J' || descriptor.charAt(0) == 'D' ? 2 : 1;
+    }
+
+    private static class Instruction {
+
+        private final int pc;
+        private int opcode;
+        private int operand;
+        private int operand2;
+        private int length = 1;
+
+        private Instruction(int pc, int opcode) {
+            this.pc = pc;
+            this.opcode = opcode;
+        }
+    }
+
+    private static class Region {
+
+        private final int start;
+        private final int end;
+        private final CombFragment fragment;
+
+        private Region(int start, int end, CombFragment fragment) {
+            this.start = start;
+            this.end = end;
+            this.fragment = fragment;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mlyncar.dp.analyzer.code.impl.bytecode;
+
+/**
+ * Reference to method by internal name of its class, name and descriptor.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class MethodRef {
+
+    public static final String CONSTRUCTOR_NAME = "<init>";
+
+    private final String owner;
+    private final String name;
+    private final String descriptor;
+
+    public MethodRef(String owner, String name, String descriptor) {
+        this.owner = owner;
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public boolean isConstructor() {
+        return CONSTRUCTOR_NAME.equals(name);
+    }
+
+    /**
+     * @return simple name of owning class, nested classes are named without
+     * their enclosing class
+     */
+    public String getClassName() {
+        return owner.substring(Math.max(owner.lastIndexOf('/'), owner.lastIndexOf('$')) + 1);
+    }
+
+    /**
+     * @return package of owning class followed by dot, empty string for
+     * default package
+     */
+    public String getClassPackage() {
+        int separator = owner.lastIndexOf('/');
+        return separator < 0 ? "" : owner.substring(0, separator).replace('/', '.') + ".";
+    }
+
+    /**
+     * @return method name used in diagram, constructors are named by their
+     * class
+     */
+    public String getMethodName() {
+        return isConstructor() ? getClassName() : name;
+    }
+
+    public String getQualifiedName() {
+        return getClassPackage() + getClassName() + "." + getMethodName();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof MethodRef)) {
+            return false;
+        }
+        MethodRef other = (MethodRef) obj;
+        return owner.equals(other.owner) && name.equals(other.name) && descriptor.equals(other.descriptor);
+    }
+
+    @Override
+    public int hashCode() {
+        return (owner.hashCode() * 31 + name.hashCode()) * 31 + descriptor.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return owner + "." + name + descriptor;
+    }
+}
@@ -0,0 +1,263 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.CallGraph;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+
+/**
+ * Stores call graph into versioned binary index and opens stored index as
+ * memory mapped {@link MappedCallGraph}. Index is identified by key created
+ * from fingerprint of project sources and settings the graph depends on, index
+ * with different key or version is never opened. Header is read and checked
+ * before the index is mapped, index which is not opened is never mapped and
+ * does not stay locked until mapped buffer is collected.
+ *
+ * Index consists of big-endian integer sections following the header:
+ * methods (name, class, package, qualified name, flags, failure), offsets of
+ * the first call site of every method, call sites (target, variable, flags),
+ * offsets of the first fragment of every call site, fragments (type, body),
+ * offsets of strings and UTF-8 bytes of strings. Strings are referenced by
+ * their number, missing string is -1.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class CallGraphStore {
+
+    static final int MAGIC = 0x4B434731;
+    static final int VERSION = 2;
+    static final int KEY_SIZE = 32;
+    static final int INDEX_SIZE_POSITION = 8 + KEY_SIZE;
+    static final int METHOD_COUNT_POSITION = INDEX_SIZE_POSITION + 4;
+    static final int HEADER_SIZE = METHOD_COUNT_POSITION + 24;
+    static final int METHOD_SIZE = 24;
+    static final int CALL_SIZE = 12;
+    static final int FRAGMENT_SIZE = 8;
+    static final int CLASS_METHOD = 1;
+    static final int CODE_ELEMENTS = 2;
+    static final int SELF_CALL = 1;
+    static final int INSTANCE_CREATION = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(CallGraphStore.class);
+
+    /**
+     * @param fingerprint fingerprint of project sources
+     * @param preferredClasses classes preferred by class hierarchy analysis
+     * @return key identifying call graph of the sources
+     */
+    public static byte[] createKey(Map<String, String> fingerprint, List<String> preferredClasses) throws SourceCodeAnalyzerException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, String> entry : new TreeMap<String, String>(fingerprint).entrySet()) {
+                digest.update((entry.getKey() + "=" + entry.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(String.join(",", preferredClasses).getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new SourceCodeAnalyzerException("Unable to create key of call graph index", ex);
+        }
+    }
+
+    /**
+     * @param indexFile stored index
+     * @param key key of current project sources
+     * @return graph mapped from index or null if index does not exist or
+     * does not match the key
+     */
+    public CallGraph open(File indexFile, byte[] key) {
+        if (!indexFile.isFile()) {
+            logger.debug("Call graph index {} does not exist", indexFile.getAbsolutePath());
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer header = readHeader(channel);
+            byte[] storedKey = new byte[KEY_SIZE];
+            header.position(8);
+            header.get(storedKey);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || !Arrays.equals(storedKey, key)) {
+                logger.debug("Call graph index {} is outdated", indexFile.getAbsolutePath());
+                return null;
+            }
+            if (header.getInt(INDEX_SIZE_POSITION) != channel.size()) {
+                logger.debug("Call graph index {} is incomplete", indexFile.getAbsolutePath());
+                return null;
+            }
+            MappedCallGraph graph = new MappedCallGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            logger.debug("Call graph index {} opened, {} methods", indexFile.getAbsolutePath(), graph.getMethodCount());
+            return graph;
+        } catch (IOException | RuntimeException ex) {
+            logger.debug("Unable to open call graph index {}", indexFile.getAbsolutePath(), ex);
+            return null;
+        }
+    }
+
+    private ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Unexpected end of call graph index header");
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Index is written into temporary file which replaces stored index when
+     * it is complete.
+     *
+     * @param graph stored call graph
+     * @param indexFile target index file
+     * @param key key of project sources the graph was built from
+     */
+    public void store(CallGraph graph, File indexFile, byte[] key) {
+        Path temporaryFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp").toPath();
+        try {
+            try (OutputStream stream = Files.newOutputStream(temporaryFile)) {
+                write(graph, key, stream);
+            }
+            Files.move(temporaryFile, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Call graph index {} stored", indexFile.getAbsolutePath());
+        } catch (IOException ex) {
+            logger.error("Unable to store call graph index {}", indexFile.getAbsolutePath(), ex);
+            temporaryFile.toFile().delete();
+        }
+    }
+
+    private void write(CallGraph graph, byte[] key, OutputStream stream) throws IOException {
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream callBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream fragmentBytes = new ByteArrayOutputStream();
+        DataOutputStream methods = new DataOutputStream(methodBytes);
+        DataOutputStream calls = new DataOutputStream(callBytes);
+        DataOutputStream fragments = new DataOutputStream(fragmentBytes);
+        int[] callOffsets = new int[graph.getMethodCount() + 1];
+        List<Integer> fragmentOffsets = new ArrayList<Integer>();
+        int callCount = 0;
+        int fragmentCount = 0;
+        for (int method = 0; method < graph.getMethodCount(); method++) {
+            callOffsets[method] = callCount;
+            methods.writeInt(strings.add(graph.getMethodName(method)));
+            methods.writeInt(strings.add(graph.getClassName(method)));
+            methods.writeInt(strings.add(graph.getPackageName(method)));
+            methods.writeInt(strings.add(graph.getQualifiedName(method)));
+            methods.writeInt((graph.isClassMethod(method) ? CLASS_METHOD : 0) | (graph.hasCodeElements(method) ? CODE_ELEMENTS : 0));
+            int firstCall;
+            try {
+                firstCall = graph.getFirstCall(method);
+                methods.writeInt(-1);
+            } catch (SourceCodeAnalyzerException ex) {
+                methods.writeInt(strings.add(String.valueOf(ex.getMessage())));
+                continue;
+            }
+            for (int call = firstCall; call < graph.getCallEnd(method); call++) {
+                calls.writeInt(graph.getCallTarget(call));
+                calls.writeInt(strings.add(graph.getVariableName(call)));
+                calls.writeInt((graph.isSelfCall(call) ? SELF_CALL : 0) | (graph.isInstanceCreation(call) ? INSTANCE_CREATION : 0));
+                fragmentOffsets.add(fragmentCount);
+                for (CombFragment fragment : graph.getCombinedFragments(call)) {
+                    fragments.writeInt(fragment.getCombFragmentType().ordinal());
+                    fragments.writeInt(strings.add(fragment.getInteractionFragment()));
+                    fragmentCount++;
+                }
+                callCount++;
+            }
+        }
+        callOffsets[graph.getMethodCount()] = callCount;
+        fragmentOffsets.add(fragmentCount);
+        int stringBytes = 0;
+        for (byte[] value : strings.values) {
+            stringBytes += value.length;
+        }
+        int indexSize = HEADER_SIZE + methodBytes.size() + callOffsets.length * 4 + callBytes.size()
+                + fragmentOffsets.size() * 4 + fragmentBytes.size() + (strings.values.size() + 1) * 4 + stringBytes;
+
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.write(key);
+        output.writeInt(indexSize);
+        output.writeInt(graph.getMethodCount());
+        output.writeInt(graph.getProjectMethodCount());
+        output.writeInt(getMainMethod(graph));
+        output.writeInt(callCount);
+        output.writeInt(fragmentCount);
+        output.writeInt(strings.values.size());
+        methodBytes.writeTo(output);
+        for (int callOffset : callOffsets) {
+            output.writeInt(callOffset);
+        }
+        callBytes.writeTo(output);
+        for (int fragmentOffset : fragmentOffsets) {
+            output.writeInt(fragmentOffset);
+        }
+        fragmentBytes.writeTo(output);
+        int stringOffset = 0;
+        output.writeInt(stringOffset);
+        for (byte[] value : strings.values) {
+            stringOffset += value.length;
+            output.writeInt(stringOffset);
+        }
+        for (byte[] value : strings.values) {
+            output.write(value);
+        }
+        output.flush();
+    }
+
+    private int getMainMethod(CallGraph graph) {
+        try {
+            return graph.getMainMethod();
+        } catch (MainMethodNotFoundException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Numbers distinct strings in order they are added.
+     */
+    private static class StringTable {
+
+        private final Map<String, Integer> numbers = new HashMap<String, Integer>();
+        private final List<byte[]> values = new ArrayList<byte[]>();
+
+        private int add(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer number = numbers.get(value);
+            if (number == null) {
+                number = values.size();
+                values.add(value.getBytes(StandardCharsets.UTF_8));
+                numbers.put(value, number);
+            }
+            return number;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference between stored and current fingerprint of project resources.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class FingerprintDelta {
+
+    private final List<String> changedResources = new ArrayList<String>();
+    private final List<String> removedResources = new ArrayList<String>();
+    private boolean classpathChanged = false;
+
+    public FingerprintDelta(Map<String, String> storedFingerprint, Map<String, String> currentFingerprint) {
+        for (Map.Entry<String, String> entry : currentFingerprint.entrySet()) {
+            if (!entry.getValue().equals(storedFingerprint.get(entry.getKey()))) {
+                addChange(entry.getKey(), changedResources);
+            }
+        }
+        for (String resource : storedFingerprint.keySet()) {
+            if (!currentFingerprint.containsKey(resource)) {
+                addChange(resource, removedResources);
+            }
+        }
+    }
+
+    public List<String> getChangedResources() {
+        return Collections.unmodifiableList(changedResources);
+    }
+
+    public List<String> getRemovedResources() {
+        return Collections.unmodifiableList(removedResources);
+    }
+
+    public boolean isClasspathChanged() {
+        return classpathChanged;
+    }
+
+    public boolean isEmpty() {
+        return changedResources.isEmpty() && removedResources.isEmpty() && !classpathChanged;
+    }
+
+    public int size() {
+        return changedResources.size() + removedResources.size();
+    }
+
+    private void addChange(String resource, List<String> changes) {
+        if (resource.endsWith("/" + KdmModelCache.CLASSPATH_FILE)) {
+            classpathChanged = true;
+        } else {
+            changes.add(resource);
+        }
+    }
+}
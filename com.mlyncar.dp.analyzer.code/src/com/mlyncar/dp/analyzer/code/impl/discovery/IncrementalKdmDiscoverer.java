@@ -0,0 +1,141 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.modisco.infra.discovery.core.exception.DiscoveryException;
+import org.eclipse.modisco.java.discoverer.DiscoverKDMModelFromJavaProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+
+/**
+ * Rediscovers only compilation units changed since the last discovery and
+ * patches them into cached KDM model. Changed units are linked into hidden
+ * scratch project created by {@link ScratchProjectFactory}, so MoDisco
+ * discovers KDM of changed units only while references to the rest of the
+ * project are still resolved.
+ *
+ * Creating and deleting scratch project is visible in workspace as resource
+ * changes and may trigger automatic build of the scratch project, so
+ * incremental discovery is enabled only by configuration. Patching is
+ * verified against full rediscovery by KdmPatchVerification of benchmark
+ * source folder.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class IncrementalKdmDiscoverer {
+
+    private static final String SCRATCH_PROJECT_SUFFIX = ".kdm-increment";
+
+    private final KdmModelCache cache;
+    private final int maxChangedUnits;
+    private final ScratchProjectFactory scratchProjectFactory = new ScratchProjectFactory();
+    private final Logger logger = LoggerFactory.getLogger(IncrementalKdmDiscoverer.class);
+
+    public IncrementalKdmDiscoverer(KdmModelCache cache, int maxChangedUnits) {
+        this.cache = cache;
+        this.maxChangedUnits = maxChangedUnits;
+    }
+
+    /**
+     * @param project analyzed project
+     * @param fingerprint current fingerprint of project
+     * @param monitor progress monitor
+     * @return patched model or null if model can not be updated incrementally
+     */
+    public Resource discover(IJavaProject project, Map<String, String> fingerprint, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        Map<String, String> storedFingerprint = cache.loadFingerprint(project);
+        Map<String, List<String>> unitIndex = cache.loadUnitIndex(project);
+        if (storedFingerprint == null || unitIndex == null) {
+            logger.debug("Incremental discovery of project {} skipped, no previous discovery found", project.getElementName());
+            return null;
+        }
+        FingerprintDelta delta = new FingerprintDelta(storedFingerprint, fingerprint);
+        if (delta.isClasspathChanged() || delta.size() > maxChangedUnits) {
+            logger.debug("Incremental discovery of project {} skipped, {} units changed, classpath changed {}",
+                    project.getElementName(), delta.size(), delta.isClasspathChanged());
+            return null;
+        }
+        Resource retainedModel = cache.loadModel(project);
+        if (retainedModel == null) {
+            return null;
+        }
+
+        Set<String> replacedTypes = new LinkedHashSet<String>();
+        for (String unitPath : delta.getChangedResources()) {
+            addTypes(replacedTypes, unitIndex.get(unitPath));
+        }
+        for (String unitPath : delta.getRemovedResources()) {
+            addTypes(replacedTypes, unitIndex.remove(unitPath));
+        }
+        Map<String, List<String>> changedUnitIndex = cache.createUnitIndex(project, delta.getChangedResources());
+        Set<String> discoveredTypes = new LinkedHashSet<String>();
+        for (List<String> typeNames : changedUnitIndex.values()) {
+            discoveredTypes.addAll(typeNames);
+        }
+        replacedTypes.addAll(discoveredTypes);
+
+        KdmModelPatcher patcher = new KdmModelPatcher(retainedModel, project.getElementName());
+        if (discoveredTypes.isEmpty()) {
+            patcher.removeTypes(replacedTypes);
+        } else {
+            IProject scratchProject = scratchProjectFactory.getScratchProject(project, SCRATCH_PROJECT_SUFFIX);
+            try {
+                scratchProjectFactory.createScratchProject(scratchProject, project, delta.getChangedResources(), monitor);
+                Resource partialModel = discoverPartialModel(JavaCore.create(scratchProject), monitor);
+                if (partialModel == null || !patcher.patch(partialModel, scratchProject.getName(), replacedTypes, discoveredTypes)) {
+                    return null;
+                }
+            } catch (CoreException ex) {
+                logger.debug("Unable to create scratch project for incremental discovery of project {}", project.getElementName(), ex);
+                return null;
+            } finally {
+                scratchProjectFactory.deleteScratchProject(scratchProject);
+            }
+        }
+
+        try {
+            retainedModel.save(Collections.emptyMap());
+        } catch (IOException ex) {
+            logger.debug("Unable to store patched KDM model of project {}", project.getElementName(), ex);
+            return null;
+        }
+        unitIndex.putAll(changedUnitIndex);
+        cache.storeUnitIndex(project, unitIndex);
+        logger.debug("KDM model of project {} rediscovered incrementally from {} changed units", project.getElementName(), delta.size());
+        return retainedModel;
+    }
+
+    private Resource discoverPartialModel(IJavaProject scratchProject, IProgressMonitor monitor) {
+        DiscoverKDMModelFromJavaProject discoverer = new DiscoverKDMModelFromJavaProject();
+        try {
+            discoverer.discoverElement(scratchProject, monitor);
+            if (monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            return discoverer.getTargetModel();
+        } catch (DiscoveryException ex) {
+            logger.debug("Failed to create KDM model from changed compilation units of {}", scratchProject.getElementName(), ex);
+            return null;
+        }
+    }
+
+    private void addTypes(Set<String> types, List<String> typeNames) {
+        if (typeNames != null) {
+            types.addAll(typeNames);
+        }
+    }
+}
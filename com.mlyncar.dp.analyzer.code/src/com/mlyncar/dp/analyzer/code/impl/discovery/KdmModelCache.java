@@ -0,0 +1,250 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.Activator;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+
+/**
+ * On-disk cache of discovered KDM models. Every cached model is stored
+ * together with fingerprint of all project compilation units, cached model
+ * is valid only while the fingerprint matches current state of the project.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class KdmModelCache {
+
+    private static final String CACHE_VERSION_KEY = "kdm.cache.version";
+    private static final String CACHE_VERSION = "1";
+    public static final String CLASSPATH_FILE = ".classpath";
+
+    private final File cacheDirectory;
+    private final Logger logger = LoggerFactory.getLogger(KdmModelCache.class);
+
+    public KdmModelCache(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Creates cache located in the plugin state area of workspace metadata.
+     *
+     * @return cache instance or null if plugin is not running
+     */
+    public static KdmModelCache createWorkspaceCache() {
+        if (Activator.getDefault() == null) {
+            return null;
+        }
+        return new KdmModelCache(Activator.getDefault().getStateLocation().toFile());
+    }
+
+    public Map<String, String> createFingerprint(IJavaProject project) throws SourceCodeAnalyzerException {
+        Map<String, String> fingerprint = new HashMap<String, String>();
+        try {
+            for (IPackageFragmentRoot root : project.getPackageFragmentRoots()) {
+                if (root.getKind() != IPackageFragmentRoot.K_SOURCE) {
+                    continue;
+                }
+                for (IJavaElement element : root.getChildren()) {
+                    if (element instanceof IPackageFragment) {
+                        for (ICompilationUnit unit : ((IPackageFragment) element).getCompilationUnits()) {
+                            addResourceFingerprint(fingerprint, unit.getResource());
+                        }
+                    }
+                }
+            }
+        } catch (JavaModelException ex) {
+            throw new SourceCodeAnalyzerException("Unable to create fingerprint of project " + project.getElementName(), ex);
+        }
+        addResourceFingerprint(fingerprint, project.getProject().getFile(CLASSPATH_FILE));
+        logger.debug("Fingerprint of project {} created from {} resources", project.getElementName(), fingerprint.size());
+        return fingerprint;
+    }
+
+    public boolean isValid(IJavaProject project, Map<String, String> fingerprint) {
+        Map<String, String> storedFingerprint = loadFingerprint(project);
+        if (storedFingerprint == null || !getModelFile(project).exists()) {
+            logger.debug("KDM cache of project {} is empty", project.getElementName());
+            return false;
+        }
+        return storedFingerprint.equals(fingerprint);
+    }
+
+    public Map<String, String> loadFingerprint(IJavaProject project) {
+        File fingerprintFile = getFingerprintFile(project);
+        if (!fingerprintFile.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream stream = new FileInputStream(fingerprintFile)) {
+            properties.load(stream);
+        } catch (IOException ex) {
+            logger.debug("Unable to read KDM cache fingerprint {}", fingerprintFile.getAbsolutePath(), ex);
+            return null;
+        }
+        if (!CACHE_VERSION.equals(properties.remove(CACHE_VERSION_KEY))) {
+            return null;
+        }
+        Map<String, String> fingerprint = new HashMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            fingerprint.put(key, properties.getProperty(key));
+        }
+        return fingerprint;
+    }
+
+    public void storeFingerprint(IJavaProject project, Map<String, String> fingerprint) {
+        Properties properties = new Properties();
+        properties.putAll(fingerprint);
+        properties.setProperty(CACHE_VERSION_KEY, CACHE_VERSION);
+        try (OutputStream stream = new FileOutputStream(getFingerprintFile(project))) {
+            properties.store(stream, "KDM model fingerprint of project " + project.getElementName());
+        } catch (IOException ex) {
+            logger.error("Unable to store KDM cache fingerprint of project {}", project.getElementName(), ex);
+        }
+    }
+
+    /**
+     * Creates index of top level types declared by given compilation units.
+     * Index is needed to locate KDM subtrees of removed compilation units.
+     *
+     * @param project analyzed project
+     * @param unitPaths workspace paths of compilation units
+     * @return map of compilation unit path to fully qualified type names
+     */
+    public Map<String, List<String>> createUnitIndex(IJavaProject project, Collection<String> unitPaths) throws SourceCodeAnalyzerException {
+        Map<String, List<String>> unitIndex = new HashMap<String, List<String>>();
+        IWorkspaceRoot root = project.getProject().getWorkspace().getRoot();
+        try {
+            for (String unitPath : unitPaths) {
+                IJavaElement element = JavaCore.create(root.getFile(new Path(unitPath)));
+                if (!(element instanceof ICompilationUnit)) {
+                    continue;
+                }
+                List<String> typeNames = new ArrayList<String>();
+                for (IType type : ((ICompilationUnit) element).getTypes()) {
+                    typeNames.add(type.getFullyQualifiedName());
+                }
+                unitIndex.put(unitPath, typeNames);
+            }
+        } catch (JavaModelException ex) {
+            throw new SourceCodeAnalyzerException("Unable to create compilation unit index of project " + project.getElementName(), ex);
+        }
+        return unitIndex;
+    }
+
+    public Map<String, List<String>> loadUnitIndex(IJavaProject project) {
+        File unitIndexFile = getUnitIndexFile(project);
+        if (!unitIndexFile.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream stream = new FileInputStream(unitIndexFile)) {
+            properties.load(stream);
+        } catch (IOException ex) {
+            logger.debug("Unable to read KDM cache unit index {}", unitIndexFile.getAbsolutePath(), ex);
+            return null;
+        }
+        Map<String, List<String>> unitIndex = new HashMap<String, List<String>>();
+        for (String key : properties.stringPropertyNames()) {
+            List<String> typeNames = new ArrayList<String>();
+            for (String typeName : properties.getProperty(key).split(",")) {
+                if (!typeName.isEmpty()) {
+                    typeNames.add(typeName);
+                }
+            }
+            unitIndex.put(key, typeNames);
+        }
+        return unitIndex;
+    }
+
+    public void storeUnitIndex(IJavaProject project, Map<String, List<String>> unitIndex) {
+        Properties properties = new Properties();
+        for (Map.Entry<String, List<String>> entry : unitIndex.entrySet()) {
+            properties.setProperty(entry.getKey(), String.join(",", entry.getValue()));
+        }
+        try (OutputStream stream = new FileOutputStream(getUnitIndexFile(project))) {
+            properties.store(stream, "Compilation units of project " + project.getElementName());
+        } catch (IOException ex) {
+            logger.error("Unable to store KDM cache unit index of project {}", project.getElementName(), ex);
+        }
+    }
+
+    public Resource loadModel(IJavaProject project) {
+        ResourceSet set = new ResourceSetImpl();
+        set.getResourceFactoryRegistry().getExtensionToFactoryMap()
+                .put(Resource.Factory.Registry.DEFAULT_EXTENSION, new XMIResourceFactoryImpl());
+        try {
+            Resource resource = set.getResource(getModelUri(project), true);
+            logger.debug("KDM model of project {} loaded from cache", project.getElementName());
+            return resource;
+        } catch (RuntimeException ex) {
+            logger.debug("Unable to load cached KDM model of project {}", project.getElementName(), ex);
+            return null;
+        }
+    }
+
+    public void invalidate(IJavaProject project) {
+        getFingerprintFile(project).delete();
+        getUnitIndexFile(project).delete();
+        getCallGraphFile(project).delete();
+    }
+
+    public URI getModelUri(IJavaProject project) {
+        return URI.createFileURI(getModelFile(project).getAbsolutePath());
+    }
+
+    /**
+     * @return file of call graph index stored next to cached model
+     */
+    public File getCallGraphFile(IJavaProject project) {
+        return new File(cacheDirectory, project.getElementName() + ".callgraph");
+    }
+
+    private File getModelFile(IJavaProject project) {
+        return new File(cacheDirectory, project.getElementName() + ".kdm.xmi");
+    }
+
+    private File getFingerprintFile(IJavaProject project) {
+        return new File(cacheDirectory, project.getElementName() + ".fingerprint");
+    }
+
+    private File getUnitIndexFile(IJavaProject project) {
+        return new File(cacheDirectory, project.getElementName() + ".units");
+    }
+
+    private void addResourceFingerprint(Map<String, String> fingerprint, IResource resource) {
+        if (resource == null || !resource.exists() || resource.getLocation() == null) {
+            return;
+        }
+        fingerprint.put(resource.getFullPath().toString(), resource.getLocalTimeStamp() + ":" + resource.getLocation().toFile().length());
+    }
+}
@@ -0,0 +1,634 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.gmt.modisco.omg.kdm.code.AbstractCodeElement;
+import org.eclipse.gmt.modisco.omg.kdm.code.ClassUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.CodeFactory;
+import org.eclipse.gmt.modisco.omg.kdm.code.CodeItem;
+import org.eclipse.gmt.modisco.omg.kdm.code.CodeModel;
+import org.eclipse.gmt.modisco.omg.kdm.code.Datatype;
+import org.eclipse.gmt.modisco.omg.kdm.code.EnumeratedType;
+import org.eclipse.gmt.modisco.omg.kdm.code.InterfaceUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.MemberUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.MethodUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.Package;
+import org.eclipse.gmt.modisco.omg.kdm.code.ParameterKind;
+import org.eclipse.gmt.modisco.omg.kdm.code.ParameterUnit;
+import org.eclipse.gmt.modisco.omg.kdm.code.PrimitiveType;
+import org.eclipse.gmt.modisco.omg.kdm.code.Signature;
+import org.eclipse.gmt.modisco.omg.kdm.code.StorableUnit;
+import org.eclipse.gmt.modisco.omg.kdm.core.KDMEntity;
+import org.eclipse.gmt.modisco.omg.kdm.kdm.KDMFramework;
+import org.eclipse.gmt.modisco.omg.kdm.kdm.KDMModel;
+import org.eclipse.gmt.modisco.omg.kdm.kdm.Segment;
+import org.eclipse.gmt.modisco.omg.kdm.source.InventoryModel;
+import org.eclipse.gmt.modisco.omg.kdm.source.SourceFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Patches type subtrees discovered from changed compilation units into
+ * retained KDM model. Replaced types are removed from retained model and all
+ * references pointing to them or to elements of partial model are redirected
+ * to matching elements of retained model. Elements are matched by qualified
+ * name, methods additionally by parameter types, primitive types by their
+ * name and source files by their path. Referenced elements without such key
+ * are matched by path of names from model root, elements without any match
+ * are moved into retained model.
+ *
+ * Patcher also merges models discovered from separate partitions of the
+ * project into retained model, see {@link ParallelKdmDiscoverer}.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class KdmModelPatcher {
+
+    private final Resource retainedModel;
+    private final String projectName;
+    private final Logger logger = LoggerFactory.getLogger(KdmModelPatcher.class);
+
+    public KdmModelPatcher(Resource retainedModel, String projectName) {
+        this.retainedModel = retainedModel;
+        this.projectName = projectName;
+    }
+
+    /**
+     * @param partialModel KDM model discovered from changed compilation units
+     * @param partialProjectName name of project partial model was discovered from
+     * @param replacedTypes qualified names of types declared by changed and removed compilation units
+     * @param discoveredTypes qualified names of types declared by changed compilation units
+     * @return true if model was patched, false if some reference could not be
+     * resolved and full discovery is required
+     */
+    public boolean patch(Resource partialModel, String partialProjectName, Collection<String> replacedTypes, Collection<String> discoveredTypes) {
+        CodeModel sourceModel = findCodeModel(retainedModel, projectName);
+        CodeModel partialSourceModel = findCodeModel(partialModel, partialProjectName);
+        if (sourceModel == null || partialSourceModel == null) {
+            logger.debug("Unable to locate source code model of project {}", projectName);
+            return false;
+        }
+
+        List<AbstractCodeElement> removedTypes = new ArrayList<AbstractCodeElement>();
+        for (String typeName : replacedTypes) {
+            AbstractCodeElement type = findType(sourceModel, typeName);
+            if (type != null) {
+                removedTypes.add(type);
+            }
+        }
+        List<AbstractCodeElement> addedTypes = new ArrayList<AbstractCodeElement>();
+        for (String typeName : discoveredTypes) {
+            AbstractCodeElement type = findType(partialSourceModel, typeName);
+            if (type == null) {
+                logger.debug("Type {} not found in partial KDM model", typeName);
+                return false;
+            }
+            addedTypes.add(type);
+        }
+
+        Map<EObject, Collection<EStructuralFeature.Setting>> removedUsages = EcoreUtil.UsageCrossReferencer.findAll(collectContents(removedTypes), retainedModel);
+
+        for (AbstractCodeElement type : removedTypes) {
+            EcoreUtil.remove(type);
+        }
+        for (AbstractCodeElement type : addedTypes) {
+            String packageName = getPackageName(type);
+            getOrCreatePackage(sourceModel, packageName).add(type);
+        }
+
+        Map<String, EObject> elementIndex = createElementIndex(retainedModel);
+        int redirected = redirectRemovedReferences(removedUsages, elementIndex);
+        int resolved = resolvePartialReferences(new ArrayList<EObject>(addedTypes), partialModel, elementIndex);
+        if (resolved < 0) {
+            return false;
+        }
+        logger.debug("KDM model of project {} patched, {} types replaced by {} types, {} references redirected",
+                projectName, removedTypes.size(), addedTypes.size(), redirected + resolved);
+        return true;
+    }
+
+    /**
+     * Removes types of deleted compilation units from retained model.
+     *
+     * @param removedTypes qualified names of removed types
+     */
+    public void removeTypes(Collection<String> removedTypes) {
+        CodeModel sourceModel = findCodeModel(retainedModel, projectName);
+        if (sourceModel == null) {
+            return;
+        }
+        for (String typeName : removedTypes) {
+            AbstractCodeElement type = findType(sourceModel, typeName);
+            if (type != null) {
+                EcoreUtil.remove(type);
+            }
+        }
+    }
+
+    /**
+     * Moves all types of model discovered from another partition of the
+     * project into retained model. References of moved types to elements left
+     * in partial model are redirected to matching elements of retained model,
+     * elements without match are moved into retained model together with
+     * their missing containers.
+     *
+     * @param partialModel KDM model discovered from partition of the project
+     * @param partialProjectName name of project partial model was discovered from
+     * @return true if model was merged, false if some referenced element could
+     * not be placed into retained model
+     */
+    public boolean merge(Resource partialModel, String partialProjectName) {
+        CodeModel sourceModel = findCodeModel(retainedModel, projectName);
+        CodeModel partialSourceModel = findCodeModel(partialModel, partialProjectName);
+        if (sourceModel == null || partialSourceModel == null) {
+            logger.debug("Unable to locate source code model of project {}", partialProjectName);
+            return false;
+        }
+        List<EObject> movedElements = new ArrayList<EObject>();
+        for (AbstractCodeElement type : collectTypes(partialSourceModel)) {
+            getOrCreatePackage(sourceModel, getPackageName(type)).add(type);
+            movedElements.add(type);
+        }
+        int mergedTypes = movedElements.size();
+        int redirected = resolvePartialReferences(movedElements, partialModel, createElementIndex(retainedModel));
+        if (redirected < 0) {
+            return false;
+        }
+        logger.debug("KDM model of {} merged into {}, {} types added, {} references redirected",
+                partialProjectName, projectName, mergedTypes, redirected);
+        return true;
+    }
+
+    /**
+     * Redirects references of elements moved from partial model to elements
+     * left in partial model. Target is matched by its key first and by its
+     * path then, target without match is moved into retained model and
+     * references of moved element are resolved as well.
+     *
+     * @param movedElements elements already moved into retained model
+     * @return number of redirected references or -1 if some element could
+     * not be placed into retained model
+     */
+    private int resolvePartialReferences(List<EObject> movedElements, Resource partialModel, Map<String, EObject> elementIndex) {
+        Map<String, EObject> pathIndex = new HashMap<String, EObject>();
+        Iterator<EObject> it = retainedModel.getAllContents();
+        while (it.hasNext()) {
+            addElementPath(pathIndex, it.next());
+        }
+        int redirected = 0;
+        while (!movedElements.isEmpty()) {
+            Map<EObject, Collection<EStructuralFeature.Setting>> references = EcoreUtil.CrossReferencer.find(movedElements);
+            movedElements = new ArrayList<EObject>();
+            for (Map.Entry<EObject, Collection<EStructuralFeature.Setting>> entry : references.entrySet()) {
+                EObject target = entry.getKey();
+                if (target.eResource() != partialModel) {
+                    continue;
+                }
+                String key = getElementKey(target);
+                EObject replacement = key == null ? null : elementIndex.get(key);
+                if (replacement == null) {
+                    String path = getElementPath(target);
+                    replacement = path == null ? null : pathIndex.get(path);
+                }
+                if (replacement == null) {
+                    EObject adoptedElement = adopt(target, pathIndex);
+                    if (adoptedElement == null) {
+                        logger.debug("Unable to place element {} of partial KDM model into retained model", target);
+                        return -1;
+                    }
+                    movedElements.add(adoptedElement);
+                    indexAdoptedElement(adoptedElement, elementIndex, pathIndex);
+                    continue;
+                }
+                for (EStructuralFeature.Setting setting : entry.getValue()) {
+                    EcoreUtil.replace(setting, target, replacement);
+                    redirected++;
+                }
+            }
+        }
+        return redirected;
+    }
+
+    /**
+     * Redirects references to external types which are declared in source
+     * code model and removes the external duplicates. Partitions discovered
+     * separately see types of other partitions as external types.
+     *
+     * @return number of redirected references
+     */
+    public int resolveExternalReferences() {
+        CodeModel sourceModel = findCodeModel(retainedModel, projectName);
+        if (sourceModel == null) {
+            return 0;
+        }
+        Map<String, EObject> sourceIndex = new HashMap<String, EObject>();
+        Iterator<EObject> it = sourceModel.eAllContents();
+        while (it.hasNext()) {
+            EObject next = it.next();
+            String key = getElementKey(next);
+            if (key != null && !sourceIndex.containsKey(key)) {
+                sourceIndex.put(key, next);
+            }
+        }
+
+        int redirected = 0;
+        Set<EObject> referencedContainers = new HashSet<EObject>();
+        Map<EObject, Collection<EStructuralFeature.Setting>> references = EcoreUtil.CrossReferencer.find(retainedModel.getContents());
+        for (Map.Entry<EObject, Collection<EStructuralFeature.Setting>> entry : references.entrySet()) {
+            EObject target = entry.getKey();
+            if (EcoreUtil.isAncestor(sourceModel, target)) {
+                continue;
+            }
+            String key = getElementKey(target);
+            EObject replacement = key == null ? null : sourceIndex.get(key);
+            if (replacement == null) {
+                for (EObject container = target; container != null; container = container.eContainer()) {
+                    referencedContainers.add(container);
+                }
+                continue;
+            }
+            for (EStructuralFeature.Setting setting : entry.getValue()) {
+                EcoreUtil.replace(setting, target, replacement);
+                redirected++;
+            }
+        }
+
+        List<EObject> duplicateTypes = new ArrayList<EObject>();
+        for (CodeModel codeModel : getCodeModels(retainedModel)) {
+            if (codeModel == sourceModel) {
+                continue;
+            }
+            Iterator<EObject> contents = codeModel.eAllContents();
+            while (contents.hasNext()) {
+                EObject next = contents.next();
+                if (isType(next)) {
+                    if (sourceIndex.containsKey(getElementKey(next)) && !referencedContainers.contains(next)) {
+                        duplicateTypes.add(next);
+                    }
+                    contents.prune();
+                }
+            }
+        }
+        for (EObject type : duplicateTypes) {
+            EcoreUtil.remove(type);
+        }
+        logger.debug("{} references to external types of project {} redirected, {} external types removed",
+                redirected, projectName, duplicateTypes.size());
+        return redirected;
+    }
+
+    /**
+     * @param name new name of source code model
+     */
+    public void renameSourceModel(String name) {
+        CodeModel sourceModel = findCodeModel(retainedModel, projectName);
+        if (sourceModel != null) {
+            sourceModel.setName(name);
+        }
+    }
+
+    /**
+     * Moves the outermost container of the element which is missing in
+     * retained model into its matching container in retained model. Source
+     * file whose directory is missing, e.g. file of new compilation unit
+     * linked into scratch project, is moved directly into inventory model.
+     *
+     * @return moved element or null if no container matches
+     */
+    @SuppressWarnings("unchecked")
+    private EObject adopt(EObject element, Map<String, EObject> pathIndex) {
+        if (element instanceof SourceFile) {
+            String containerPath = getElementPath(element.eContainer());
+            InventoryModel inventoryModel = findInventoryModel(retainedModel);
+            if ((containerPath == null || !pathIndex.containsKey(containerPath)) && inventoryModel != null) {
+                inventoryModel.getInventoryElement().add((SourceFile) element);
+                return element;
+            }
+        }
+        EObject adoptedElement = element;
+        while (adoptedElement.eContainer() != null) {
+            String containerPath = getElementPath(adoptedElement.eContainer());
+            EObject container = containerPath == null ? null : pathIndex.get(containerPath);
+            if (container != null) {
+                EStructuralFeature feature = adoptedElement.eContainmentFeature();
+                if (!feature.isMany()) {
+                    return null;
+                }
+                ((List<EObject>) container.eGet(feature)).add(adoptedElement);
+                return adoptedElement;
+            }
+            adoptedElement = adoptedElement.eContainer();
+        }
+        return null;
+    }
+
+    private void indexAdoptedElement(EObject adoptedElement, Map<String, EObject> elementIndex, Map<String, EObject> pathIndex) {
+        List<EObject> contents = new ArrayList<EObject>();
+        contents.add(adoptedElement);
+        Iterator<EObject> it = adoptedElement.eAllContents();
+        while (it.hasNext()) {
+            contents.add(it.next());
+        }
+        for (EObject element : contents) {
+            String key = getElementKey(element);
+            if (key != null && !elementIndex.containsKey(key)) {
+                elementIndex.put(key, element);
+            }
+            addElementPath(pathIndex, element);
+        }
+    }
+
+    private void addElementPath(Map<String, EObject> pathIndex, EObject element) {
+        String path = getElementPath(element);
+        if (path != null && !pathIndex.containsKey(path)) {
+            pathIndex.put(path, element);
+        }
+    }
+
+    /**
+     * @return path of element names from resource root or null if some
+     * element on the path has no name
+     */
+    private String getElementPath(EObject element) {
+        StringBuilder path = new StringBuilder();
+        for (EObject current = element; current != null; current = current.eContainer()) {
+            String name;
+            if (current.eContainer() == null) {
+                name = String.valueOf(current.eResource().getContents().indexOf(current));
+            } else if (current instanceof MethodUnit) {
+                name = getSegmentName(current);
+            } else if (current instanceof KDMEntity) {
+                name = ((KDMEntity) current).getName();
+            } else if (current instanceof KDMFramework) {
+                name = ((KDMFramework) current).getName();
+            } else {
+                return null;
+            }
+            path.insert(0, "/" + current.eClass().getName() + ":" + name);
+        }
+        return path.toString();
+    }
+
+    private List<AbstractCodeElement> collectTypes(CodeModel codeModel) {
+        List<AbstractCodeElement> types = new ArrayList<AbstractCodeElement>();
+        Iterator<EObject> it = codeModel.eAllContents();
+        while (it.hasNext()) {
+            EObject next = it.next();
+            if (isType(next)) {
+                types.add((AbstractCodeElement) next);
+                it.prune();
+            } else if (!(next instanceof Package)) {
+                it.prune();
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Redirects references of retained model pointing to elements of
+     * replaced types to their replacements.
+     *
+     * @return number of redirected references
+     */
+    private int redirectRemovedReferences(Map<EObject, Collection<EStructuralFeature.Setting>> references, Map<String, EObject> elementIndex) {
+        int redirected = 0;
+        for (Map.Entry<EObject, Collection<EStructuralFeature.Setting>> entry : references.entrySet()) {
+            EObject target = entry.getKey();
+            String key = getElementKey(target);
+            EObject replacement = key == null ? null : elementIndex.get(key);
+            if (replacement == null) {
+                // target was removed together with its compilation unit, referencing unit has changed too
+                continue;
+            }
+            for (EStructuralFeature.Setting setting : entry.getValue()) {
+                if (setting.getEObject().eResource() != retainedModel) {
+                    continue;
+                }
+                EcoreUtil.replace(setting, target, replacement);
+                redirected++;
+            }
+        }
+        return redirected;
+    }
+
+    /**
+     * Elements of source code model take precedence over external elements
+     * of the same key.
+     */
+    private Map<String, EObject> createElementIndex(Resource resource) {
+        Map<String, EObject> index = new HashMap<String, EObject>();
+        List<KDMModel> models = new ArrayList<KDMModel>();
+        CodeModel sourceModel = findCodeModel(resource, projectName);
+        models.add(sourceModel);
+        for (KDMModel model : getModels(resource)) {
+            if (model != sourceModel) {
+                models.add(model);
+            }
+        }
+        for (KDMModel model : models) {
+            Iterator<EObject> it = model.eAllContents();
+            while (it.hasNext()) {
+                EObject next = it.next();
+                String key = getElementKey(next);
+                if (key != null && !index.containsKey(key)) {
+                    index.put(key, next);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return key of element which is equal for elements of different models
+     * discovered from the same code, null if element has no such key
+     */
+    private String getElementKey(EObject element) {
+        if (element instanceof PrimitiveType) {
+            return "primitive:" + ((PrimitiveType) element).getName();
+        }
+        if (element instanceof SourceFile) {
+            String path = ((SourceFile) element).getPath();
+            return path == null ? null : "file:" + path;
+        }
+        if (element instanceof Package) {
+            String packageName = getPackageName(element);
+            return "package:" + (packageName.isEmpty() ? "" : packageName + ".") + ((Package) element).getName();
+        }
+        if (!isIndexed(element)) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(getSegmentName(element));
+        EObject container = element.eContainer();
+        while (container != null && !(container instanceof CodeModel)) {
+            if (!isIndexed(container) && !(container instanceof Package)) {
+                return null;
+            }
+            key.insert(0, getSegmentName(container) + (container instanceof Package ? "." : "/"));
+            container = container.eContainer();
+        }
+        return key.toString();
+    }
+
+    private boolean isIndexed(EObject element) {
+        return isType(element) || element instanceof MethodUnit
+                || element instanceof StorableUnit || element instanceof MemberUnit;
+    }
+
+    private String getSegmentName(EObject element) {
+        String name = ((CodeItem) element).getName();
+        if (!(element instanceof MethodUnit)) {
+            return name;
+        }
+        StringBuilder segment = new StringBuilder(name).append("(");
+        Datatype type = ((MethodUnit) element).getType();
+        if (type instanceof Signature) {
+            boolean first = true;
+            for (ParameterUnit parameter : ((Signature) type).getParameterUnit()) {
+                if (parameter.getKind() == ParameterKind.RETURN) {
+                    continue;
+                }
+                if (!first) {
+                    segment.append(",");
+                }
+                segment.append(parameter.getType() == null ? "?" : parameter.getType().getName());
+                first = false;
+            }
+        }
+        return segment.append(")").toString();
+    }
+
+    private AbstractCodeElement findType(CodeModel codeModel, String qualifiedName) {
+        int separator = qualifiedName.lastIndexOf('.');
+        EList<AbstractCodeElement> elements = separator < 0 ? codeModel.getCodeElement()
+                : findPackageElements(codeModel, qualifiedName.substring(0, separator));
+        if (elements == null) {
+            return null;
+        }
+        String typeName = qualifiedName.substring(separator + 1);
+        for (AbstractCodeElement element : elements) {
+            if (isType(element) && typeName.equals(element.getName())) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private EList<AbstractCodeElement> findPackageElements(CodeModel codeModel, String packageName) {
+        EList<AbstractCodeElement> elements = codeModel.getCodeElement();
+        for (String segment : packageName.split("\\.")) {
+            Package pckage = findPackage(elements, segment);
+            if (pckage == null) {
+                return null;
+            }
+            elements = pckage.getCodeElement();
+        }
+        return elements;
+    }
+
+    private EList<AbstractCodeElement> getOrCreatePackage(CodeModel codeModel, String packageName) {
+        EList<AbstractCodeElement> elements = codeModel.getCodeElement();
+        if (packageName.isEmpty()) {
+            return elements;
+        }
+        for (String segment : packageName.split("\\.")) {
+            Package pckage = findPackage(elements, segment);
+            if (pckage == null) {
+                pckage = CodeFactory.eINSTANCE.createPackage();
+                pckage.setName(segment);
+                elements.add(pckage);
+            }
+            elements = pckage.getCodeElement();
+        }
+        return elements;
+    }
+
+    private Package findPackage(EList<AbstractCodeElement> elements, String name) {
+        for (AbstractCodeElement element : elements) {
+            if (element instanceof Package && name.equals(element.getName())) {
+                return (Package) element;
+            }
+        }
+        return null;
+    }
+
+    private String getPackageName(EObject type) {
+        String packageName = "";
+        EObject container = type.eContainer();
+        while (container instanceof Package) {
+            String name = ((Package) container).getName();
+            packageName = packageName.isEmpty() ? name : name + "." + packageName;
+            container = container.eContainer();
+        }
+        return packageName;
+    }
+
+    private boolean isType(EObject element) {
+        return element instanceof ClassUnit || element instanceof InterfaceUnit || element instanceof EnumeratedType;
+    }
+
+    private List<EObject> collectContents(List<AbstractCodeElement> types) {
+        List<EObject> contents = new ArrayList<EObject>();
+        for (AbstractCodeElement type : types) {
+            contents.add(type);
+            Iterator<EObject> it = type.eAllContents();
+            while (it.hasNext()) {
+                EObject next = it.next();
+                if (isIndexed(next)) {
+                    contents.add(next);
+                }
+            }
+        }
+        return contents;
+    }
+
+    private CodeModel findCodeModel(Resource resource, String name) {
+        List<CodeModel> codeModels = getCodeModels(resource);
+        for (CodeModel codeModel : codeModels) {
+            if (name.equals(codeModel.getName())) {
+                return codeModel;
+            }
+        }
+        return codeModels.isEmpty() ? null : codeModels.get(0);
+    }
+
+    private List<CodeModel> getCodeModels(Resource resource) {
+        List<CodeModel> codeModels = new ArrayList<CodeModel>();
+        for (KDMModel model : getModels(resource)) {
+            if (model instanceof CodeModel) {
+                codeModels.add((CodeModel) model);
+            }
+        }
+        return codeModels;
+    }
+
+    private InventoryModel findInventoryModel(Resource resource) {
+        for (KDMModel model : getModels(resource)) {
+            if (model instanceof InventoryModel) {
+                return (InventoryModel) model;
+            }
+        }
+        return null;
+    }
+
+    private List<KDMModel> getModels(Resource resource) {
+        List<KDMModel> models = new ArrayList<KDMModel>();
+        for (EObject root : resource.getContents()) {
+            if (root instanceof Segment) {
+                models.addAll(((Segment) root).getModel());
+            }
+        }
+        return models;
+    }
+}
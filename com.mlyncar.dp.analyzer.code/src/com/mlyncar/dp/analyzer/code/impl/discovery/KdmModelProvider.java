@@ -0,0 +1,125 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.modisco.infra.discovery.core.exception.DiscoveryException;
+import org.eclipse.modisco.java.discoverer.DiscoverKDMModelFromJavaProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.CallGraph;
+import com.mlyncar.dp.analyzer.code.impl.KdmCallGraph;
+import com.mlyncar.dp.analyzer.code.impl.KdmClassHierarchy;
+import com.mlyncar.dp.analyzer.code.impl.KdmSymbolIndex;
+import com.mlyncar.dp.analyzer.code.impl.KdmVariableResolver;
+
+/**
+ * Provides KDM model of java project. Model is discovered by MoDisco and
+ * reused from {@link KdmModelCache} when project sources did not change since
+ * the last discovery. Small changes are patched into cached model by
+ * {@link IncrementalKdmDiscoverer}. Call graph of the model is stored next to
+ * cached model and mapped into memory while the sources do not change, so
+ * the model is not loaded at all when only call graph is needed.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class KdmModelProvider {
+
+    private final CodeAnalyzerConfiguration configuration;
+    private final KdmModelCache cache;
+    private final CallGraphStore callGraphStore = new CallGraphStore();
+    private final Logger logger = LoggerFactory.getLogger(KdmModelProvider.class);
+
+    public KdmModelProvider(CodeAnalyzerConfiguration configuration) {
+        this.configuration = configuration;
+        this.cache = KdmModelCache.createWorkspaceCache();
+    }
+
+    public Resource getKdmModel(IJavaProject project, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        if (!configuration.isKdmCacheEnabled() || cache == null) {
+            return discoverKdmModel(project, null, monitor);
+        }
+        return getKdmModel(project, cache.createFingerprint(project), monitor);
+    }
+
+    public CallGraph getCallGraph(IJavaProject project, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        if (!configuration.isKdmCacheEnabled() || cache == null) {
+            return createCallGraph(discoverKdmModel(project, null, monitor));
+        }
+        Map<String, String> fingerprint = cache.createFingerprint(project);
+        byte[] key = CallGraphStore.createKey(fingerprint, configuration.getPreferredImplementations());
+        CallGraph storedGraph = callGraphStore.open(cache.getCallGraphFile(project), key);
+        if (storedGraph != null) {
+            return storedGraph;
+        }
+        CallGraph callGraph = createCallGraph(getKdmModel(project, fingerprint, monitor));
+        callGraphStore.store(callGraph, cache.getCallGraphFile(project), key);
+        return callGraph;
+    }
+
+    private CallGraph createCallGraph(Resource kdmResource) throws SourceCodeAnalyzerException {
+        EcoreUtil.resolveAll(kdmResource);
+        KdmSymbolIndex symbolIndex = new KdmSymbolIndex(kdmResource);
+        return new KdmCallGraph(symbolIndex, new KdmClassHierarchy(symbolIndex, configuration.getPreferredImplementations()), new KdmVariableResolver());
+    }
+
+    private Resource getKdmModel(IJavaProject project, Map<String, String> fingerprint, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        if (cache.isValid(project, fingerprint)) {
+            Resource cachedModel = cache.loadModel(project);
+            if (cachedModel != null) {
+                return cachedModel;
+            }
+        }
+        if (configuration.isKdmIncrementalEnabled()) {
+            IncrementalKdmDiscoverer incrementalDiscoverer = new IncrementalKdmDiscoverer(cache, configuration.getKdmIncrementalMaxUnits());
+            Resource patchedModel = incrementalDiscoverer.discover(project, fingerprint, monitor);
+            if (patchedModel != null) {
+                cache.storeFingerprint(project, fingerprint);
+                return patchedModel;
+            }
+        }
+        cache.invalidate(project);
+        Resource kdmResource = discoverKdmModel(project, cache.getModelUri(project), monitor);
+        cache.storeFingerprint(project, fingerprint);
+        if (configuration.isKdmIncrementalEnabled()) {
+            cache.storeUnitIndex(project, cache.createUnitIndex(project, fingerprint.keySet()));
+        }
+        return kdmResource;
+    }
+
+    private Resource discoverKdmModel(IJavaProject project, URI targetUri, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        if (configuration.isKdmParallelEnabled()) {
+            Resource mergedModel = new ParallelKdmDiscoverer(configuration.getParallelism()).discover(project, targetUri, monitor);
+            if (mergedModel != null) {
+                return mergedModel;
+            }
+            if (monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+        }
+        logger.debug("Discovering KDM model of project {}", project.getElementName());
+        DiscoverKDMModelFromJavaProject discoverer = new DiscoverKDMModelFromJavaProject();
+        discoverer.setSerializeTarget(true);
+        if (targetUri != null) {
+            discoverer.setTargetURI(targetUri);
+        }
+        try {
+            discoverer.discoverElement(project, monitor);
+            if (monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            return discoverer.getTargetModel();
+        } catch (DiscoveryException ex) {
+            throw new SourceCodeAnalyzerException(
+                    "Failed to create KDM file from project", ex);
+        }
+    }
+}
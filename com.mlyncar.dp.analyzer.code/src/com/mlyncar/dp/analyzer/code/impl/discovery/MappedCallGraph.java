@@ -0,0 +1,181 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.CallGraph;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.CombFragmentType;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentImpl;
+
+/**
+ * Call graph read directly from buffer of stored call graph index, layout of
+ * the buffer is described by {@link CallGraphStore}. Only strings are decoded
+ * from the buffer, each of them once when it is first requested.
+ *
+ * Buffer is never modified and graph can be shared by extractions running in
+ * parallel.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class MappedCallGraph implements CallGraph {
+
+    private final ByteBuffer buffer;
+    private final int methodCount;
+    private final int projectMethodCount;
+    private final int mainMethod;
+    private final int methodsPosition;
+    private final int callOffsetsPosition;
+    private final int callsPosition;
+    private final int fragmentOffsetsPosition;
+    private final int fragmentsPosition;
+    private final int stringOffsetsPosition;
+    private final int stringsPosition;
+    private final String[] strings;
+
+    /**
+     * @param buffer buffer of index with valid header
+     */
+    MappedCallGraph(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.methodCount = buffer.getInt(CallGraphStore.METHOD_COUNT_POSITION);
+        this.projectMethodCount = buffer.getInt(CallGraphStore.METHOD_COUNT_POSITION + 4);
+        this.mainMethod = buffer.getInt(CallGraphStore.METHOD_COUNT_POSITION + 8);
+        int callCount = buffer.getInt(CallGraphStore.METHOD_COUNT_POSITION + 12);
+        int fragmentCount = buffer.getInt(CallGraphStore.METHOD_COUNT_POSITION + 16);
+        int stringCount = buffer.getInt(CallGraphStore.METHOD_COUNT_POSITION + 20);
+        this.methodsPosition = CallGraphStore.HEADER_SIZE;
+        this.callOffsetsPosition = methodsPosition + methodCount * CallGraphStore.METHOD_SIZE;
+        this.callsPosition = callOffsetsPosition + (methodCount + 1) * 4;
+        this.fragmentOffsetsPosition = callsPosition + callCount * CallGraphStore.CALL_SIZE;
+        this.fragmentsPosition = fragmentOffsetsPosition + (callCount + 1) * 4;
+        this.stringOffsetsPosition = fragmentsPosition + fragmentCount * CallGraphStore.FRAGMENT_SIZE;
+        this.stringsPosition = stringOffsetsPosition + (stringCount + 1) * 4;
+        this.strings = new String[stringCount];
+    }
+
+    @Override
+    public int getMethodCount() {
+        return methodCount;
+    }
+
+    @Override
+    public int getProjectMethodCount() {
+        return projectMethodCount;
+    }
+
+    @Override
+    public int getMainMethod() throws MainMethodNotFoundException {
+        if (mainMethod < 0) {
+            throw new MainMethodNotFoundException("Unable to find main method in call graph index");
+        }
+        return mainMethod;
+    }
+
+    @Override
+    public String getMethodName(int method) {
+        return getString(getMethodField(method, 0));
+    }
+
+    @Override
+    public String getClassName(int method) {
+        return getString(getMethodField(method, 1));
+    }
+
+    @Override
+    public String getPackageName(int method) {
+        return getString(getMethodField(method, 2));
+    }
+
+    @Override
+    public String getQualifiedName(int method) {
+        return getString(getMethodField(method, 3));
+    }
+
+    @Override
+    public boolean isClassMethod(int method) {
+        return (getMethodField(method, 4) & CallGraphStore.CLASS_METHOD) != 0;
+    }
+
+    @Override
+    public boolean hasCodeElements(int method) {
+        return (getMethodField(method, 4) & CallGraphStore.CODE_ELEMENTS) != 0;
+    }
+
+    @Override
+    public int getFirstCall(int method) throws SourceCodeAnalyzerException {
+        int failure = getMethodField(method, 5);
+        if (failure >= 0) {
+            throw new SourceCodeAnalyzerException(getString(failure));
+        }
+        return buffer.getInt(callOffsetsPosition + method * 4);
+    }
+
+    @Override
+    public int getCallEnd(int method) {
+        return buffer.getInt(callOffsetsPosition + (method + 1) * 4);
+    }
+
+    @Override
+    public int getCallTarget(int call) {
+        return buffer.getInt(callsPosition + call * CallGraphStore.CALL_SIZE);
+    }
+
+    @Override
+    public boolean isSelfCall(int call) {
+        return (getCallFlags(call) & CallGraphStore.SELF_CALL) != 0;
+    }
+
+    @Override
+    public boolean isInstanceCreation(int call) {
+        return (getCallFlags(call) & CallGraphStore.INSTANCE_CREATION) != 0;
+    }
+
+    @Override
+    public String getVariableName(int call) {
+        int variable = buffer.getInt(callsPosition + call * CallGraphStore.CALL_SIZE + 4);
+        return getString(variable);
+    }
+
+    @Override
+    public List<CombFragment> getCombinedFragments(int call) {
+        int firstFragment = buffer.getInt(fragmentOffsetsPosition + call * 4);
+        int fragmentEnd = buffer.getInt(fragmentOffsetsPosition + (call + 1) * 4);
+        List<CombFragment> fragments = new ArrayList<CombFragment>(fragmentEnd - firstFragment);
+        for (int fragment = firstFragment; fragment < fragmentEnd; fragment++) {
+            int position = fragmentsPosition + fragment * CallGraphStore.FRAGMENT_SIZE;
+            fragments.add(new CombFragmentImpl(getString(buffer.getInt(position + 4)), CombFragmentType.values()[buffer.getInt(position)]));
+        }
+        return fragments;
+    }
+
+    private int getMethodField(int method, int field) {
+        return buffer.getInt(methodsPosition + method * CallGraphStore.METHOD_SIZE + field * 4);
+    }
+
+    private int getCallFlags(int call) {
+        return buffer.getInt(callsPosition + call * CallGraphStore.CALL_SIZE + 8);
+    }
+
+    private String getString(int string) {
+        if (string < 0) {
+            return null;
+        }
+        String value = strings[string];
+        if (value == null) {
+            int start = buffer.getInt(stringOffsetsPosition + string * 4);
+            int end = buffer.getInt(stringOffsetsPosition + (string + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer stringBuffer = buffer.duplicate();
+            stringBuffer.position(stringsPosition + start);
+            stringBuffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[string] = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,242 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.gmt.modisco.java.emf.JavaPackage;
+import org.eclipse.gmt.modisco.omg.kdm.action.ActionPackage;
+import org.eclipse.gmt.modisco.omg.kdm.code.CodePackage;
+import org.eclipse.gmt.modisco.omg.kdm.kdm.KdmPackage;
+import org.eclipse.gmt.modisco.omg.kdm.source.SourcePackage;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.modisco.infra.discovery.core.exception.DiscoveryException;
+import org.eclipse.modisco.java.discoverer.DiscoverKDMModelFromJavaProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Discovers KDM model of project split into partitions of packages.
+ * Compilation units of every partition are linked into scratch project
+ * created by {@link ScratchProjectFactory}, partitions are discovered
+ * concurrently on fork join pool and partial models are merged into one model
+ * by {@link KdmModelPatcher}. Types of other partitions are discovered as
+ * external types of partition, references to them including calls of their
+ * methods are resolved to project types when all partitions are merged.
+ * Every partition is discovered by its own discoverer into its own resource
+ * set from its own scratch project, workspace is modified only by the calling
+ * thread and scratch projects are deleted only when no discovery runs.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class ParallelKdmDiscoverer {
+
+    private static final String SCRATCH_PROJECT_SUFFIX = ".kdm-partition-";
+
+    private final int parallelism;
+    private final ScratchProjectFactory scratchProjectFactory = new ScratchProjectFactory();
+    private final Logger logger = LoggerFactory.getLogger(ParallelKdmDiscoverer.class);
+
+    /**
+     * @param parallelism maximum number of partitions discovered concurrently
+     */
+    public ParallelKdmDiscoverer(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param project analyzed project
+     * @param targetUri URI merged model is stored to, null if it is not stored
+     * @param monitor progress monitor
+     * @return merged model or null if project can not be discovered in
+     * partitions
+     */
+    public Resource discover(IJavaProject project, URI targetUri, IProgressMonitor monitor) {
+        List<List<String>> partitions;
+        try {
+            partitions = createPartitions(project);
+        } catch (JavaModelException ex) {
+            logger.debug("Unable to partition project {}", project.getElementName(), ex);
+            return null;
+        }
+        if (partitions.size() < 2) {
+            logger.debug("Parallel discovery of project {} skipped, project has less than two packages", project.getElementName());
+            return null;
+        }
+
+        List<IProject> scratchProjects = new ArrayList<IProject>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        AtomicBoolean stopped = new AtomicBoolean();
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                IProject scratchProject = scratchProjectFactory.getScratchProject(project, SCRATCH_PROJECT_SUFFIX + i);
+                scratchProjects.add(scratchProject);
+                scratchProjectFactory.createScratchProject(scratchProject, project, partitions.get(i), monitor);
+            }
+            initializeMetamodels();
+            // monitor is not thread safe, partitions only observe its cancellation
+            IProgressMonitor partitionMonitor = new NullProgressMonitor() {
+                @Override
+                public boolean isCanceled() {
+                    return stopped.get() || monitor.isCanceled();
+                }
+            };
+            List<ForkJoinTask<Resource>> tasks = new ArrayList<ForkJoinTask<Resource>>();
+            for (IProject scratchProject : scratchProjects) {
+                tasks.add(pool.submit(() -> discoverPartition(JavaCore.create(scratchProject), partitionMonitor)));
+            }
+
+            Resource mergedModel = null;
+            KdmModelPatcher patcher = null;
+            for (int i = 0; i < tasks.size(); i++) {
+                Resource partialModel = tasks.get(i).get();
+                if (monitor.isCanceled()) {
+                    throw new OperationCanceledException();
+                }
+                if (partialModel == null) {
+                    return null;
+                }
+                if (patcher == null) {
+                    mergedModel = partialModel;
+                    patcher = new KdmModelPatcher(partialModel, scratchProjects.get(i).getName());
+                } else if (!patcher.merge(partialModel, scratchProjects.get(i).getName())) {
+                    return null;
+                }
+            }
+            patcher.resolveExternalReferences();
+            patcher.renameSourceModel(project.getElementName());
+            if (targetUri != null) {
+                mergedModel.setURI(targetUri);
+                mergedModel.save(Collections.emptyMap());
+            }
+            logger.debug("KDM model of project {} discovered in {} partitions", project.getElementName(), partitions.size());
+            return mergedModel;
+        } catch (CoreException ex) {
+            logger.debug("Unable to create scratch projects for parallel discovery of project {}", project.getElementName(), ex);
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | IOException ex) {
+            logger.debug("Parallel discovery of project {} failed", project.getElementName(), ex);
+            return null;
+        } finally {
+            stopped.set(true);
+            pool.shutdownNow();
+            if (awaitPartitions(pool)) {
+                for (IProject scratchProject : scratchProjects) {
+                    scratchProjectFactory.deleteScratchProject(scratchProject);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until running partition discoveries observe cancellation, scratch
+     * projects must not be deleted while they are discovered.
+     *
+     * @return true if all partition discoveries are finished
+     */
+    private boolean awaitPartitions(ForkJoinPool pool) {
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.debug("Waiting for partition discoveries to finish");
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.debug("Interrupted while waiting for partition discoveries, scratch projects are left until next discovery");
+            return false;
+        }
+    }
+
+    /**
+     * Packages of Java and KDM metamodels are initialized lazily on first
+     * access and initialization registers them into global package registry,
+     * so they are initialized before partitions are discovered concurrently.
+     */
+    private void initializeMetamodels() {
+        JavaPackage.eINSTANCE.eClass();
+        KdmPackage.eINSTANCE.eClass();
+        CodePackage.eINSTANCE.eClass();
+        SourcePackage.eINSTANCE.eClass();
+        ActionPackage.eINSTANCE.eClass();
+    }
+
+    /**
+     * Packages are assigned to partitions from the largest one, every package
+     * to partition with the least compilation units.
+     *
+     * @return workspace paths of compilation units of every partition
+     */
+    private List<List<String>> createPartitions(IJavaProject project) throws JavaModelException {
+        Map<String, List<String>> packageUnits = new TreeMap<String, List<String>>();
+        for (IPackageFragmentRoot root : project.getPackageFragmentRoots()) {
+            if (root.getKind() != IPackageFragmentRoot.K_SOURCE) {
+                continue;
+            }
+            for (IJavaElement element : root.getChildren()) {
+                if (element instanceof IPackageFragment) {
+                    for (ICompilationUnit unit : ((IPackageFragment) element).getCompilationUnits()) {
+                        List<String> units = packageUnits.get(element.getElementName());
+                        if (units == null) {
+                            units = new ArrayList<String>();
+                            packageUnits.put(element.getElementName(), units);
+                        }
+                        units.add(unit.getResource().getFullPath().toString());
+                    }
+                }
+            }
+        }
+        List<List<String>> packages = new ArrayList<List<String>>(packageUnits.values());
+        Collections.sort(packages, Comparator.comparingInt((List<String> units) -> units.size()).reversed());
+        List<List<String>> partitions = new ArrayList<List<String>>();
+        for (List<String> units : packages) {
+            if (partitions.size() < parallelism) {
+                partitions.add(new ArrayList<String>(units));
+                continue;
+            }
+            List<String> smallestPartition = partitions.get(0);
+            for (List<String> partition : partitions) {
+                if (partition.size() < smallestPartition.size()) {
+                    smallestPartition = partition;
+                }
+            }
+            smallestPartition.addAll(units);
+        }
+        return partitions;
+    }
+
+    private Resource discoverPartition(IJavaProject scratchProject, IProgressMonitor monitor) {
+        DiscoverKDMModelFromJavaProject discoverer = new DiscoverKDMModelFromJavaProject();
+        try {
+            discoverer.discoverElement(scratchProject, monitor);
+            return discoverer.getTargetModel();
+        } catch (DiscoveryException ex) {
+            logger.debug("Failed to create KDM model of partition {}", scratchProject.getElementName(), ex);
+            return null;
+        }
+    }
+}
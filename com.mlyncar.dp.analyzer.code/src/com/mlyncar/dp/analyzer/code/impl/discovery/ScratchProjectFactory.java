@@ -0,0 +1,117 @@
+package com.mlyncar.dp.analyzer.code.impl.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates hidden scratch projects with subset of compilation units of
+ * analyzed project. Units are linked into source folder of scratch project
+ * which depends on analyzed project, so MoDisco discovers KDM of linked units
+ * only while references to the rest of the project are still resolved.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+class ScratchProjectFactory {
+
+    private static final String SOURCE_FOLDER = "src";
+    private static final String OUTPUT_FOLDER = "bin";
+
+    private final Logger logger = LoggerFactory.getLogger(ScratchProjectFactory.class);
+
+    /**
+     * @param project analyzed project
+     * @param suffix suffix of scratch project name
+     * @return handle of scratch project, project itself is not created
+     */
+    IProject getScratchProject(IJavaProject project, String suffix) {
+        return project.getProject().getWorkspace().getRoot().getProject("." + project.getElementName() + suffix);
+    }
+
+    /**
+     * Callers keep handle of scratch project before it is created, so
+     * project created only partially because of failure or cancellation is
+     * deleted as well.
+     *
+     * @param scratchProject handle of created scratch project, existing
+     * project of the same name is replaced
+     * @param project analyzed project
+     * @param unitPaths workspace paths of linked compilation units
+     * @param monitor progress monitor
+     */
+    void createScratchProject(IProject scratchProject, IJavaProject project, List<String> unitPaths, IProgressMonitor monitor) throws CoreException {
+        IWorkspaceRoot root = project.getProject().getWorkspace().getRoot();
+        if (scratchProject.exists()) {
+            scratchProject.delete(true, true, monitor);
+        }
+        IProjectDescription description = project.getProject().getWorkspace().newProjectDescription(scratchProject.getName());
+        description.setNatureIds(new String[]{JavaCore.NATURE_ID});
+        scratchProject.create(description, IResource.HIDDEN, monitor);
+        scratchProject.open(monitor);
+
+        IFolder sourceFolder = scratchProject.getFolder(SOURCE_FOLDER);
+        sourceFolder.create(true, true, monitor);
+        for (String unitPath : unitPaths) {
+            IJavaElement element = JavaCore.create(root.getFile(new Path(unitPath)));
+            if (!(element instanceof ICompilationUnit)) {
+                continue;
+            }
+            ICompilationUnit unit = (ICompilationUnit) element;
+            IFolder packageFolder = sourceFolder;
+            String packageName = unit.getParent().getElementName();
+            if (!packageName.isEmpty()) {
+                for (String segment : packageName.split("\\.")) {
+                    packageFolder = packageFolder.getFolder(segment);
+                    if (!packageFolder.exists()) {
+                        packageFolder.create(true, true, monitor);
+                    }
+                }
+            }
+            IFile link = packageFolder.getFile(unit.getElementName());
+            link.createLink(unit.getResource().getLocation(), IResource.NONE, monitor);
+        }
+
+        List<IClasspathEntry> entries = new ArrayList<IClasspathEntry>();
+        entries.add(JavaCore.newSourceEntry(sourceFolder.getFullPath()));
+        entries.add(JavaCore.newProjectEntry(project.getPath()));
+        for (IClasspathEntry entry : project.getRawClasspath()) {
+            if (entry.getEntryKind() != IClasspathEntry.CPE_SOURCE && entry.getEntryKind() != IClasspathEntry.CPE_PROJECT) {
+                entries.add(entry);
+            }
+        }
+        JavaCore.create(scratchProject).setRawClasspath(entries.toArray(new IClasspathEntry[entries.size()]),
+                scratchProject.getFolder(OUTPUT_FOLDER).getFullPath(), monitor);
+    }
+
+    /**
+     * Project is deleted without progress monitor, so it is deleted also when
+     * discovery was canceled.
+     */
+    void deleteScratchProject(IProject scratchProject) {
+        if (scratchProject == null || !scratchProject.exists()) {
+            return;
+        }
+        try {
+            scratchProject.delete(true, true, new NullProgressMonitor());
+        } catch (CoreException ex) {
+            logger.debug("Unable to delete scratch project {}", scratchProject.getName(), ex);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.mlyncar.dp.analyzer.code.impl.jdt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
+import com.mlyncar.dp.analyzer.code.SourceCodeAnalyzer;
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
+import com.mlyncar.dp.analyzer.code.entry.EntryPointSelector;
+import com.mlyncar.dp.analyzer.code.entry.MessageSelector;
+import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.DiagramCollector;
+import com.mlyncar.dp.analyzer.code.impl.ExpansionCache;
+import com.mlyncar.dp.analyzer.code.impl.ParallelExtraction;
+import com.mlyncar.dp.analyzer.entity.Lifeline;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
+import com.mlyncar.dp.analyzer.entity.impl.SeqDiagramImpl;
+import com.mlyncar.dp.analyzer.helper.EclipseProjectNavigatorHelper;
+import com.mlyncar.dp.analyzer.test.TestHelper;
+
+/**
+ * Source code analyzer building sequence diagrams directly from JDT abstract
+ * syntax trees with resolved bindings. Avoids discovery of KDM and Java
+ * models by MoDisco.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class JdtAstAnalyzer implements SourceCodeAnalyzer {
+
+    private final Logger logger = LoggerFactory.getLogger(JdtAstAnalyzer.class);
+    private final int maxDepth;
+    private final int maxMessages;
+    private final int parallelism;
+    private final PackagePolicy packagePolicy;
+    private final IJavaProject project;
+
+    public JdtAstAnalyzer() {
+        this(new CodeAnalyzerConfiguration());
+    }
+
+    public JdtAstAnalyzer(CodeAnalyzerConfiguration configuration) {
+        this(configuration, EclipseProjectNavigatorHelper.getCurrentProject());
+    }
+
+    public JdtAstAnalyzer(CodeAnalyzerConfiguration configuration, IJavaProject project) {
+        this.project = project;
+        this.maxDepth = configuration.getMaxCallDepth();
+        this.maxMessages = configuration.getMaxMessages();
+        this.parallelism = configuration.getParallelism();
+        this.packagePolicy = configuration.getPackagePolicy();
+    }
+
+    @Override
+    public SeqDiagram extractSequenceDiagramFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        DiagramCollector collector = new DiagramCollector();
+        extractSequenceDiagramFromMain(collector, monitor);
+        SeqDiagram diagram = collector.getDiagrams().get(0);
+        TestHelper.validateDiagram(diagram);
+        return diagram;
+    }
+
+    @Override
+    public void extractSequenceDiagramFromMain(MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        try {
+            JdtSourceIndex sourceIndex = new JdtSourceIndex(project, monitor);
+            IMethodBinding mainMethod = findMainMethod(sourceIndex);
+            JdtDiagramExtractor extractor = new JdtDiagramExtractor(sourceIndex,
+                    new ExpansionCache<IMethodBinding>(), maxDepth, maxMessages, packagePolicy);
+            extractor.extractDiagram(mainMethod, createStartMessage(mainMethod), getEntryVariableName(mainMethod),
+                    sinkFactory.createSink(new SeqDiagramImpl()));
+        } catch (MainMethodNotFoundException ex) {
+            throw new SourceCodeAnalyzerException(
+                    "Failed to extract sequence diagram from JDT AST", ex);
+        }
+    }
+
+    @Override
+    public List<SeqDiagram> extractSequenceDiagrams(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        DiagramCollector collector = new DiagramCollector();
+        extractSequenceDiagrams(selectors, collector, monitor);
+        return collector.getDiagrams();
+    }
+
+    @Override
+    public void extractSequenceDiagrams(List<EntryPointSelector> selectors, MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        JdtSourceIndex sourceIndex = new JdtSourceIndex(project, monitor);
+        Map<IMethodBinding, MessageSink> entrySinks = new LinkedHashMap<IMethodBinding, MessageSink>();
+        for (IMethodBinding entryMethod : findEntryMethods(sourceIndex, selectors, project)) {
+            SeqDiagram diagram = new SeqDiagramImpl();
+            diagram.setName(JdtSourceIndex.getQualifiedName(entryMethod));
+            entrySinks.put(entryMethod, sinkFactory.createSink(diagram));
+        }
+        logger.debug("Extracting {} sequence diagrams using {} threads", entrySinks.size(), parallelism);
+        ExpansionCache<IMethodBinding> methodExpansions = new ExpansionCache<IMethodBinding>();
+        ParallelExtraction.extractDiagrams(entrySinks, parallelism, (entryMethod, sink) -> {
+            JdtDiagramExtractor extractor = new JdtDiagramExtractor(sourceIndex, methodExpansions, maxDepth, maxMessages, packagePolicy);
+            extractor.extractDiagram(entryMethod, createStartMessage(entryMethod), getEntryVariableName(entryMethod), sink);
+        });
+    }
+
+    @Override
+    public CallTree extractCallTreeFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        try {
+            JdtSourceIndex sourceIndex = new JdtSourceIndex(project, monitor);
+            IMethodBinding mainMethod = findMainMethod(sourceIndex);
+            JdtDiagramExtractor extractor = new JdtDiagramExtractor(sourceIndex,
+                    new ExpansionCache<IMethodBinding>(), maxDepth, maxMessages, packagePolicy);
+            return extractor.extractCallTree(mainMethod, createStartMessage(mainMethod), getEntryVariableName(mainMethod));
+        } catch (MainMethodNotFoundException ex) {
+            throw new SourceCodeAnalyzerException(
+                    "Failed to extract call tree from JDT AST", ex);
+        }
+    }
+
+    @Override
+    public List<CallTree> extractCallTrees(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        JdtSourceIndex sourceIndex = new JdtSourceIndex(project, monitor);
+        ExpansionCache<IMethodBinding> methodExpansions = new ExpansionCache<IMethodBinding>();
+        List<CallTree> callTrees = new ArrayList<CallTree>();
+        for (IMethodBinding entryMethod : findEntryMethods(sourceIndex, selectors, project)) {
+            JdtDiagramExtractor extractor = new JdtDiagramExtractor(sourceIndex, methodExpansions, maxDepth, maxMessages, packagePolicy);
+            callTrees.add(extractor.extractCallTree(entryMethod, createStartMessage(entryMethod), getEntryVariableName(entryMethod)));
+        }
+        return callTrees;
+    }
+
+    @Override
+    public List<CallTree> extractTargetedCallTrees(List<Message> rootMessages, List<Integer> depthLimits, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        JdtSourceIndex sourceIndex = new JdtSourceIndex(project, monitor);
+        ExpansionCache<IMethodBinding> methodExpansions = new ExpansionCache<IMethodBinding>();
+        List<CallTree> callTrees = new ArrayList<CallTree>();
+        for (int i = 0; i < rootMessages.size(); i++) {
+            Message rootMessage = rootMessages.get(i);
+            MessageSelector selector = new MessageSelector(rootMessage);
+            List<IMethodBinding> entryMethods = findEntryMethods(sourceIndex, Collections.<EntryPointSelector>singletonList(selector), project);
+            if (entryMethods.isEmpty()) {
+                logger.debug("No method found for root message {}", selector);
+                callTrees.add(null);
+                continue;
+            }
+            if (entryMethods.size() > 1) {
+                logger.debug("Root message {} matches {} methods, skipping ambiguous root", selector, entryMethods.size());
+                callTrees.add(null);
+                continue;
+            }
+            JdtDiagramExtractor extractor = new JdtDiagramExtractor(sourceIndex, methodExpansions, maxDepth, maxMessages, packagePolicy);
+            callTrees.add(extractor.extractCallTree(entryMethods.get(0), rootMessage, selector.getVariableName(), depthLimits.get(i)));
+        }
+        return callTrees;
+    }
+
+    private List<IMethodBinding> findEntryMethods(JdtSourceIndex sourceIndex, List<EntryPointSelector> selectors, IJavaProject project) {
+        List<IMethodBinding> entryMethods = new ArrayList<IMethodBinding>();
+        for (IMethodBinding method : sourceIndex.getMethods()) {
+            if (!method.getDeclaringClass().isClass()) {
+                continue;
+            }
+            String qualifiedName = JdtSourceIndex.getQualifiedName(method);
+            for (EntryPointSelector selector : selectors) {
+                if (selector.matches(qualifiedName, project)) {
+                    logger.debug("Method {} selected as entry point", qualifiedName);
+                    entryMethods.add(method);
+                    break;
+                }
+            }
+        }
+        return entryMethods;
+    }
+
+    private IMethodBinding findMainMethod(JdtSourceIndex sourceIndex) throws MainMethodNotFoundException {
+        for (IMethodBinding method : sourceIndex.getMethods()) {
+            if (method.getName().equals("main") && Modifier.isStatic(method.getModifiers())) {
+                return method;
+            }
+        }
+        throw new MainMethodNotFoundException("Unable to find main method in project sources");
+    }
+
+    private Message createStartMessage(IMethodBinding entryMethod) {
+        Lifeline actorLifeline = new LifelineImpl("Actor");
+        Lifeline lifeline = new LifelineImpl(getEntryVariableName(entryMethod) + JdtSourceIndex.getClassName(entryMethod));
+        return new MessageImpl(0, MessageType.SYNCH, entryMethod.getName(), lifeline, actorLifeline, null);
+    }
+
+    private String getEntryVariableName(IMethodBinding entryMethod) {
+        return entryMethod.getName() + ":";
+    }
+}
@@ -0,0 +1,253 @@
+package com.mlyncar.dp.analyzer.code.impl.jdt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.IfStatement;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.LambdaExpression;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.NullLiteral;
+import org.eclipse.jdt.core.dom.NumberLiteral;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.StringLiteral;
+import org.eclipse.jdt.core.dom.TypeDeclarationStatement;
+import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.DiagramExtractor;
+import com.mlyncar.dp.analyzer.code.impl.ExpansionCache;
+import com.mlyncar.dp.analyzer.code.impl.MethodExpansion;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.CombFragmentType;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentImpl;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+
+/**
+ * Extracts sequence diagram from JDT abstract syntax trees. Calls are taken
+ * in evaluation order, so arguments precede the call they are passed to.
+ * Variable names and combined fragments follow the rules of KDM extraction,
+ * so both engines produce the same diagram for the same code.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class JdtDiagramExtractor extends DiagramExtractor<IMethodBinding> {
+
+    private final Logger logger = LoggerFactory.getLogger(JdtDiagramExtractor.class);
+    private final JdtSourceIndex sourceIndex;
+    private final Map<ASTNode, List<CombFragment>> containerFragments = new HashMap<ASTNode, List<CombFragment>>();
+
+    public JdtDiagramExtractor(JdtSourceIndex sourceIndex, ExpansionCache<IMethodBinding> methodExpansions, int maxDepth, int maxMessages, PackagePolicy packagePolicy) {
+        super(methodExpansions, maxDepth, maxMessages, packagePolicy);
+        this.sourceIndex = sourceIndex;
+    }
+
+    @Override
+    protected void analyzeMethodBody(IMethodBinding method) throws SourceCodeAnalyzerException {
+        MethodDeclaration declaration = sourceIndex.getDeclaration(method);
+        if (declaration == null) {
+            return;
+        }
+        String methodClassName = JdtSourceIndex.getClassName(method);
+        String thisPackage = JdtSourceIndex.getClassPackage(method);
+        String currentVariableName = MethodExpansion.VARIABLE_PLACEHOLDER;
+        for (Expression call : collectCalls(declaration)) {
+            IMethodBinding newMethod = resolveMethod(call);
+            if (newMethod == null) {
+                logger.debug("Unable to resolve binding of call {}", call);
+                continue;
+            }
+            String newMethodClassName = JdtSourceIndex.getClassName(newMethod);
+            String newPackage = JdtSourceIndex.getClassPackage(newMethod);
+            String variableName = getVariableName(call);
+            MessageType type = MessageType.SYNCH;
+            if (call instanceof MethodInvocation && newMethodClassName.equals(methodClassName)) {
+                type = MessageType.SELF;
+                variableName = currentVariableName;
+            }
+            logger.debug("Adding new message to diagram: {}", newMethod.getName());
+            addMethodCall(type, newMethod, variableName,
+                    new LifelineImpl(variableName + newMethodClassName, newPackage),
+                    new LifelineImpl(currentVariableName + methodClassName, thisPackage), getCombinedFragments(call));
+        }
+    }
+
+    @Override
+    protected String getMethodName(IMethodBinding method) {
+        return method.getName();
+    }
+
+    @Override
+    protected String getClassPackage(IMethodBinding method) {
+        return JdtSourceIndex.getClassPackage(method);
+    }
+
+    @Override
+    protected String getInteractionReference(IMethodBinding method) {
+        return JdtSourceIndex.getQualifiedName(method);
+    }
+
+    private List<Expression> collectCalls(MethodDeclaration declaration) {
+        final List<Expression> calls = new ArrayList<Expression>();
+        declaration.getBody().accept(new ASTVisitor() {
+            @Override
+            public void endVisit(MethodInvocation node) {
+                calls.add(node);
+            }
+
+            @Override
+            public void endVisit(ClassInstanceCreation node) {
+                calls.add(node);
+            }
+
+            @Override
+            public boolean visit(AnonymousClassDeclaration node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(LambdaExpression node) {
+                return false;
+            }
+
+            @Override
+            public boolean visit(TypeDeclarationStatement node) {
+                return false;
+            }
+        });
+        return calls;
+    }
+
+    private IMethodBinding resolveMethod(Expression call) {
+        IMethodBinding binding;
+        if (call instanceof MethodInvocation) {
+            binding = ((MethodInvocation) call).resolveMethodBinding();
+        } else {
+            binding = ((ClassInstanceCreation) call).resolveConstructorBinding();
+        }
+        return binding == null ? null : binding.getMethodDeclaration();
+    }
+
+    /**
+     * Variable name is known only for calls forming whole statement, directly
+     * or as right hand side of assignment or return value.
+     */
+    private String getVariableName(Expression call) {
+        ASTNode parent = call.getParent();
+        if (call instanceof ClassInstanceCreation) {
+            if (parent instanceof Assignment && parent.getParent() instanceof ExpressionStatement) {
+                Expression leftHandSide = ((Assignment) parent).getLeftHandSide();
+                return leftHandSide instanceof SimpleName ? ((SimpleName) leftHandSide).getIdentifier() + ":" : "new";
+            }
+            return "";
+        }
+        boolean statement = parent instanceof ExpressionStatement || parent instanceof ReturnStatement
+                || (parent instanceof Assignment && parent.getParent() instanceof ExpressionStatement);
+        Expression receiver = ((MethodInvocation) call).getExpression();
+        if (statement && receiver instanceof SimpleName && ((SimpleName) receiver).resolveBinding() instanceof IVariableBinding) {
+            return ((SimpleName) receiver).getIdentifier() + ":";
+        }
+        return "";
+    }
+
+    private List<CombFragment> getCombinedFragments(Expression call) {
+        return getContainerFragments(call.getParent());
+    }
+
+    /**
+     * Fragments of container are its own fragment followed by fragments of
+     * its container, unmodifiable list is created once per container and
+     * shared by all calls in it.
+     */
+    private List<CombFragment> getContainerFragments(ASTNode container) {
+        if (container == null || container instanceof MethodDeclaration) {
+            return Collections.emptyList();
+        }
+        List<CombFragment> fragments = containerFragments.get(container);
+        if (fragments == null) {
+            List<CombFragment> outerFragments = getContainerFragments(container.getParent());
+            CombFragment fragment = createFragment(container);
+            if (fragment == null) {
+                fragments = outerFragments;
+            } else {
+                List<CombFragment> containerList = new ArrayList<CombFragment>(outerFragments.size() + 1);
+                containerList.add(fragment);
+                containerList.addAll(outerFragments);
+                fragments = Collections.unmodifiableList(containerList);
+            }
+            containerFragments.put(container, fragments);
+        }
+        return fragments;
+    }
+
+    private CombFragment createFragment(ASTNode container) {
+        if (container instanceof IfStatement) {
+            Expression expression = ((IfStatement) container).getExpression();
+            if (expression instanceof InfixExpression) {
+                return new CombFragmentImpl(analyzeInfixExpression((InfixExpression) expression), CombFragmentType.OPT);
+            }
+            logger.debug("Unknown ifstatement expression");
+        } else if (container instanceof ForStatement) {
+            return new CombFragmentImpl(analyzeForOperand((ForStatement) container), CombFragmentType.LOOP);
+        }
+        return null;
+    }
+
+    private String analyzeInfixExpression(InfixExpression expression) {
+        return analyzeOperand(expression.getLeftOperand()) + expression.getOperator().toString() + analyzeOperand(expression.getRightOperand());
+    }
+
+    private String analyzeOperand(Expression operand) {
+        if (operand instanceof NullLiteral) {
+            return "null";
+        } else if (operand instanceof SimpleName) {
+            return ((SimpleName) operand).getIdentifier();
+        } else if (operand instanceof NumberLiteral) {
+            return ((NumberLiteral) operand).getToken();
+        } else if (operand instanceof StringLiteral) {
+            return ((StringLiteral) operand).getEscapedValue();
+        }
+        logger.debug("Unable to analyze condition operand {}", operand);
+        return "[Unknown]";
+    }
+
+    private String analyzeForOperand(ForStatement forStatement) {
+        String result = "";
+        if (!forStatement.initializers().isEmpty() && forStatement.initializers().get(0) instanceof VariableDeclarationExpression) {
+            VariableDeclarationExpression varDecl = (VariableDeclarationExpression) forStatement.initializers().get(0);
+            VariableDeclarationFragment declFragment = (VariableDeclarationFragment) varDecl.fragments().get(0);
+            result += declFragment.getName().getIdentifier() + "=" + analyzeOperand(declFragment.getInitializer());
+        } else {
+            logger.debug("Unknown initializer expression");
+        }
+        if (forStatement.getExpression() instanceof InfixExpression) {
+            result += ";" + analyzeInfixExpression((InfixExpression) forStatement.getExpression());
+        }
+        if (!forStatement.updaters().isEmpty() && forStatement.updaters().get(0) instanceof PostfixExpression) {
+            PostfixExpression postfix = (PostfixExpression) forStatement.updaters().get(0);
+            result += ";" + analyzeOperand(postfix.getOperand()) + postfix.getOperator().toString();
+        }
+        return result;
+    }
+}
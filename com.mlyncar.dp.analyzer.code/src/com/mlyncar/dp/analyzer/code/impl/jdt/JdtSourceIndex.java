@@ -0,0 +1,123 @@
+package com.mlyncar.dp.analyzer.code.impl.jdt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+
+/**
+ * Declarations of source methods of project parsed by JDT in one batch. All
+ * compilation units share binding environment, so bindings of the same method
+ * are identical objects and can be used as keys.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class JdtSourceIndex {
+
+    private final Map<IMethodBinding, MethodDeclaration> methodDeclarations = new LinkedHashMap<IMethodBinding, MethodDeclaration>();
+    private final Logger logger = LoggerFactory.getLogger(JdtSourceIndex.class);
+
+    /**
+     * Parses all source compilation units of project with binding resolution.
+     */
+    public JdtSourceIndex(IJavaProject project, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        List<ICompilationUnit> units = getCompilationUnits(project);
+        ASTParser parser = ASTParser.newParser(AST.JLS8);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setProject(project);
+        parser.setResolveBindings(true);
+        parser.createASTs(units.toArray(new ICompilationUnit[units.size()]), new String[0], new ASTRequestor() {
+            @Override
+            public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+                ast.accept(new ASTVisitor() {
+                    @Override
+                    public boolean visit(MethodDeclaration node) {
+                        IMethodBinding binding = node.resolveBinding();
+                        if (binding != null && node.getBody() != null) {
+                            methodDeclarations.put(binding.getMethodDeclaration(), node);
+                        }
+                        return true;
+                    }
+                });
+            }
+        }, monitor);
+        logger.debug("Parsed {} compilation units of project {}, number of indexed methods {}",
+                units.size(), project.getElementName(), methodDeclarations.size());
+    }
+
+    /**
+     * @return declaration of method or null if method is not declared in
+     * source code of project or has no body
+     */
+    public MethodDeclaration getDeclaration(IMethodBinding method) {
+        return methodDeclarations.get(method);
+    }
+
+    /**
+     * @return source methods with body in order of compilation units
+     */
+    public Collection<IMethodBinding> getMethods() {
+        return Collections.unmodifiableCollection(methodDeclarations.keySet());
+    }
+
+    public static String getClassName(IMethodBinding method) {
+        return method.getDeclaringClass().getErasure().getName();
+    }
+
+    /**
+     * @return package of class declaring method followed by dot, empty string
+     * for default package
+     */
+    public static String getClassPackage(IMethodBinding method) {
+        ITypeBinding declaringClass = method.getDeclaringClass().getErasure();
+        if (declaringClass.getPackage() == null || declaringClass.getPackage().isUnnamed()) {
+            return "";
+        }
+        return declaringClass.getPackage().getName() + ".";
+    }
+
+    public static String getQualifiedName(IMethodBinding method) {
+        return getClassPackage(method) + getClassName(method) + "." + method.getName();
+    }
+
+    private List<ICompilationUnit> getCompilationUnits(IJavaProject project) throws SourceCodeAnalyzerException {
+        List<ICompilationUnit> units = new ArrayList<ICompilationUnit>();
+        try {
+            for (IPackageFragmentRoot root : project.getPackageFragmentRoots()) {
+                if (root.getKind() != IPackageFragmentRoot.K_SOURCE) {
+                    continue;
+                }
+                for (IJavaElement element : root.getChildren()) {
+                    if (element instanceof IPackageFragment) {
+                        Collections.addAll(units, ((IPackageFragment) element).getCompilationUnits());
+                    }
+                }
+            }
+        } catch (JavaModelException ex) {
+            throw new SourceCodeAnalyzerException("Unable to list compilation units of project " + project.getElementName(), ex);
+        }
+        return units;
+    }
+}
@@ -0,0 +1,292 @@
+package com.mlyncar.dp.analyzer.code.impl.trace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.IJavaProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
+import com.mlyncar.dp.analyzer.code.SourceCodeAnalyzer;
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
+import com.mlyncar.dp.analyzer.code.entry.EntryPointSelector;
+import com.mlyncar.dp.analyzer.code.entry.MessageSelector;
+import com.mlyncar.dp.analyzer.code.exception.MainMethodNotFoundException;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.code.impl.DiagramCallTree;
+import com.mlyncar.dp.analyzer.code.impl.DiagramCollector;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
+import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.entity.impl.SeqDiagramImpl;
+import com.mlyncar.dp.analyzer.helper.EclipseProjectNavigatorHelper;
+import com.mlyncar.dp.analyzer.test.TestHelper;
+
+/**
+ * Analyzer building sequence diagrams from recorded call trace instead of
+ * source code, so only paths which were executed appear in diagram and calls
+ * go to classes which were really dispatched. Diagram of entry method is
+ * built from its first call in the trace.
+ *
+ * Trace is read twice as a stream. The first pass finds entry calls and
+ * repeated loop iterations, the second pass replays calls into message sinks
+ * and leaves repeated iterations out. Neither pass holds more than constant
+ * state of every active call, so traces of any length can be analyzed.
+ * Call trees are built from whole diagrams, trace can not be replayed for
+ * calls of single method.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class TraceAnalyzer implements SourceCodeAnalyzer {
+
+    private static final EntryPointSelector MAIN_SELECTOR = (qualifiedName, project) -> qualifiedName.endsWith(".main");
+
+    private final Logger logger = LoggerFactory.getLogger(TraceAnalyzer.class);
+    private final String traceFile;
+    private final int maxDepth;
+    private final int maxMessages;
+    private final PackagePolicy packagePolicy;
+    private final IJavaProject project;
+
+    public TraceAnalyzer() {
+        this(new CodeAnalyzerConfiguration());
+    }
+
+    public TraceAnalyzer(CodeAnalyzerConfiguration configuration) {
+        this(configuration, EclipseProjectNavigatorHelper.getCurrentProject());
+    }
+
+    public TraceAnalyzer(CodeAnalyzerConfiguration configuration, IJavaProject project) {
+        this.project = project;
+        this.traceFile = configuration.getTraceFile();
+        this.maxDepth = configuration.getMaxCallDepth();
+        this.maxMessages = configuration.getMaxMessages();
+        this.packagePolicy = configuration.getPackagePolicy();
+    }
+
+    @Override
+    public SeqDiagram extractSequenceDiagramFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        DiagramCollector collector = new DiagramCollector();
+        extractSequenceDiagramFromMain(collector, monitor);
+        SeqDiagram diagram = collector.getDiagrams().get(0);
+        TestHelper.validateDiagram(diagram);
+        return diagram;
+    }
+
+    @Override
+    public void extractSequenceDiagramFromMain(MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        try {
+            Path tracePath = resolveTraceFile(project);
+            TraceLoopIndex loopIndex = TraceLoopIndex.scan(tracePath, Collections.singletonList(MAIN_SELECTOR), project);
+            long mainCall = findMainCall(loopIndex);
+            checkCanceled(monitor);
+            replay(tracePath, loopIndex, Collections.singletonMap(mainCall, sinkFactory.createSink(new SeqDiagramImpl())));
+        } catch (MainMethodNotFoundException ex) {
+            throw new SourceCodeAnalyzerException(
+                    "Failed to extract sequence diagram from call trace", ex);
+        }
+    }
+
+    @Override
+    public List<SeqDiagram> extractSequenceDiagrams(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        DiagramCollector collector = new DiagramCollector();
+        extractSequenceDiagrams(selectors, collector, monitor);
+        return collector.getDiagrams();
+    }
+
+    @Override
+    public void extractSequenceDiagrams(List<EntryPointSelector> selectors, MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        Path tracePath = resolveTraceFile(project);
+        TraceLoopIndex loopIndex = TraceLoopIndex.scan(tracePath, selectors, project);
+        Map<Long, MessageSink> entrySinks = new LinkedHashMap<Long, MessageSink>();
+        for (Map.Entry<Long, String> entryCall : loopIndex.getEntryCalls().entrySet()) {
+            logger.debug("Method {} selected as entry point", entryCall.getValue());
+            SeqDiagram diagram = new SeqDiagramImpl();
+            diagram.setName(entryCall.getValue());
+            entrySinks.put(entryCall.getKey(), sinkFactory.createSink(diagram));
+        }
+        checkCanceled(monitor);
+        replay(tracePath, loopIndex, entrySinks);
+    }
+
+    @Override
+    public CallTree extractCallTreeFromMain(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        SeqDiagram diagram = extractSequenceDiagramFromMain(monitor);
+        checkCanceled(monitor);
+        return DiagramCallTree.create(diagram);
+    }
+
+    @Override
+    public List<CallTree> extractCallTrees(List<EntryPointSelector> selectors, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        List<SeqDiagram> diagrams = extractSequenceDiagrams(selectors, monitor);
+        checkCanceled(monitor);
+        List<CallTree> callTrees = new ArrayList<CallTree>();
+        for (SeqDiagram diagram : diagrams) {
+            callTrees.add(DiagramCallTree.create(diagram));
+        }
+        return callTrees;
+    }
+
+    /**
+     * Trees are built from the first call of every method invoked by root
+     * message, all of them are replayed in one pass over the trace.
+     */
+    @Override
+    public List<CallTree> extractTargetedCallTrees(List<Message> rootMessages, List<Integer> depthLimits, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+        List<EntryPointSelector> selectors = new ArrayList<EntryPointSelector>();
+        for (Message rootMessage : rootMessages) {
+            selectors.add(new MessageSelector(rootMessage));
+        }
+        List<SeqDiagram> diagrams = extractSequenceDiagrams(selectors, monitor);
+        checkCanceled(monitor);
+        List<CallTree> callTrees = new ArrayList<CallTree>();
+        for (int i = 0; i < rootMessages.size(); i++) {
+            List<SeqDiagram> rootDiagrams = new ArrayList<SeqDiagram>();
+            for (SeqDiagram diagram : diagrams) {
+                if (selectors.get(i).matches(diagram.getName(), project)) {
+                    rootDiagrams.add(diagram);
+                }
+            }
+            CallTree callTree = null;
+            if (rootDiagrams.isEmpty()) {
+                logger.debug("No call found in trace for root message {}", selectors.get(i));
+            } else if (rootDiagrams.size() > 1) {
+                logger.debug("Root message {} matches {} traced methods, skipping ambiguous root", selectors.get(i), rootDiagrams.size());
+            } else {
+                callTree = DiagramCallTree.create(rootDiagrams.get(0), rootMessages.get(i), Math.min(depthLimits.get(i), maxDepth));
+            }
+            callTrees.add(callTree);
+        }
+        return callTrees;
+    }
+
+    /**
+     * Trace is replayed without progress reporting, cancellation is checked
+     * before and after replay.
+     */
+    private void checkCanceled(IProgressMonitor monitor) {
+        if (monitor.isCanceled()) {
+            throw new OperationCanceledException();
+        }
+    }
+
+    /**
+     * Second pass over the trace. Calls of every entry are pushed into its
+     * extractor, extractors of nested entry calls run side by side.
+     */
+    private void replay(Path tracePath, TraceLoopIndex loopIndex, Map<Long, MessageSink> entrySinks) throws SourceCodeAnalyzerException {
+        List<TraceDiagramExtractor> extractors = new ArrayList<TraceDiagramExtractor>();
+        Deque<ReplayedCall> stack = new ArrayDeque<ReplayedCall>();
+        stack.push(new ReplayedCall(null, 1));
+        long ordinal = 0;
+        int skippedDepth = -1;
+        try (TraceReader reader = new TraceReader(tracePath)) {
+            TraceEvent event;
+            while ((event = reader.next()) != null) {
+                if (event.isEnter()) {
+                    long callOrdinal = ordinal++;
+                    if (skippedDepth >= 0) {
+                        continue;
+                    }
+                    ReplayedCall caller = stack.peek();
+                    if (caller.skippedIterations > 0) {
+                        caller.skippedIterations--;
+                        skippedDepth = event.getDepth();
+                        continue;
+                    }
+                    int iterations = loopIndex.getIterations(callOrdinal);
+                    for (TraceDiagramExtractor extractor : extractors) {
+                        extractor.enter(event, caller.event, iterations);
+                    }
+                    stack.push(new ReplayedCall(event, iterations));
+                    MessageSink sink = entrySinks.get(callOrdinal);
+                    if (sink != null) {
+                        TraceDiagramExtractor extractor = new TraceDiagramExtractor(event, sink, maxDepth, maxMessages, packagePolicy);
+                        extractor.start();
+                        extractors.add(extractor);
+                    }
+                } else {
+                    if (skippedDepth >= 0) {
+                        if (event.getDepth() == skippedDepth) {
+                            skippedDepth = -1;
+                        }
+                        continue;
+                    }
+                    ReplayedCall call = stack.pop();
+                    Iterator<TraceDiagramExtractor> it = extractors.iterator();
+                    while (it.hasNext()) {
+                        TraceDiagramExtractor extractor = it.next();
+                        extractor.exit(event);
+                        if (extractor.isFinished()) {
+                            it.remove();
+                        }
+                    }
+                    stack.peek().skippedIterations = call.iterations - 1;
+                }
+            }
+        } catch (IOException ex) {
+            throw new SourceCodeAnalyzerException("Unable to close trace file " + tracePath, ex);
+        }
+        for (TraceDiagramExtractor extractor : extractors) {
+            extractor.finish();
+        }
+    }
+
+    private long findMainCall(TraceLoopIndex loopIndex) throws MainMethodNotFoundException {
+        Iterator<Long> it = loopIndex.getEntryCalls().keySet().iterator();
+        if (!it.hasNext()) {
+            throw new MainMethodNotFoundException("Unable to find main method in call trace");
+        }
+        return it.next();
+    }
+
+    /**
+     * Relative path of trace file is resolved against location of the
+     * project.
+     */
+    private Path resolveTraceFile(IJavaProject project) throws SourceCodeAnalyzerException {
+        if (traceFile == null) {
+            throw new SourceCodeAnalyzerException("Configuration directive " + CodeAnalyzerConfiguration.TRACE_FILE_PROPERTY + " is not set");
+        }
+        Path tracePath = Paths.get(traceFile);
+        if (!tracePath.isAbsolute() && project != null && project.getProject().getLocation() != null) {
+            tracePath = project.getProject().getLocation().toFile().toPath().resolve(tracePath);
+        }
+        if (!Files.isRegularFile(tracePath)) {
+            throw new SourceCodeAnalyzerException("Trace file " + tracePath + " not found");
+        }
+        logger.debug("Building sequence diagrams from trace file {}", tracePath);
+        return tracePath;
+    }
+
+    /**
+     * Active call of the second pass together with number of following
+     * calls it makes which repeat loop iteration.
+     */
+    private static class ReplayedCall {
+
+        private final TraceEvent event;
+        private final int iterations;
+        private int skippedIterations;
+
+        private ReplayedCall(TraceEvent event, int iterations) {
+            this.event = event;
+            this.iterations = iterations;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.mlyncar.dp.analyzer.code.impl.trace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.CombFragmentType;
+import com.mlyncar.dp.analyzer.entity.Lifeline;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.analyzer.entity.MessageType;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentImpl;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
+import com.mlyncar.dp.analyzer.exception.MessageSinkException;
+
+/**
+ * Extracts sequence diagram of one entry call from replayed trace events.
+ * Messages are pushed into sink as soon as their event is read, extractor
+ * keeps lifeline and fragments of every active call below the entry call
+ * only. Depth limit, message budget and package policy are applied in the
+ * same way as by static extraction, calls left out are skipped together with
+ * calls they make.
+ *
+ * Variable names are not recorded in trace, objects are named by their class
+ * except of the object entry method is executed on.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class TraceDiagramExtractor {
+
+    private static final String LOOP_CONDITION = "[Unknown]";
+
+    private final Logger logger = LoggerFactory.getLogger(TraceDiagramExtractor.class);
+    private final TraceEvent entryEvent;
+    private final String entryVariableName;
+    private final MessageSink sink;
+    private final int maxDepth;
+    private final int maxMessages;
+    private final PackagePolicy packagePolicy;
+    private final Deque<ExtractedCall> activeCalls = new ArrayDeque<ExtractedCall>();
+    private int size;
+    private int skippedDepth = -1;
+
+    /**
+     * @param entryEvent enter event of entry call
+     * @param sink receiver of extracted messages
+     * @param maxDepth maximum depth of extracted calls below entry call
+     * @param maxMessages message budget of extracted diagram
+     * @param packagePolicy policy of packages whose calls are not extracted
+     */
+    public TraceDiagramExtractor(TraceEvent entryEvent, MessageSink sink, int maxDepth, int maxMessages, PackagePolicy packagePolicy) {
+        this.entryEvent = entryEvent;
+        this.entryVariableName = entryEvent.getDiagramMethodName() + ":";
+        this.sink = sink;
+        this.maxDepth = maxDepth;
+        this.maxMessages = maxMessages;
+        this.packagePolicy = packagePolicy;
+    }
+
+    /**
+     * Adds message invoking entry method.
+     */
+    public void start() throws SourceCodeAnalyzerException {
+        String lifelineName = entryVariableName + entryEvent.getSimpleClassName();
+        add(new MessageImpl(size, MessageType.SYNCH, entryEvent.getDiagramMethodName(), new LifelineImpl(lifelineName), new LifelineImpl("Actor"), null));
+        activeCalls.push(new ExtractedCall(entryEvent, new LifelineImpl(lifelineName, entryEvent.getClassPackage()), Collections.<CombFragment>emptyList()));
+    }
+
+    /**
+     * @param event enter event of call below entry call
+     * @param caller enter event of calling method
+     * @param iterations number of loop iterations started by the call, 1 if
+     * call does not start loop
+     */
+    public void enter(TraceEvent event, TraceEvent caller, int iterations) throws SourceCodeAnalyzerException {
+        if (skippedDepth >= 0) {
+            return;
+        }
+        ExtractedCall callerCall = activeCalls.peek();
+        String methodName = event.getDiagramMethodName();
+        if (activeCalls.size() > maxDepth) {
+            logger.debug("Call of method {} exceeds maximum depth {} and is not extracted", methodName, maxDepth);
+            skippedDepth = event.getDepth();
+            return;
+        }
+        if (packagePolicy.isIgnoredCall(event.getClassPackage(), entryEvent.getClassPackage())) {
+            logger.debug("Call of method {} in package {} is ignored by package policy", methodName, event.getClassPackage());
+            skippedDepth = event.getDepth();
+            return;
+        }
+        List<CombFragment> fragments = callerCall.fragments;
+        if (iterations > 1) {
+            fragments = new ArrayList<CombFragment>(fragments);
+            fragments.add(new CombFragmentImpl(LOOP_CONDITION, CombFragmentType.LOOP));
+            logger.debug("Call of method {} repeated {} times, adding loop fragment", methodName, iterations);
+        }
+        boolean selfCall = event.isSelfCall(caller);
+        Lifeline targetLifeline = selfCall ? callerCall.lifeline : new LifelineImpl(getLifelineName(event), event.getClassPackage());
+        if (size + activeCalls.size() + 1 > maxMessages) {
+            logger.debug("Call of method {} exceeds message budget {}, adding interaction reference", methodName, maxMessages);
+            add(new MessageImpl(size, MessageType.REFERENCE, methodName, targetLifeline, callerCall.lifeline, fragments, event.getQualifiedName()));
+            skippedDepth = event.getDepth();
+            return;
+        }
+        add(new MessageImpl(size, selfCall ? MessageType.SELF : MessageType.SYNCH, methodName, targetLifeline, callerCall.lifeline, fragments));
+        activeCalls.push(new ExtractedCall(event, targetLifeline, fragments));
+    }
+
+    /**
+     * @param event exit event of call at or below entry call
+     */
+    public void exit(TraceEvent event) throws SourceCodeAnalyzerException {
+        if (skippedDepth >= 0) {
+            if (event.getDepth() == skippedDepth) {
+                skippedDepth = -1;
+            }
+            return;
+        }
+        returnFromCall();
+    }
+
+    /**
+     * Adds return messages of calls left open by truncated trace.
+     */
+    public void finish() throws SourceCodeAnalyzerException {
+        while (!isFinished()) {
+            returnFromCall();
+        }
+    }
+
+    /**
+     * @return true if entry call returned
+     */
+    public boolean isFinished() {
+        return activeCalls.isEmpty();
+    }
+
+    private void returnFromCall() throws SourceCodeAnalyzerException {
+        ExtractedCall call = activeCalls.pop();
+        ExtractedCall callerCall = activeCalls.peek();
+        if (callerCall == null) {
+            return;
+        }
+        add(new MessageImpl(size, MessageType.RETURN, call.event.getDiagramMethodName() + "Ret",
+                new LifelineImpl(callerCall.lifeline.getName(), callerCall.lifeline.getPackageName()),
+                new LifelineImpl(call.lifeline.getName(), call.lifeline.getPackageName()), call.fragments));
+    }
+
+    private String getLifelineName(TraceEvent event) {
+        if (event.getClassName().equals(entryEvent.getClassName()) && event.getReceiverId().equals(entryEvent.getReceiverId())
+                && !event.getReceiverId().equals(TraceEvent.STATIC_RECEIVER)) {
+            return entryVariableName + event.getSimpleClassName();
+        }
+        return event.getSimpleClassName();
+    }
+
+    private void add(Message message) throws SourceCodeAnalyzerException {
+        try {
+            sink.addMessage(message);
+        } catch (MessageSinkException ex) {
+            throw new SourceCodeAnalyzerException("Message " + message.getName() + " was rejected by message sink", ex);
+        }
+        size++;
+    }
+
+    /**
+     * Call of extracted diagram whose return message is not added yet.
+     */
+    private static class ExtractedCall {
+
+        private final TraceEvent event;
+        private final Lifeline lifeline;
+        private final List<CombFragment> fragments;
+
+        private ExtractedCall(TraceEvent event, Lifeline lifeline, List<CombFragment> fragments) {
+            this.event = event;
+            this.lifeline = lifeline;
+            this.fragments = fragments;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.mlyncar.dp.analyzer.code.impl.trace;
+
+/**
+ * Enter or exit of method recorded in call trace.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class TraceEvent {
+
+    public static final String CONSTRUCTOR_NAME = "<init>";
+    public static final String STATIC_RECEIVER = "-";
+
+    private final boolean enter;
+    private final int depth;
+    private final String className;
+    private final String methodName;
+    private final String receiverId;
+
+    public TraceEvent(boolean enter, int depth, String className, String methodName, String receiverId) {
+        this.enter = enter;
+        this.depth = depth;
+        this.className = className;
+        this.methodName = methodName;
+        this.receiverId = receiverId;
+    }
+
+    /**
+     * @return true for method enter, false for method exit
+     */
+    public boolean isEnter() {
+        return enter;
+    }
+
+    /**
+     * @return depth of call, calls at depth 0 are not called from recorded
+     * code
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return binary name of class declaring the method, e.g. a.b.Outer$Inner
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return identity of object the method is executed on,
+     * {@link #STATIC_RECEIVER} for static methods
+     */
+    public String getReceiverId() {
+        return receiverId;
+    }
+
+    public boolean isConstructor() {
+        return CONSTRUCTOR_NAME.equals(methodName);
+    }
+
+    /**
+     * @return simple name of class, nested classes are named without their
+     * enclosing class
+     */
+    public String getSimpleClassName() {
+        return className.substring(Math.max(className.lastIndexOf('.'), className.lastIndexOf('$')) + 1);
+    }
+
+    /**
+     * @return package of class followed by dot, empty string for default
+     * package
+     */
+    public String getClassPackage() {
+        int separator = className.lastIndexOf('.');
+        return separator < 0 ? "" : className.substring(0, separator + 1);
+    }
+
+    /**
+     * @return method name used in diagram, constructors are named by their
+     * class
+     */
+    public String getDiagramMethodName() {
+        return isConstructor() ? getSimpleClassName() : methodName;
+    }
+
+    /**
+     * @return name in form package.Class.method
+     */
+    public String getQualifiedName() {
+        return getClassPackage() + getSimpleClassName() + "." + getDiagramMethodName();
+    }
+
+    /**
+     * @param caller enter event of calling method, null for calls at depth 0
+     * @return true if the method is called on the same object as caller, or
+     * on the same class for static methods
+     */
+    public boolean isSelfCall(TraceEvent caller) {
+        return caller != null && !isConstructor() && className.equals(caller.getClassName())
+                && receiverId.equals(caller.getReceiverId());
+    }
+
+    /**
+     * @return true if exit event closes call opened by enter event
+     */
+    public boolean closes(TraceEvent enterEvent) {
+        return !enter && enterEvent.isEnter() && depth == enterEvent.getDepth()
+                && className.equals(enterEvent.getClassName()) && methodName.equals(enterEvent.getMethodName());
+    }
+
+    @Override
+    public String toString() {
+        return (enter ? "> " : "< ") + depth + " " + className + " " + methodName + " " + receiverId;
+    }
+}
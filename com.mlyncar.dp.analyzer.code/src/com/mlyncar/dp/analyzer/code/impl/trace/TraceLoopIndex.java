@@ -0,0 +1,188 @@
+package com.mlyncar.dp.analyzer.code.impl.trace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.entry.EntryPointSelector;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+
+/**
+ * Result of the first pass over call trace. Calls are identified by ordinal
+ * of their enter event. Consecutive calls of the same caller with equal call
+ * trees are iterations of one loop, index keeps ordinal of the first
+ * iteration together with number of iterations. Repeated iterations are left
+ * out of call tree of their caller, so loops differing only in number of
+ * iterations are equal. Receivers of calls are not compared, so iterations
+ * over different objects form one loop, two equal calls written one after
+ * another can not be told apart from loop.
+ *
+ * Call trees are compared by hash built while the trace is read, so only
+ * constant state of every active call is held in memory, index itself grows
+ * with number of loops and selected entry methods.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class TraceLoopIndex {
+
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    private final Logger logger = LoggerFactory.getLogger(TraceLoopIndex.class);
+    private final Map<Long, Integer> loopIterations = new HashMap<Long, Integer>();
+    private final Map<Long, String> entryCalls = new LinkedHashMap<Long, String>();
+
+    private TraceLoopIndex() {
+    }
+
+    /**
+     * Reads whole trace once.
+     *
+     * @param traceFile recorded call trace
+     * @param selectors selectors of entry methods, the first call of every
+     * selected method is kept as entry call
+     * @param project analyzed project used by selectors, may be null
+     */
+    public static TraceLoopIndex scan(Path traceFile, List<EntryPointSelector> selectors, IJavaProject project) throws SourceCodeAnalyzerException {
+        TraceLoopIndex index = new TraceLoopIndex();
+        try (TraceReader reader = new TraceReader(traceFile)) {
+            index.scan(reader, selectors, project);
+        } catch (IOException ex) {
+            throw new SourceCodeAnalyzerException("Unable to close trace file " + traceFile, ex);
+        }
+        return index;
+    }
+
+    /**
+     * @return number of iterations of loop starting by the call, 1 if call
+     * does not start loop
+     */
+    public int getIterations(long callOrdinal) {
+        Integer iterations = loopIterations.get(callOrdinal);
+        return iterations == null ? 1 : iterations;
+    }
+
+    /**
+     * @return ordinals of the first calls of selected entry methods mapped to
+     * qualified names of the methods, in order of trace
+     */
+    public Map<Long, String> getEntryCalls() {
+        return Collections.unmodifiableMap(entryCalls);
+    }
+
+    private void scan(TraceReader reader, List<EntryPointSelector> selectors, IJavaProject project) throws SourceCodeAnalyzerException {
+        Set<String> selectedMethods = new HashSet<String>();
+        Deque<ScanFrame> stack = new ArrayDeque<ScanFrame>();
+        stack.push(new ScanFrame(-1, null));
+        long ordinal = 0;
+        TraceEvent event;
+        while ((event = reader.next()) != null) {
+            ScanFrame parent = stack.peek();
+            if (event.isEnter()) {
+                if (parent.event != null && event.getDepth() != parent.event.getDepth() + 1) {
+                    throw new SourceCodeAnalyzerException("Unexpected depth of event at line " + reader.getLineNumber() + ": " + event);
+                }
+                String qualifiedName = event.getQualifiedName();
+                if (!selectedMethods.contains(qualifiedName) && isSelected(qualifiedName, selectors, project)) {
+                    selectedMethods.add(qualifiedName);
+                    entryCalls.put(ordinal, qualifiedName);
+                }
+                stack.push(new ScanFrame(ordinal++, event, parent.event));
+            } else {
+                if (parent.event == null || !event.closes(parent.event)) {
+                    throw new SourceCodeAnalyzerException("Exit event at line " + reader.getLineNumber() + " does not close current call: " + event);
+                }
+                exitCall(stack);
+            }
+        }
+        if (stack.size() > 1) {
+            logger.debug("Trace ends inside of {} calls, calls are closed at the end of trace", stack.size() - 1);
+        }
+        while (stack.size() > 1) {
+            exitCall(stack);
+        }
+        stack.pop().closeRun(loopIterations);
+        logger.debug("Trace scanned, {} calls, {} loops, {} entry calls", ordinal, loopIterations.size(), entryCalls.size());
+    }
+
+    private void exitCall(Deque<ScanFrame> stack) {
+        ScanFrame frame = stack.pop();
+        frame.closeRun(loopIterations);
+        frame.hash = mix(frame.hash, frame.calls);
+        stack.peek().addChild(frame, loopIterations);
+    }
+
+    private boolean isSelected(String qualifiedName, List<EntryPointSelector> selectors, IJavaProject project) {
+        for (EntryPointSelector selector : selectors) {
+            if (selector.matches(qualifiedName, project)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * HASH_PRIME;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Active call of the first pass together with the run of equal calls it
+     * made last.
+     */
+    private static class ScanFrame {
+
+        private final long ordinal;
+        private final TraceEvent event;
+        private long hash;
+        private long calls = 1;
+        private long runHash;
+        private long runCalls;
+        private long runStart;
+        private int runLength;
+
+        private ScanFrame(long ordinal, TraceEvent event) {
+            this.ordinal = ordinal;
+            this.event = event;
+            this.hash = HASH_SEED;
+        }
+
+        private ScanFrame(long ordinal, TraceEvent event, TraceEvent caller) {
+            this(ordinal, event);
+            hash = mix(mix(mix(hash, event.getClassName().hashCode()), event.getMethodName().hashCode()), event.isSelfCall(caller) ? 1 : 0);
+        }
+
+        private void addChild(ScanFrame child, Map<Long, Integer> loopIterations) {
+            if (runLength > 0 && runHash == child.hash && runCalls == child.calls) {
+                runLength++;
+            } else {
+                closeRun(loopIterations);
+                runHash = child.hash;
+                runCalls = child.calls;
+                runStart = child.ordinal;
+                runLength = 1;
+                hash = mix(hash, child.hash);
+                calls += child.calls;
+            }
+        }
+
+        private void closeRun(Map<Long, Integer> loopIterations) {
+            if (runLength > 1) {
+                loopIterations.put(runStart, runLength);
+            }
+            runLength = 0;
+        }
+    }
+}
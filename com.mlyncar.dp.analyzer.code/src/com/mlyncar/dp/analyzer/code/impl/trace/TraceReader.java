@@ -0,0 +1,85 @@
+package com.mlyncar.dp.analyzer.code.impl.trace;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+
+/**
+ * Streaming reader of call trace file. Every line holds one event in form
+ * <pre>
+ * &gt; depth class method receiver
+ * &lt; depth class method receiver
+ * </pre>
+ * where &gt; stands for method enter and &lt; for method exit, class is binary
+ * class name and receiver is identity of called object or - for static
+ * methods. Empty lines and lines starting with # are skipped. Only the
+ * current line is held in memory.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class TraceReader implements Closeable {
+
+    private final Path traceFile;
+    private final BufferedReader reader;
+    private long lineNumber;
+
+    public TraceReader(Path traceFile) throws SourceCodeAnalyzerException {
+        this.traceFile = traceFile;
+        try {
+            this.reader = Files.newBufferedReader(traceFile, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new SourceCodeAnalyzerException("Unable to open trace file " + traceFile, ex);
+        }
+    }
+
+    /**
+     * @return next event of trace or null at the end of trace
+     */
+    public TraceEvent next() throws SourceCodeAnalyzerException {
+        String line;
+        do {
+            try {
+                line = reader.readLine();
+            } catch (IOException ex) {
+                throw new SourceCodeAnalyzerException("Unable to read trace file " + traceFile, ex);
+            }
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            line = line.trim();
+        } while (line.isEmpty() || line.startsWith("#"));
+        return parseEvent(line);
+    }
+
+    /**
+     * @return number of the last read line counted from one
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private TraceEvent parseEvent(String line) throws SourceCodeAnalyzerException {
+        String[] fields = line.split("\\s+");
+        if (fields.length != 5 || !(fields[0].equals(">") || fields[0].equals("<"))) {
+            throw new SourceCodeAnalyzerException("Malformed event at line " + lineNumber + " of trace file " + traceFile + ": " + line);
+        }
+        int depth;
+        try {
+            depth = Integer.parseInt(fields[1]);
+        } catch (NumberFormatException ex) {
+            throw new SourceCodeAnalyzerException("Malformed depth at line " + lineNumber + " of trace file " + traceFile + ": " + line, ex);
+        }
+        return new TraceEvent(fields[0].equals(">"), depth, fields[2], fields[3], fields[4]);
+    }
+}
@@ -1,12 +1,117 @@
 package com.mlyncar.dp.analyzer.code.service;
 
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaProject;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
+import com.mlyncar.dp.analyzer.code.SourceCodeAnalyzer;
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.code.entry.EntryPointSelector;
 import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
 import com.mlyncar.dp.analyzer.code.impl.KdmAnalyzer;
+import com.mlyncar.dp.analyzer.code.impl.bytecode.BytecodeAnalyzer;
+import com.mlyncar.dp.analyzer.code.impl.jdt.JdtAstAnalyzer;
+import com.mlyncar.dp.analyzer.code.impl.trace.TraceAnalyzer;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.helper.EclipseProjectNavigatorHelper;
 
 public class CodeAnalyzerService {
 
-	public SeqDiagram getSequenceDiagramFromCode() throws SourceCodeAnalyzerException {
-		return new KdmAnalyzer().extractSequenceDiagramFromMain();
+	private final CodeAnalyzerConfiguration configuration;
+	private final IJavaProject project;
+
+	public CodeAnalyzerService() {
+		this(new CodeAnalyzerConfiguration());
+	}
+
+	public CodeAnalyzerService(CodeAnalyzerConfiguration configuration) {
+		this(configuration, EclipseProjectNavigatorHelper.getCurrentProject());
+	}
+
+	/**
+	 * @param project project analyzed by the service, workbench selection is
+	 * not read by analyzers created with it
+	 */
+	public CodeAnalyzerService(CodeAnalyzerConfiguration configuration, IJavaProject project) {
+		this.configuration = configuration;
+		this.project = project;
+	}
+
+	public SeqDiagram getSequenceDiagramFromCode(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+		return createAnalyzer().extractSequenceDiagramFromMain(monitor);
+	}
+
+	public List<SeqDiagram> getSequenceDiagramsFromCode(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+		List<EntryPointSelector> selectors = configuration.getEntryPointSelectors();
+		if (selectors.isEmpty()) {
+			return Collections.singletonList(getSequenceDiagramFromCode(monitor));
+		}
+		return createAnalyzer().extractSequenceDiagrams(selectors, monitor);
+	}
+
+	/**
+	 * Pushes messages of diagram of main method into sink created by factory.
+	 */
+	public void streamSequenceDiagramFromCode(MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+		createAnalyzer().extractSequenceDiagramFromMain(sinkFactory, monitor);
+	}
+
+	/**
+	 * Pushes messages of diagrams of configured entry points, or of main
+	 * method if no entry point is configured, into sinks created by factory.
+	 */
+	public void streamSequenceDiagramsFromCode(MessageSinkFactory sinkFactory, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+		List<EntryPointSelector> selectors = configuration.getEntryPointSelectors();
+		if (selectors.isEmpty()) {
+			streamSequenceDiagramFromCode(sinkFactory, monitor);
+		} else {
+			createAnalyzer().extractSequenceDiagrams(selectors, sinkFactory, monitor);
+		}
+	}
+
+	/**
+	 * Call tree of main method, calls are extracted when they are read.
+	 */
+	public CallTree getCallTreeFromCode(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+		return createAnalyzer().extractCallTreeFromMain(monitor);
+	}
+
+	/**
+	 * Call trees of configured entry points, or of main method if no entry
+	 * point is configured, calls are extracted when they are read.
+	 */
+	public List<CallTree> getCallTreesFromCode(IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+		List<EntryPointSelector> selectors = configuration.getEntryPointSelectors();
+		if (selectors.isEmpty()) {
+			return Collections.singletonList(getCallTreeFromCode(monitor));
+		}
+		return createAnalyzer().extractCallTrees(selectors, monitor);
+	}
+
+	/**
+	 * Call trees of methods invoked by root messages of diagrams, null for
+	 * message no method was found for. Depth of every tree is limited by depth
+	 * limit of its root message.
+	 */
+	public List<CallTree> getTargetedCallTreesFromCode(List<Message> rootMessages, List<Integer> depthLimits, IProgressMonitor monitor) throws SourceCodeAnalyzerException {
+		return createAnalyzer().extractTargetedCallTrees(rootMessages, depthLimits, monitor);
+	}
+
+	private SourceCodeAnalyzer createAnalyzer() {
+		switch (configuration.getAnalyzerEngine()) {
+			case JDT:
+				return new JdtAstAnalyzer(configuration, project);
+			case BYTECODE:
+				return new BytecodeAnalyzer(configuration, project);
+			case TRACE:
+				return new TraceAnalyzer(configuration, project);
+			default:
+				return new KdmAnalyzer(configuration, project);
+		}
 	}
 }
@@ -0,0 +1,134 @@
+package com.mlyncar.dp.analyzer.uml.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.uml2.uml.BehavioredClassifier;
+import org.eclipse.uml2.uml.Interaction;
+import org.eclipse.uml2.uml.Package;
+import org.eclipse.uml2.uml.UMLPackage;
+
+/**
+ * Index of interactions of UML resource by their name, adapter of the
+ * resource and all its contents. Index is built from contents of the
+ * resource on first request and discarded when interaction is renamed or
+ * element which can own interactions is added to or removed from the
+ * resource, changes inside of interactions keep the index valid.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+class InteractionIndex extends EContentAdapter {
+
+    private final Resource resource;
+    private List<Interaction> interactions;
+    private Map<String, Interaction> interactionsByName;
+
+    /**
+     * @return index adapting the resource, index is created if the resource
+     * has none
+     */
+    static InteractionIndex getIndex(Resource resource) {
+        for (Object adapter : resource.eAdapters()) {
+            if (adapter instanceof InteractionIndex) {
+                return (InteractionIndex) adapter;
+            }
+        }
+        InteractionIndex index = new InteractionIndex(resource);
+        resource.eAdapters().add(index);
+        return index;
+    }
+
+    /**
+     * Target of content adapter changes to every adapted object, so indexed
+     * resource is kept separately.
+     *
+     * @param resource indexed resource
+     */
+    private InteractionIndex(Resource resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * @return interactions in order of resource contents
+     */
+    List<Interaction> getInteractions() {
+        if (interactions == null) {
+            build();
+        }
+        return interactions;
+    }
+
+    /**
+     * @return the first interaction with the name or null if resource has
+     * no such interaction
+     */
+    Interaction getInteraction(String name) {
+        if (interactionsByName == null) {
+            build();
+        }
+        return interactionsByName.get(name);
+    }
+
+    @Override
+    public void notifyChanged(Notification notification) {
+        super.notifyChanged(notification);
+        if (interactions != null && invalidates(notification)) {
+            interactions = null;
+            interactionsByName = null;
+        }
+    }
+
+    private void build() {
+        List<Interaction> foundInteractions = new ArrayList<Interaction>();
+        Map<String, Interaction> foundInteractionsByName = new HashMap<String, Interaction>();
+        Iterator<EObject> it = resource.getAllContents();
+        while (it.hasNext()) {
+            EObject object = it.next();
+            if (object instanceof Interaction) {
+                Interaction interaction = (Interaction) object;
+                foundInteractions.add(interaction);
+                if (interaction.getName() != null && !foundInteractionsByName.containsKey(interaction.getName())) {
+                    foundInteractionsByName.put(interaction.getName(), interaction);
+                }
+            }
+        }
+        interactions = Collections.unmodifiableList(foundInteractions);
+        interactionsByName = foundInteractionsByName;
+    }
+
+    private boolean invalidates(Notification notification) {
+        if (notification.getNotifier() instanceof Resource) {
+            return notification.getFeatureID(Resource.class) == Resource.RESOURCE__CONTENTS;
+        }
+        Object feature = notification.getFeature();
+        if (notification.getNotifier() instanceof Interaction && feature == UMLPackage.Literals.NAMED_ELEMENT__NAME) {
+            return true;
+        }
+        if (!(feature instanceof EReference) || !((EReference) feature).isContainment()) {
+            return false;
+        }
+        return mayOwnInteraction(notification.getOldValue()) || mayOwnInteraction(notification.getNewValue());
+    }
+
+    private boolean mayOwnInteraction(Object value) {
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                if (mayOwnInteraction(element)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return value instanceof Package || value instanceof BehavioredClassifier;
+    }
+}
@@ -16,7 +16,6 @@
 package com.mlyncar.dp.analyzer.uml.impl;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.emf.common.util.EList;
@@ -29,6 +28,8 @@ import org.eclipse.uml2.uml.CombinedFragment;
 import org.eclipse.uml2.uml.Interaction;
 import org.eclipse.uml2.uml.InteractionFragment;
 import org.eclipse.uml2.uml.InteractionOperand;
+import org.eclipse.uml2.uml.InteractionUse;
+import org.eclipse.uml2.uml.Lifeline;
 import org.eclipse.uml2.uml.LiteralString;
 import org.eclipse.uml2.uml.MessageOccurrenceSpecification;
 import org.eclipse.uml2.uml.MessageSort;
@@ -54,18 +55,44 @@ import com.mlyncar.dp.analyzer.uml.UmlAnalyzer;
 import com.mlyncar.dp.analyzer.uml.exception.InteractionNotFoundException;
 
 /**
+ * UML and notation models are loaded into one resource set of the analyzer,
+ * so every model file is parsed at most once per analyzer and references of
+ * notation resolve to elements of the same UML resource. Resources are
+ * shared by all diagrams of the analyzer and by interpreters modifying them.
+ * Interactions are located through {@link InteractionIndex} of the UML
+ * resource instead of traversing the whole model.
  *
  * @author Andrej Mlyncar <a.mlyncar@gmail.com>
  */
 public class XmiUmlAnalyzer implements UmlAnalyzer {
 
+    private final ResourceSet resourceSet;
+    private final String modelPath;
     private Resource resource;
     private Resource notationResource;
     private final Logger logger = LoggerFactory.getLogger(XmiUmlAnalyzer.class);
 
+    public XmiUmlAnalyzer() {
+        this(null);
+    }
+
+    /**
+     * @param modelPath model analyzed by methods without model path, model of
+     * selected project is used if it is null
+     */
+    public XmiUmlAnalyzer(String modelPath) {
+        this.modelPath = modelPath;
+        this.resourceSet = new ResourceSetImpl();
+        resourceSet.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap()
+                .put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
+        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap()
+                .put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
+    }
+
     @Override
     public List<SeqDiagram> analyzeUmlModel() throws AnalyzerException {
-        return analyzeUmlModel(EclipseProjectNavigatorHelper.getCurrentProjectModel());
+        return analyzeUmlModel(getModelPath());
     }
 
     @Override
@@ -83,23 +110,19 @@ public class XmiUmlAnalyzer implements UmlAnalyzer {
         this.resource = loadUmlModelResource(pathToModel);
         this.notationResource = loadNotationModelResource(pathToModel);
         List<SeqDiagram> diagrams = new ArrayList<>();
-        Iterator<EObject> it = resource.getAllContents();
-        while (it.hasNext()) {
-            EObject object = it.next();
-            if (object instanceof Interaction) {
-                Interaction interaction = (Interaction) object;
-                SeqDiagram newDiagram = analyzeInteraction(interaction);
-                TestHelper.validateDiagram(newDiagram);
-                diagrams.add(newDiagram);
-            }
+        for (Interaction interaction : InteractionIndex.getIndex(resource).getInteractions()) {
+            SeqDiagram newDiagram = analyzeInteraction(interaction);
+            TestHelper.validateDiagram(newDiagram);
+            diagrams.add(newDiagram);
         }
         return diagrams;
     }
 
     @Override
     public SeqDiagram analyzeSequenceDiagram(String diagramName) throws AnalyzerException {
-        this.resource = loadUmlModelResource(EclipseProjectNavigatorHelper.getCurrentProjectModel());
-        this.notationResource = loadNotationModelResource(EclipseProjectNavigatorHelper.getCurrentProjectModel());
+        String pathToModel = getModelPath();
+        this.resource = loadUmlModelResource(pathToModel);
+        this.notationResource = loadNotationModelResource(pathToModel);
         try {
             Interaction interaction = findInteraction(diagramName);
             SeqDiagram diagram = analyzeInteraction(interaction);
@@ -110,16 +133,14 @@ public class XmiUmlAnalyzer implements UmlAnalyzer {
         }
     }
 
+    private String getModelPath() throws AnalyzerException {
+        return modelPath == null ? EclipseProjectNavigatorHelper.getCurrentProjectModel() : modelPath;
+    }
+
     private Interaction findInteraction(String interactionName) throws InteractionNotFoundException {
-        Iterator<EObject> it = resource.getAllContents();
-        while (it.hasNext()) {
-            EObject object = it.next();
-            if (object instanceof Interaction) {
-                Interaction interaction = (Interaction) object;
-                if (interaction.getName().equals(interactionName)) {
-                    return interaction;
-                }
-            }
+        Interaction interaction = InteractionIndex.getIndex(resource).getInteraction(interactionName);
+        if (interaction != null) {
+            return interaction;
         }
         throw new InteractionNotFoundException("Interaction with name " + interactionName + " not found.");
     }
@@ -165,6 +186,19 @@ public class XmiUmlAnalyzer implements UmlAnalyzer {
                         diagram.addMessage(message);
                     }
                 }
+            } else if (object instanceof InteractionUse) {
+                InteractionUse interactionUse = (InteractionUse) object;
+                if (interactionUse.getCovereds().isEmpty()) {
+                    continue;
+                }
+                Lifeline sourceLifeline = interactionUse.getCovereds().get(0);
+                Lifeline targetLifeline = interactionUse.getCovereds().get(interactionUse.getCovereds().size() - 1);
+                String reference = interactionUse.getRefersTo() == null ? null : interactionUse.getRefersTo().getName();
+                Message message = new MessageImpl(counter++, MessageType.REFERENCE, interactionUse.getName(),
+                        new LifelineImpl(targetLifeline.getName()),
+                        new LifelineImpl(sourceLifeline.getName()), fragments, reference);
+                logger.debug("Creating reference message {} to interaction {}", message.getName(), reference);
+                diagram.addMessage(message);
             } else if (object instanceof CombinedFragment) {
                 CombinedFragment umlCombFragment = (CombinedFragment) object;
                 umlCombFragment.getInteractionOperator().getName();
@@ -188,22 +222,18 @@ public class XmiUmlAnalyzer implements UmlAnalyzer {
         }
     }
 
+    /**
+     * @return resource of the model, it is loaded only if the resource set
+     * does not contain it yet
+     */
     private Resource loadUmlModelResource(String pathToModel) {
-        ResourceSet set = new ResourceSetImpl();
-        set.getPackageRegistry().put(UMLPackage.eNS_URI, UMLPackage.eINSTANCE);
-        set.getResourceFactoryRegistry().getExtensionToFactoryMap()
-                .put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
-        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap()
-                .put(UMLResource.FILE_EXTENSION, UMLResource.Factory.INSTANCE);
-
-        Resource resource = set.getResource(URI.createFileURI(pathToModel), true);
+        Resource resource = resourceSet.getResource(URI.createFileURI(pathToModel), true);
         return resource;
     }
 
     private Resource loadNotationModelResource(String pathToModel) {
         String notationModel = pathToModel.substring(0, pathToModel.lastIndexOf('.')) + ".notation";
-        ResourceSet set = new ResourceSetImpl();
-        Resource resource = set.getResource(URI.createFileURI(notationModel), true);
+        Resource resource = resourceSet.getResource(URI.createFileURI(notationModel), true);
         return resource;
     }
 }
@@ -7,13 +7,25 @@ import com.mlyncar.dp.analyzer.exception.AnalyzerException;
 import com.mlyncar.dp.analyzer.uml.UmlAnalyzer;
 import com.mlyncar.dp.analyzer.uml.impl.XmiUmlAnalyzer;
 
+/**
+ * Models are loaded once per service, diagrams analyzed by the same service
+ * share their UML and notation resources.
+ */
 public class UmlAnalyzerService {
 
-	private UmlAnalyzer analyzer;
+	private final UmlAnalyzer analyzer;
 	
 	public UmlAnalyzerService() {
 		this.analyzer = new XmiUmlAnalyzer();
 	}
+
+	/**
+	 * @param modelPath UML model analyzed by the service instead of model of
+	 * selected project
+	 */
+	public UmlAnalyzerService(String modelPath) {
+		this.analyzer = new XmiUmlAnalyzer(modelPath);
+	}
 	
 	public List<SeqDiagram> getAllModelDiagrams() throws AnalyzerException {
 		return analyzer.analyzeUmlModel();
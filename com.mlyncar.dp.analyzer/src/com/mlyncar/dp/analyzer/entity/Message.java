@@ -47,4 +47,10 @@ public interface Message {
 
     public void addCombinedFragments(List<CombFragment> fragments);
 
+    /**
+     * @return name of interaction referenced by message of type
+     * {@link MessageType#REFERENCE}, null for other messages
+     */
+    public String getInteractionReference();
+
 }
@@ -0,0 +1,13 @@
+package com.mlyncar.dp.analyzer.entity;
+
+import com.mlyncar.dp.analyzer.exception.MessageSinkException;
+
+/**
+ * Receiver of messages pushed by analyzer in order they are discovered.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public interface MessageSink {
+
+    public void addMessage(Message message) throws MessageSinkException;
+}
@@ -0,0 +1,18 @@
+package com.mlyncar.dp.analyzer.entity;
+
+/**
+ * Creates sink for every diagram extracted by analyzer. Sinks are created
+ * in order of extracted diagrams before extraction starts, messages of one
+ * diagram are pushed into its sink from single thread.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public interface MessageSinkFactory {
+
+    /**
+     * @param diagram diagram carrying name of extraction, messages are not
+     * added to it unless it is returned as its own sink
+     * @return sink receiving messages of diagram
+     */
+    public MessageSink createSink(SeqDiagram diagram);
+}
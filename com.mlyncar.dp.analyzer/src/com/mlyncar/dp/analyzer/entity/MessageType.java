@@ -28,7 +28,8 @@ public enum MessageType {
     CREATE("create"),
     RETURN("return"),
     DESTROY("destroy"),
-    SELF("self");
+    SELF("self"),
+    REFERENCE("reference");
 
     private final String code;
 
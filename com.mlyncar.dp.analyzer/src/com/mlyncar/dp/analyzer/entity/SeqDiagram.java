@@ -21,7 +21,7 @@ import java.util.List;
  *
  * @author Andrej Mlyncar <a.mlyncar@gmail.com>
  */
-public interface SeqDiagram {
+public interface SeqDiagram extends MessageSink {
 
     public String getName();
 
@@ -33,6 +33,7 @@ public interface SeqDiagram {
 
     public List<Message> getMessages();
 
+    @Override
     public void addMessage(Message message);
 
     public void setInteraction(Object interaction);
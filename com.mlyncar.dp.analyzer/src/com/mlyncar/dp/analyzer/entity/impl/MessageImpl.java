@@ -35,8 +35,14 @@ public class MessageImpl implements Message {
     private Lifeline sourceLifeline;
     private final Integer seqNumber;
     private final List<CombFragment> combFragments;
+    private final String interactionReference;
 
     public MessageImpl(Integer seqNumber, MessageType type, String name, Lifeline targetLifeline, Lifeline sourceLifeline, List<CombFragment> combFragments) {
+        this(seqNumber, type, name, targetLifeline, sourceLifeline, combFragments, null);
+    }
+
+    public MessageImpl(Integer seqNumber, MessageType type, String name, Lifeline targetLifeline, Lifeline sourceLifeline, List<CombFragment> combFragments, String interactionReference) {
+        this.interactionReference = interactionReference;
         this.type = type;
         this.name = name;
         this.targetLifeline = targetLifeline;
@@ -103,4 +109,9 @@ public class MessageImpl implements Message {
     public void addCombinedFragments(List<CombFragment> fragments) {
         this.combFragments.addAll(fragments);
     }
+
+    @Override
+    public String getInteractionReference() {
+        return this.interactionReference;
+    }
 }
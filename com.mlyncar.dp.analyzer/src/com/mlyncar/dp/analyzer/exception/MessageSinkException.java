@@ -0,0 +1,21 @@
+package com.mlyncar.dp.analyzer.exception;
+
+/**
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class MessageSinkException extends Exception {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 4418916820357162253L;
+
+    public MessageSinkException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public MessageSinkException(String message) {
+        super(message);
+    }
+}
@@ -23,46 +23,78 @@ import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.ui.ISelectionService;
+import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 
 import com.mlyncar.dp.analyzer.exception.AnalyzerException;
 
 /**
+ * Selection is always read in UI thread. Synchronization running in
+ * background job reads selection once by {@link #getSelectedProject()}
+ * before the job is scheduled.
  *
  * @author Andrej Mlyncar <a.mlyncar@gmail.com>
  */
 public class EclipseProjectNavigatorHelper {
 
     public static IJavaProject getCurrentProject() {
-        ISelectionService selectionService = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getSelectionService();
-        ISelection selection = selectionService.getSelection();
+        IProject selectedProject = getSelectedResourceProject(getSelection());
+        return selectedProject == null ? null : JavaCore.create(selectedProject);
+    }
+
+    public static String getCurrentProjectModel() throws AnalyzerException {
+        return getProjectModel(getSelectedResourceProject(getSelection()));
+    }
+
+    /**
+     * @return project and UML model of the current selection read at once,
+     * null if no project is selected
+     */
+    public static SelectedProject getSelectedProject() throws AnalyzerException {
+        IProject selectedProject = getSelectedResourceProject(getSelection());
+        if (selectedProject == null) {
+            return null;
+        }
+        return new SelectedProject(JavaCore.create(selectedProject), getProjectModel(selectedProject));
+    }
+
+    private static IProject getSelectedResourceProject(ISelection selection) {
         if (selection instanceof IStructuredSelection) {
             Object element = ((IStructuredSelection) selection)
                     .getFirstElement();
-            IProject selectedProject = (IProject) element;
-            return JavaCore.create(selectedProject);
+            return (IProject) element;
         }
         return null;
     }
 
-    public static String getCurrentProjectModel() throws AnalyzerException {
-        ISelectionService selectionService = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getSelectionService();
-        ISelection selection = selectionService.getSelection();
-        if (selection instanceof IStructuredSelection) {
-            Object element = ((IStructuredSelection) selection)
-                    .getFirstElement();
-            IProject selectedProject = (IProject) element;
-            try {
-                for (IResource resource : selectedProject.members()) {
-                    if (resource.getFullPath().toOSString().endsWith(".uml") || resource.getFullPath().toOSString().endsWith(".UML")) {
-                        return resource.getLocation().toString();
-                    }
+    private static String getProjectModel(IProject selectedProject) throws AnalyzerException {
+        if (selectedProject == null) {
+            return null;
+        }
+        try {
+            for (IResource resource : selectedProject.members()) {
+                if (resource.getFullPath().toOSString().endsWith(".uml") || resource.getFullPath().toOSString().endsWith(".UML")) {
+                    return resource.getLocation().toString();
                 }
-            } catch (CoreException ex) {
-                throw new AnalyzerException("Error obtaining project uml model. ", ex);
             }
-
+        } catch (CoreException ex) {
+            throw new AnalyzerException("Error obtaining project uml model. ", ex);
         }
         return null;
     }
+
+    private static ISelection getSelection() {
+        ISelection[] selection = new ISelection[1];
+        PlatformUI.getWorkbench().getDisplay().syncExec(() -> {
+            IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+            if (window == null && PlatformUI.getWorkbench().getWorkbenchWindowCount() > 0) {
+                window = PlatformUI.getWorkbench().getWorkbenchWindows()[0];
+            }
+            if (window != null) {
+                ISelectionService selectionService = window.getSelectionService();
+                selection[0] = selectionService.getSelection();
+            }
+        });
+        return selection[0];
+    }
 }
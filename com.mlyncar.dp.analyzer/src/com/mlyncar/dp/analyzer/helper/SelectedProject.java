@@ -0,0 +1,33 @@
+package com.mlyncar.dp.analyzer.helper;
+
+import org.eclipse.jdt.core.IJavaProject;
+
+/**
+ * Project and its UML model read from workbench selection at one moment,
+ * synchronization running in background uses them instead of the selection
+ * which may change while it runs.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class SelectedProject {
+
+    private final IJavaProject project;
+    private final String modelPath;
+
+    public SelectedProject(IJavaProject project, String modelPath) {
+        this.project = project;
+        this.modelPath = modelPath;
+    }
+
+    public IJavaProject getProject() {
+        return project;
+    }
+
+    /**
+     * @return location of UML model of the project or null if project has no
+     * UML model
+     */
+    public String getModelPath() {
+        return modelPath;
+    }
+}
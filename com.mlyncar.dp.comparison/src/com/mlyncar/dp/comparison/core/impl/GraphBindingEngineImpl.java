@@ -1,5 +1,8 @@
 package com.mlyncar.dp.comparison.core.impl;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,7 +11,6 @@ import com.mlyncar.dp.comparison.core.NodeRelationComparator;
 import com.mlyncar.dp.comparison.enums.NodeRelation;
 import com.mlyncar.dp.comparison.exception.GraphBindingException;
 import com.mlyncar.dp.transformer.entity.Graph;
-import com.mlyncar.dp.transformer.entity.LeveledNode;
 import com.mlyncar.dp.transformer.entity.Node;
 import com.mlyncar.dp.transformer.service.TransformationService;
 
@@ -16,15 +18,23 @@ public class GraphBindingEngineImpl implements GraphBindingEngine {
 
     private final Logger logger = LoggerFactory.getLogger(GraphBindingEngineImpl.class);
 
+    /**
+     * Reference graph is searched level by level and only until suitable root
+     * is found, so nodes below the root are not expanded.
+     */
     @Override
     public Graph createSubgraphBasedOnComparedGraph(Graph referenceGraph, Graph subGraph, TransformationService transService) throws GraphBindingException {
         logger.debug("Starting to find pair for sequence diagram root node " + subGraph.getRootNode().getName());
-        for (LeveledNode node : referenceGraph.getOrderedNodes()) {
-            if (isNodeSuitableForRoot(node.getNode(), subGraph.getRootNode())) {
-                Graph graph = transService.createGraphStructure(node.getNode(), referenceGraph);
-                removeChildReplyMessage(node.getNode());
+        Deque<Node> pendingNodes = new ArrayDeque<Node>();
+        pendingNodes.add(referenceGraph.getRootNode());
+        while (!pendingNodes.isEmpty()) {
+            Node node = pendingNodes.poll();
+            if (isNodeSuitableForRoot(node, subGraph.getRootNode())) {
+                Graph graph = transService.createGraphStructure(node, referenceGraph);
+                removeChildReplyMessage(node);
                 return graph;
             }
+            pendingNodes.addAll(node.childNodes());
         }
         throw new GraphBindingException("Unable to create subgraph structure, no suitable root found in reference structure");
     }
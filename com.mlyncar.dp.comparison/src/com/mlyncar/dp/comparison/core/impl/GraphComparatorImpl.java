@@ -11,7 +11,10 @@ import com.mlyncar.dp.comparison.core.GraphComparator;
 import com.mlyncar.dp.comparison.core.NodeRelationComparator;
 import com.mlyncar.dp.comparison.entity.ChangeLog;
 import com.mlyncar.dp.comparison.entity.impl.ChangeLogImpl;
+import com.mlyncar.dp.comparison.enums.NodeRelation;
 import com.mlyncar.dp.comparison.exception.GraphBindingException;
+import com.mlyncar.dp.transformer.entity.Edge;
+import com.mlyncar.dp.transformer.entity.EdgeType;
 import com.mlyncar.dp.transformer.entity.Graph;
 import com.mlyncar.dp.transformer.entity.LeveledNode;
 import com.mlyncar.dp.transformer.entity.Node;
@@ -116,7 +119,7 @@ public class GraphComparatorImpl implements GraphComparator {
                             break;
                     }
                 }
-                if (!similarityFound) {
+                if (!similarityFound && !isCoveredByReference(subNode.getNode(), referenceGraphNodes, nodeRelationComparator)) {
                     changeLog.addChanges(generator.createMessageRemovalChange(subNode.getNode(), referenceGraphNodes));
                 }
             }
@@ -124,6 +127,27 @@ public class GraphComparatorImpl implements GraphComparator {
         return changeLog;
     }
 
+    /**
+     * Messages nested in call which is represented only by interaction
+     * reference in reference graph were not extracted and can not be
+     * considered removed.
+     */
+    private boolean isCoveredByReference(Node subNode, List<LeveledNode> referenceGraphNodes, NodeRelationComparator nodeRelationComparator) {
+        Node ancestor = subNode.getParentNode();
+        while (ancestor != null && ancestor.getCreateEdge() != null) {
+            for (LeveledNode referenceNode : referenceGraphNodes) {
+                Edge referenceEdge = referenceNode.getNode().getCreateEdge();
+                if (referenceEdge != null && referenceEdge.getEdgeType().equals(EdgeType.REFERENCE)
+                        && nodeRelationComparator.getNodeRelation(referenceNode.getNode(), ancestor) != NodeRelation.DIFFERENT) {
+                    logger.debug("Message {} is covered by interaction reference {}", subNode.getCreateEdge().getName(), referenceEdge.getInteractionReference());
+                    return true;
+                }
+            }
+            ancestor = ancestor.getParentNode();
+        }
+        return false;
+    }
+
     private void generateFragmentChanges(Node node1, Node node2, ChangeLog changeLog) {
         int lastNode2Index = node2.combinedFragments().size() - 1;
         for (int i = 0; i < node1.combinedFragments().size(); i++) {
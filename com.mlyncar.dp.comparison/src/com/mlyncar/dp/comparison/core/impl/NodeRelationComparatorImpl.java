@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import com.mlyncar.dp.comparison.core.NodeRelationComparator;
 import com.mlyncar.dp.comparison.entity.SignatureType;
 import com.mlyncar.dp.comparison.enums.NodeRelation;
+import com.mlyncar.dp.transformer.entity.EdgeType;
 import com.mlyncar.dp.transformer.entity.Node;
 
 public class NodeRelationComparatorImpl implements NodeRelationComparator {
@@ -100,7 +101,13 @@ public class NodeRelationComparatorImpl implements NodeRelationComparator {
     }
 
     private boolean edgesEqualType(Node node1, Node node2) {
-        return node1.getCreateEdge().getEdgeType().equals(node2.getCreateEdge().getEdgeType());
+        EdgeType type1 = node1.getCreateEdge().getEdgeType();
+        EdgeType type2 = node2.getCreateEdge().getEdgeType();
+        if (type1.equals(EdgeType.REFERENCE) || type2.equals(EdgeType.REFERENCE)) {
+            //interaction reference stands for not expanded call of the same method
+            return !type1.equals(EdgeType.RETURN) && !type2.equals(EdgeType.RETURN);
+        }
+        return type1.equals(type2);
     }
 
 }
@@ -3,9 +3,13 @@ package com.mlyncar.dp.comparison.service;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.helper.SelectedProject;
 import com.mlyncar.dp.comparison.core.GraphComparator;
 import com.mlyncar.dp.comparison.core.impl.GraphComparatorImpl;
 import com.mlyncar.dp.comparison.entity.Change;
@@ -14,6 +18,7 @@ import com.mlyncar.dp.comparison.exception.ComparisonException;
 import com.mlyncar.dp.comparison.exception.GraphBindingException;
 import com.mlyncar.dp.comparison.test.ComparisonTestHelper;
 import com.mlyncar.dp.transformer.entity.Graph;
+import com.mlyncar.dp.transformer.exception.CallTreeExpansionException;
 import com.mlyncar.dp.transformer.exception.GraphTransformationException;
 import com.mlyncar.dp.transformer.service.TransformationService;
 
@@ -24,17 +29,70 @@ import com.mlyncar.dp.transformer.service.TransformationService;
 public class ComparisonService {
 
     private final Logger logger = LoggerFactory.getLogger(ComparisonService.class);
+    private final CodeAnalyzerConfiguration analyzerConfiguration;
+    private final SelectedProject selectedProject;
 
-    public List<ChangeLog> compareUmlModelWithSourceCode() throws ComparisonException {
+    public ComparisonService() {
+        this(new CodeAnalyzerConfiguration());
+    }
+
+    public ComparisonService(CodeAnalyzerConfiguration analyzerConfiguration) {
+        this(analyzerConfiguration, null);
+    }
+
+    /**
+     * @param selectedProject project and UML model which are compared, the
+     * current workbench selection is used if it is null
+     */
+    public ComparisonService(CodeAnalyzerConfiguration analyzerConfiguration, SelectedProject selectedProject) {
+        this.analyzerConfiguration = analyzerConfiguration;
+        this.selectedProject = selectedProject;
+    }
+
+    /**
+     * UML model is loaded first, then code of root messages is analyzed and
+     * every diagram is compared with its code graph. Graphs of entry points
+     * are created only for diagrams without graph of their root messages,
+     * either lazily or from whole extracted diagrams, see
+     * {@link CodeAnalyzerConfiguration#isLazyExtractionEnabled()}.
+     * Cancellation is checked before every stage and every diagram.
+     *
+     * @param monitor monitor of comparison, comparison throws
+     * {@link org.eclipse.core.runtime.OperationCanceledException} when it is
+     * canceled
+     */
+    public List<ChangeLog> compareUmlModelWithSourceCode(IProgressMonitor monitor) throws ComparisonException {
     	List<ChangeLog> logs = new ArrayList<ChangeLog>();
-        TransformationService service = new TransformationService();
+        TransformationService service = selectedProject == null
+                ? new TransformationService(analyzerConfiguration)
+                : new TransformationService(analyzerConfiguration, selectedProject);
         GraphComparator comparator = new GraphComparatorImpl(service);
+        SubMonitor progress = SubMonitor.convert(monitor, "Comparing diagrams with source code", 100);
         try {
         	
             logger.debug("Starting to generate changes between graph structures.");
-            Graph umlGraph1 = service.getGraphStructureFromSourceCode();
-            for(Graph umlGraph2 : service.getGraphStructuresFromUmlModel()) {
-                ChangeLog log = comparator.compareGraphStructures(umlGraph1, umlGraph2);
+            progress.subTask("Loading UML model");
+            List<Graph> umlGraphs = service.getGraphStructuresFromUmlModel(progress.split(10));
+            List<Graph> targetedGraphs = null;
+            if (analyzerConfiguration.isTargetedExtractionEnabled()) {
+                progress.subTask("Analyzing source code");
+                targetedGraphs = service.getTargetedGraphStructuresFromSourceCode(umlGraphs, progress.split(40));
+            }
+            SubMonitor comparison = progress.split(50).setWorkRemaining(umlGraphs.size());
+            List<Graph> codeGraphs = null;
+            for (int i = 0; i < umlGraphs.size(); i++) {
+                Graph umlGraph2 = umlGraphs.get(i);
+                SubMonitor diagramProgress = comparison.split(1);
+                comparison.subTask("Comparing diagram " + umlGraph2.getSeqDiagram().getName());
+                ChangeLog log = targetedGraphs == null ? null : compareWithTargetedGraph(comparator, targetedGraphs.get(i), umlGraph2);
+                if (log == null) {
+                    if (codeGraphs == null) {
+                        codeGraphs = analyzerConfiguration.isLazyExtractionEnabled()
+                                ? service.getLazyGraphStructuresFromSourceCode(diagramProgress)
+                                : service.getGraphStructuresFromSourceCode(diagramProgress);
+                    }
+                    log = compareWithCodeGraphs(comparator, codeGraphs, umlGraph2);
+                }
                 logs.add(log);
                 ComparisonTestHelper.printChanges(log);
             }     
@@ -43,7 +101,47 @@ public class ComparisonService {
             throw new ComparisonException("Comparison Service failed: Error while transforming diagram structure to graph.", ex);
         } catch (GraphBindingException ex) {
             throw new ComparisonException("Comparison Service failed: Error while finding sequence diagram root in reference structure.", ex);
+        } catch (CallTreeExpansionException ex) {
+            throw new ComparisonException("Comparison Service failed: Error while extracting calls of source code graph.", ex);
+        }
+    }
+
+    /**
+     * @return changes between diagram graph and graph extracted from methods
+     * invoked by root messages of the diagram, null if there is no such graph
+     * or the diagram can not be bound to it
+     */
+    private ChangeLog compareWithTargetedGraph(GraphComparator comparator, Graph targetedGraph, Graph diagramGraph) {
+        if (targetedGraph == null) {
+            logger.debug("No root message of diagram was found in code, using graphs of entry points.");
+            return null;
+        }
+        try {
+            return comparator.compareGraphStructures(targetedGraph, diagramGraph);
+        } catch (GraphBindingException ex) {
+            logger.debug("Diagram can not be bound to graph extracted from its root messages, using graphs of entry points.");
+            return null;
+        }
+    }
+
+    /**
+     * Compares diagram graph with the first graph extracted from code the
+     * diagram can be bound to.
+     */
+    private ChangeLog compareWithCodeGraphs(GraphComparator comparator, List<Graph> codeGraphs, Graph diagramGraph) throws GraphBindingException {
+        GraphBindingException bindingException = null;
+        for (Graph codeGraph : codeGraphs) {
+            try {
+                return comparator.compareGraphStructures(codeGraph, diagramGraph);
+            } catch (GraphBindingException ex) {
+                logger.debug("Diagram can not be bound to graph extracted from code, trying next entry point.");
+                bindingException = ex;
+            }
+        }
+        if (bindingException == null) {
+            throw new GraphBindingException("No sequence diagram was extracted from source code.");
         }
+        throw bindingException;
     }
 
     public List<Change> findChangesInGraph(Graph referenceTree, Graph subTree) {
@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 
 import com.mlyncar.dp.comparison.entity.Change;
 import com.mlyncar.dp.interpreter.exception.InterpreterException;
+import com.mlyncar.dp.transformer.entity.EdgeType;
 import com.mlyncar.dp.transformer.entity.Node;
 import com.mlyncar.dp.transformer.entity.NodeCombinedFragment;
 
@@ -39,9 +40,9 @@ public class ChangeLogInterpreter extends AbstractInterpreter {
         	return;
         }
         if (newValue.getLeftSibling() != null && newValue.getLeftSibling().getCreateEdge() != null) {
-            outputLine = new Date().toString() + ": " + change.getChangeType().getCode() + " = After:" + newValue.getLeftSibling().getCreateEdge().getName() + "; " + newValue.getCreateEdge().getName();
+            outputLine = new Date().toString() + ": " + change.getChangeType().getCode() + " = After:" + newValue.getLeftSibling().getCreateEdge().getName() + "; " + getMessageDescription(newValue);
         } else {
-            outputLine = new Date().toString() + ": " + change.getChangeType().getCode() + " = " + newValue.getCreateEdge().getName();
+            outputLine = new Date().toString() + ": " + change.getChangeType().getCode() + " = " + getMessageDescription(newValue);
         }
         logger.debug(outputLine);
         fileWriter.println(outputLine);
@@ -66,9 +67,9 @@ public class ChangeLogInterpreter extends AbstractInterpreter {
         	return;
         }
         if (newValue.getLeftSibling() != null && newValue.getLeftSibling().getCreateEdge() != null) {
-            outputLine = new Date().toString() + ": " + change.getChangeType().getCode() + " = After:" + newValue.getLeftSibling().getCreateEdge().getName() + "; " + newValue.getCreateEdge().getName();
+            outputLine = new Date().toString() + ": " + change.getChangeType().getCode() + " = After:" + newValue.getLeftSibling().getCreateEdge().getName() + "; " + getMessageDescription(newValue);
         } else {
-            outputLine = new Date().toString() + ": " + change.getChangeType().getCode() + " = " + newValue.getCreateEdge().getName();
+            outputLine = new Date().toString() + ": " + change.getChangeType().getCode() + " = " + getMessageDescription(newValue);
         }
         logger.debug(outputLine);
         fileWriter.println(outputLine);
@@ -125,4 +126,11 @@ public class ChangeLogInterpreter extends AbstractInterpreter {
         fileWriter.println(outputLine);
     }
 
+    private String getMessageDescription(Node node) {
+        if (node.getCreateEdge().getEdgeType().equals(EdgeType.REFERENCE)) {
+            return node.getCreateEdge().getName() + " (ref " + node.getCreateEdge().getInteractionReference() + ")";
+        }
+        return node.getCreateEdge().getName();
+    }
+
 }
@@ -39,6 +39,16 @@ public class UmlModelInterpreter extends AbstractInterpreter {
         }
 
         Node nodeToAdd = (Node) change.getNewValue();
+        if (nodeToAdd.getCreateEdge().getEdgeType().equals(EdgeType.REFERENCE)) {
+            modelManager.addInteractionUseToModel(nodeToAdd);
+            logger.debug("Interaction use {} added to uml model, notation is not created for interaction uses", nodeToAdd.getCreateEdge().getName());
+            try {
+                storeModelResource();
+            } catch (ResourceStoreException e) {
+                logger.error("Error storing resource: ", e);
+            }
+            return;
+        }
         Node nodeToAddReturn = null;
         for (Node node : nodeToAdd.childNodes()) {
             if (node.isReply()) {
@@ -78,6 +88,15 @@ public class UmlModelInterpreter extends AbstractInterpreter {
             return;
         }
         Node nodeToRemove = (Node) change.getNewValue();
+        if (nodeToRemove.getCreateEdge().getEdgeType().equals(EdgeType.REFERENCE)) {
+            modelManager.removeInteractionUseFromModel(nodeToRemove);
+            try {
+                storeModelResource();
+            } catch (ResourceStoreException e) {
+                logger.error("Error storing resource: ", e);
+            }
+            return;
+        }
         Node nodeToRemoveReturn = null;
         for (Node node : nodeToRemove.childNodes()) {
             if (node.isReply()) {
@@ -1,10 +1,12 @@
 package com.mlyncar.dp.interpreter.core.impl.manager;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.UUID;
 
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.uml2.uml.ActionExecutionSpecification;
 import org.eclipse.uml2.uml.CombinedFragment;
@@ -13,6 +15,7 @@ import org.eclipse.uml2.uml.InteractionConstraint;
 import org.eclipse.uml2.uml.InteractionFragment;
 import org.eclipse.uml2.uml.InteractionOperand;
 import org.eclipse.uml2.uml.InteractionOperatorKind;
+import org.eclipse.uml2.uml.InteractionUse;
 import org.eclipse.uml2.uml.Lifeline;
 import org.eclipse.uml2.uml.LiteralString;
 import org.eclipse.uml2.uml.Message;
@@ -128,6 +131,109 @@ public class ModelManager {
         return modelSet;
     }
 
+    public InteractionUse addInteractionUseToModel(Node nodeToAdd) throws InterpreterException {
+        String useName = nodeToAdd.getCreateEdge().getName();
+        logger.debug("Adding interaction use {} referencing {}", useName, nodeToAdd.getCreateEdge().getInteractionReference());
+        Lifeline targetLifeline = interaction.getLifeline(nodeToAdd.getName());
+        Lifeline sourceLifeline = interaction.getLifeline(nodeToAdd.getParentNode().getName());
+        if (targetLifeline == null) {
+            throw new InterpreterException("Unable to interpret interaction use " + useName + ", target lifeline not found " + nodeToAdd.getName());
+        }
+        if (sourceLifeline == null) {
+            throw new InterpreterException("Unable to interpret interaction use " + useName + ", source lifeline not found " + nodeToAdd.getParentNode().getName());
+        }
+        InteractionUse interactionUse = UMLFactory.eINSTANCE.createInteractionUse();
+        interactionUse.setName(useName);
+        interactionUse.getCovereds().add(sourceLifeline);
+        if (!targetLifeline.equals(sourceLifeline)) {
+            interactionUse.getCovereds().add(targetLifeline);
+        }
+        Interaction referencedInteraction = findInteraction(nodeToAdd.getCreateEdge().getInteractionReference());
+        if (referencedInteraction != null) {
+            interactionUse.setRefersTo(referencedInteraction);
+        } else {
+            logger.debug("No interaction of model matches reference {}, interaction use {} is added without referred interaction",
+                    nodeToAdd.getCreateEdge().getInteractionReference(), useName);
+        }
+
+        MessagePlacementHolder placementIndex = getPlacementIndex(nodeToAdd, interaction, null);
+        if (placementIndex.getContainer() == null) {
+            interaction.getFragments().add(interactionUse);
+        } else {
+            placementIndex.getContainer().add(placementIndex.getIndex() + 1, interactionUse);
+        }
+        return interactionUse;
+    }
+
+    public void removeInteractionUseFromModel(Node nodeToRemove) {
+        InteractionUse interactionUse = findInteractionUse(nodeToRemove.getCreateEdge().getName(), interaction.getFragments());
+        if (interactionUse == null) {
+            logger.debug("Interaction use {} not found in model", nodeToRemove.getCreateEdge().getName());
+            return;
+        }
+        interactionUse.destroy();
+    }
+
+    private InteractionUse findInteractionUse(String name, List<InteractionFragment> fragments) {
+        for (InteractionFragment fragment : fragments) {
+            if (fragment instanceof InteractionUse && name.equals(fragment.getName())) {
+                return (InteractionUse) fragment;
+            } else if (fragment instanceof CombinedFragment) {
+                InteractionUse nestedUse = findInteractionUse(name, ((CombinedFragment) fragment).getOperands().get(0).getFragments());
+                if (nestedUse != null) {
+                    return nestedUse;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Interaction reference is qualified name of method in form
+     * package.Class.method while interactions of model are named by their
+     * authors. Interaction is resolved by the whole reference first and then
+     * by its shorter suffixes Class.method and method. Suffix matching more
+     * interactions is ambiguous and nothing is resolved.
+     *
+     * @param reference qualified name of referenced method
+     * @return the only interaction named by the reference or its suffix, null
+     * if there is no such interaction
+     */
+    private Interaction findInteraction(String reference) {
+        if (reference == null) {
+            return null;
+        }
+        List<Interaction> interactions = new ArrayList<Interaction>();
+        Iterator<EObject> it = resource.getAllContents();
+        while (it.hasNext()) {
+            EObject object = it.next();
+            if (object instanceof Interaction) {
+                interactions.add((Interaction) object);
+            }
+        }
+        String name = reference;
+        while (true) {
+            Interaction matchingInteraction = null;
+            for (Interaction candidate : interactions) {
+                if (name.equals(candidate.getName())) {
+                    if (matchingInteraction != null) {
+                        logger.debug("Interaction reference {} is ambiguous, more interactions are named {}", reference, name);
+                        return null;
+                    }
+                    matchingInteraction = candidate;
+                }
+            }
+            if (matchingInteraction != null) {
+                return matchingInteraction;
+            }
+            int separator = name.indexOf('.');
+            if (separator < 0) {
+                return null;
+            }
+            name = name.substring(separator + 1);
+        }
+    }
+
     public void removeMessageFromModel(Node nodeToRemove, Node nodeToRemoveReturn, MessageRemoveModelSet modelSet) {
 
     	Message msg1 = interaction.getMessage(nodeToRemove.getCreateEdge().getName());
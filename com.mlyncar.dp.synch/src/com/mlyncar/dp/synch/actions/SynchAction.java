@@ -1,12 +1,17 @@
 package com.mlyncar.dp.synch.actions;
 
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.IWorkbenchWindowActionDelegate;
 
-import com.mlyncar.dp.synch.exception.SynchronizationException;
+import com.mlyncar.dp.analyzer.exception.AnalyzerException;
+import com.mlyncar.dp.analyzer.helper.EclipseProjectNavigatorHelper;
+import com.mlyncar.dp.analyzer.helper.SelectedProject;
+import com.mlyncar.dp.synch.job.SynchronizationJob;
 import com.mlyncar.dp.synch.service.SynchronizationService;
 
 /**
@@ -29,25 +34,38 @@ public class SynchAction implements IWorkbenchWindowActionDelegate {
 
     /**
      * The action has been activated. The argument of the method represents the
-     * 'real' action sitting in the workbench UI.
+     * 'real' action sitting in the workbench UI. Synchronization runs in
+     * background job, failures are reported by the job. Project and its UML
+     * model are read from selection here in UI thread, before the job starts.
      *
      * @see IWorkbenchWindowActionDelegate#run
      */
     public void run(IAction action) {
-        SynchronizationService service = new SynchronizationService();
+        SelectedProject selectedProject;
         try {
-            service.synchronizeDiagramsAndSourceCode();
-            MessageDialog.openInformation(
-                    window.getShell(),
-                    "Synchronization Tool",
-                    "Synchronization Successful");
-        } catch (SynchronizationException ex) {
-            ex.printStackTrace();
-            MessageDialog.openInformation(
-                    window.getShell(),
-                    "Synch Failed",
-                    ex.getMessage());
+            selectedProject = EclipseProjectNavigatorHelper.getSelectedProject();
+        } catch (AnalyzerException ex) {
+            MessageDialog.openError(window.getShell(), "Synchronization Tool", ex.getMessage());
+            return;
         }
+        if (selectedProject == null || selectedProject.getModelPath() == null) {
+            MessageDialog.openError(window.getShell(), "Synchronization Tool", "Select project with UML model to synchronize.");
+            return;
+        }
+        SynchronizationJob job = new SynchronizationJob(new SynchronizationService(), selectedProject);
+        job.setUser(true);
+        job.addJobChangeListener(new JobChangeAdapter() {
+            @Override
+            public void done(IJobChangeEvent event) {
+                if (event.getResult().isOK()) {
+                    window.getShell().getDisplay().asyncExec(() -> MessageDialog.openInformation(
+                            window.getShell(),
+                            "Synchronization Tool",
+                            "Synchronization Successful"));
+                }
+            }
+        });
+        job.schedule();
     }
 
     /**
@@ -54,4 +54,8 @@ public class PropertyLoader {
     public String getProperty(String key) {
         return this.properties.getProperty(key);
     }
+
+    public Properties getProperties() {
+        return this.properties;
+    }
 }
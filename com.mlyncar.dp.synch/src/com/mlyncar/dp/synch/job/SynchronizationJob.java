@@ -0,0 +1,57 @@
+package com.mlyncar.dp.synch.job;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.helper.SelectedProject;
+import com.mlyncar.dp.synch.Activator;
+import com.mlyncar.dp.synch.exception.SynchronizationException;
+import com.mlyncar.dp.synch.service.SynchronizationService;
+
+/**
+ * Runs synchronization of diagrams and source code outside of UI thread.
+ * Progress of every synchronization stage is reported to monitor of the job
+ * and canceling the job stops synchronization before the next stage.
+ * Project is selected before the job is scheduled, so changing selection
+ * while the job runs does not change synchronized project. Job creates and
+ * deletes scratch projects and rewrites models of the project, so it holds
+ * rule of workspace root and does not run together with builds or another
+ * synchronization.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class SynchronizationJob extends Job {
+
+    private final Logger logger = LoggerFactory.getLogger(SynchronizationJob.class);
+    private final SynchronizationService service;
+    private final SelectedProject selectedProject;
+
+    public SynchronizationJob(SynchronizationService service, SelectedProject selectedProject) {
+        super("Synchronizing diagrams and source code");
+        this.service = service;
+        this.selectedProject = selectedProject;
+        setRule(ResourcesPlugin.getWorkspace().getRoot());
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        try {
+            service.synchronizeDiagramsAndSourceCode(selectedProject, monitor);
+            return Status.OK_STATUS;
+        } catch (OperationCanceledException ex) {
+            logger.debug("Synchronization canceled");
+            return Status.CANCEL_STATUS;
+        } catch (SynchronizationException ex) {
+            logger.error("Synchronization failed", ex);
+            return new Status(IStatus.ERROR, Activator.PLUGIN_ID, ex.getMessage(), ex);
+        } finally {
+            monitor.done();
+        }
+    }
+}
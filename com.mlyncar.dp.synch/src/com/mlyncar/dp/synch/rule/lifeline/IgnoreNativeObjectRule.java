@@ -1,5 +1,6 @@
 package com.mlyncar.dp.synch.rule.lifeline;
 
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
 import com.mlyncar.dp.comparison.entity.Change;
 import com.mlyncar.dp.synch.exception.SynchRuleException;
 import com.mlyncar.dp.synch.rule.SynchRule;
@@ -12,7 +13,7 @@ public class IgnoreNativeObjectRule implements SynchRule {
     public boolean validateChange(Change change, StatsProviderHolder statsHolder)
             throws SynchRuleException {
         Node node = (Node) change.getNewValue();
-        if (node.getPackage().contains("java.io") || node.getPackage().contains("java.util") || node.getPackage().contains("java.lang") || node.getPackage().equals("")) {
+        if (PackagePolicy.isNativePackage(node.getPackage()) || node.getPackage().equals("")) {
             return false;
         }
         return true;
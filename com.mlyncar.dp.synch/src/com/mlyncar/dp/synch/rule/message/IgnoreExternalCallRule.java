@@ -3,6 +3,7 @@ package com.mlyncar.dp.synch.rule.message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mlyncar.dp.analyzer.code.config.PackagePolicy;
 import com.mlyncar.dp.comparison.entity.Change;
 import com.mlyncar.dp.synch.exception.SynchRuleException;
 import com.mlyncar.dp.synch.rule.SynchRule;
@@ -25,12 +26,9 @@ public class IgnoreExternalCallRule implements SynchRule {
 			while(!root.getParentNode().getPackage().isEmpty()) {
 				 root = root.getParentNode();
 			}
-			int dot1 = nodePackage.indexOf(".");
-			int dot2 = nodePackage.indexOf(".", dot1 + 1);
-			String subPackage = nodePackage.substring(0, dot2);
 			logger.debug("ROOT package: {}", root.getPackage());
-			if(!root.getPackage().contains(subPackage)) {
-				logger.debug("Ignoring addition of lifeline: {}. Object is located in different package group. {}", node.getName(), subPackage);
+			if(!PackagePolicy.isSamePackageGroup(nodePackage, root.getPackage())) {
+				logger.debug("Ignoring addition of lifeline: {}. Object is located in different package group. {}", node.getName(), PackagePolicy.getPackageGroup(nodePackage));
 				return false; 
 			}
 		}
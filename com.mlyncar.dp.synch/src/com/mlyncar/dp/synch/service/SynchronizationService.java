@@ -1,10 +1,18 @@
 package com.mlyncar.dp.synch.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
+import com.mlyncar.dp.analyzer.helper.SelectedProject;
 import com.mlyncar.dp.comparison.entity.ChangeLog;
 import com.mlyncar.dp.comparison.exception.ComparisonException;
 import com.mlyncar.dp.comparison.service.ComparisonService;
@@ -16,22 +24,39 @@ import com.mlyncar.dp.synch.core.SynchronizationEngine;
 import com.mlyncar.dp.synch.core.impl.SynchronizationEngineImpl;
 import com.mlyncar.dp.synch.exception.ConfigurationException;
 import com.mlyncar.dp.synch.exception.SynchronizationException;
+import com.mlyncar.dp.synch.job.SynchronizationJob;
+import com.mlyncar.dp.transformer.exception.CallTreeExpansionException;
 
 public class SynchronizationService {
 
     private final Logger logger = LoggerFactory.getLogger(SynchronizationService.class);
 
-    public void synchronizeDiagramsAndSourceCode() throws SynchronizationException {
-
-        ComparisonService service = new ComparisonService();
+    /**
+     * Comparison takes most of the work, synchronization rules and
+     * interpretation are reported for every change log.
+     *
+     * @param selectedProject project and UML model which are synchronized
+     * @param monitor monitor of synchronization, synchronization throws
+     * {@link org.eclipse.core.runtime.OperationCanceledException} when it is
+     * canceled
+     */
+    public void synchronizeDiagramsAndSourceCode(SelectedProject selectedProject, IProgressMonitor monitor) throws SynchronizationException {
+        SubMonitor progress = SubMonitor.convert(monitor, "Synchronizing diagrams and source code", 100);
         try {
-            List<ChangeLog> changeLogs = service.compareUmlModelWithSourceCode();
+            CodeAnalyzerConfiguration analyzerConfiguration = new CodeAnalyzerConfiguration(PropertyLoader.getInstance().getProperties());
+            ComparisonService service = new ComparisonService(analyzerConfiguration, selectedProject);
+            List<ChangeLog> changeLogs = service.compareUmlModelWithSourceCode(progress.split(70));
             InterpreterService interpreterService = new InterpreterService(PropertyLoader.getInstance().getProperty("synch.changelog"));
             SynchronizationEngine ruleEngine = new SynchronizationEngineImpl();
+            SubMonitor synchronization = progress.split(30).setWorkRemaining(changeLogs.size() * 2);
             for(ChangeLog changeLog : changeLogs) {
+                synchronization.subTask("Applying synchronization rules");
+                synchronization.split(1);
                 ruleEngine.processChangesViaSynchRules(changeLog);
                 logger.debug("List of changes processed by synch engine:");
                 ComparisonTestHelper.printChanges(changeLog);
+                synchronization.subTask("Interpreting changes");
+                synchronization.split(1);
                 interpreterService.interpretChanges(changeLog);
             }
 
@@ -41,7 +66,44 @@ public class SynchronizationService {
             throw new SynchronizationException("Unable to synchronize source code and diagrams because of the exception configuration part.", ex);
         } catch (InterpreterException ex) {
             throw new SynchronizationException("Unable to synchronize source code and diagrams because of the interpreter module.", ex);
+        } catch (CallTreeExpansionException ex) {
+            throw new SynchronizationException("Unable to synchronize source code and diagrams because calls of source code graph were not extracted.", ex);
         }
     }
 
+    /**
+     * Runs synchronization in background job, intended for callers without
+     * user interface. Canceling returned future cancels the job.
+     *
+     * @param selectedProject project and UML model which are synchronized
+     *
+     * @return future completed when synchronization finishes, completed
+     * exceptionally with {@link SynchronizationException} if it fails
+     */
+    public CompletableFuture<Void> synchronizeDiagramsAndSourceCodeAsync(SelectedProject selectedProject) {
+        SynchronizationJob job = new SynchronizationJob(this, selectedProject);
+        CompletableFuture<Void> future = new CompletableFuture<Void>();
+        job.addJobChangeListener(new JobChangeAdapter() {
+            @Override
+            public void done(IJobChangeEvent event) {
+                IStatus result = event.getResult();
+                if (result.isOK()) {
+                    future.complete(null);
+                } else if (result.getSeverity() == IStatus.CANCEL) {
+                    future.cancel(false);
+                } else if (result.getException() != null) {
+                    future.completeExceptionally(result.getException());
+                } else {
+                    future.completeExceptionally(new SynchronizationException(result.getMessage()));
+                }
+            }
+        });
+        future.whenComplete((result, ex) -> {
+            if (future.isCancelled()) {
+                job.cancel();
+            }
+        });
+        job.schedule();
+        return future;
+    }
 }
@@ -6,8 +6,6 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.mlyncar.dp.analyzer.entity.Message;
-import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 import com.mlyncar.dp.synch.stat.GraphStatsProvider;
 import com.mlyncar.dp.transformer.entity.Edge;
 import com.mlyncar.dp.transformer.entity.Graph;
@@ -16,12 +14,10 @@ import com.mlyncar.dp.transformer.entity.LeveledNode;
 public class GraphStatsProviderImpl implements GraphStatsProvider {
 
     private final Graph graph;
-    private final SeqDiagram diagram;
     private final Logger logger = LoggerFactory.getLogger(GraphStatsProviderImpl.class);
     
-    public GraphStatsProviderImpl(Graph graph, SeqDiagram diagram) {
+    public GraphStatsProviderImpl(Graph graph) {
         this.graph = graph;
-        this.diagram = diagram;
     }
 
     @Override
@@ -65,8 +61,8 @@ public class GraphStatsProviderImpl implements GraphStatsProvider {
 	public Integer getNumberOfFragments(String fragmentToIgnore) {
 		
         int count = 0;
-        for (Message message : diagram.getMessages()) {
-        	count += message.getCombFragments().size();
+        for (LeveledNode leveledNode : graph.getOrderedNodes()) {
+        	count += leveledNode.getNode().combinedFragments().size();
         }
         logger.debug("Number of fragments in diagram {}", count);
         return count;
@@ -0,0 +1,20 @@
+package com.mlyncar.dp.transformer.core;
+
+import com.mlyncar.dp.analyzer.entity.MessageSink;
+import com.mlyncar.dp.transformer.entity.Graph;
+import com.mlyncar.dp.transformer.exception.GraphTransformationException;
+
+/**
+ * Builds graph of one sequence diagram from messages pushed in order of the
+ * diagram. Every message is inserted into graph as soon as it is received.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public interface GraphBuilder extends MessageSink {
+
+    /**
+     * @return graph of all received messages
+     * @throws GraphTransformationException if no message was received
+     */
+    public Graph getGraph() throws GraphTransformationException;
+}
@@ -1,5 +1,8 @@
 package com.mlyncar.dp.transformer.core;
 
+import java.util.List;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
 import com.mlyncar.dp.transformer.entity.Graph;
 import com.mlyncar.dp.transformer.exception.GraphTransformationException;
@@ -7,4 +10,25 @@ import com.mlyncar.dp.transformer.exception.GraphTransformationException;
 public interface TransformationEngine {
 
     public Graph transformSequenceDiagram(SeqDiagram diagram) throws GraphTransformationException;
+
+    /**
+     * @param diagram diagram graph is built for, its messages are not read
+     * @return builder inserting pushed messages into graph of diagram
+     */
+    public GraphBuilder createGraphBuilder(SeqDiagram diagram);
+
+    /**
+     * @param callTree call tree extracted from source code
+     * @return graph whose nodes are expanded from call tree when their child
+     * nodes are first requested
+     */
+    public Graph createLazyGraph(CallTree callTree) throws GraphTransformationException;
+
+    /**
+     * @param callTrees call trees whose call messages are sent from the same
+     * lifeline
+     * @return graph whose root node is the common source lifeline with node
+     * of every call tree, named by the first call tree
+     */
+    public Graph createLazyGraph(List<CallTree> callTrees) throws GraphTransformationException;
 }
@@ -1,19 +1,25 @@
 package com.mlyncar.dp.transformer.core.impl;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mlyncar.dp.analyzer.code.CallTree;
 import com.mlyncar.dp.analyzer.entity.CombFragment;
 import com.mlyncar.dp.analyzer.entity.Message;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.entity.impl.SeqDiagramImpl;
+import com.mlyncar.dp.analyzer.exception.MessageSinkException;
+import com.mlyncar.dp.transformer.core.GraphBuilder;
 import com.mlyncar.dp.transformer.core.TransformationEngine;
 import com.mlyncar.dp.transformer.entity.Edge;
 import com.mlyncar.dp.transformer.entity.EdgeType;
 import com.mlyncar.dp.transformer.entity.Graph;
 import com.mlyncar.dp.transformer.entity.Node;
 import com.mlyncar.dp.transformer.entity.impl.EdgeImpl;
+import com.mlyncar.dp.transformer.entity.impl.LazyNodeImpl;
 import com.mlyncar.dp.transformer.entity.impl.NodeCombinedFragmentImpl;
 import com.mlyncar.dp.transformer.entity.impl.NodeImpl;
 import com.mlyncar.dp.transformer.entity.impl.TreeGraph;
@@ -28,20 +34,45 @@ public class TransformationEngineImpl implements TransformationEngine {
     @Override
     public Graph transformSequenceDiagram(SeqDiagram diagram)
             throws GraphTransformationException {
-        Graph graph = initializeGraphStructure(diagram);
-        Node previousNode = graph.getRootNode();
+        TreeGraphBuilder builder = new TreeGraphBuilder(diagram);
         for (Message message : diagram.getMessages()) {
-            Node newNode = storeMessageIntoGraph(graph, message, previousNode);
-            previousNode = newNode;
+            builder.insertMessage(message);
         }
+        Graph graph = builder.getGraph();
         new TransformationTestHelper().printGraph(graph);;
         return graph;
     }
 
+    @Override
+    public GraphBuilder createGraphBuilder(SeqDiagram diagram) {
+        return new TreeGraphBuilder(diagram);
+    }
+
+    @Override
+    public Graph createLazyGraph(CallTree callTree) throws GraphTransformationException {
+        return createLazyGraph(Collections.singletonList(callTree));
+    }
+
+    @Override
+    public Graph createLazyGraph(List<CallTree> callTrees) throws GraphTransformationException {
+        SeqDiagram diagram = new SeqDiagramImpl();
+        diagram.setName(callTrees.get(0).getQualifiedName());
+        Graph graph = initializeGraphStructure(diagram, callTrees.get(0).getCallMessage());
+        Node rootNode = graph.getRootNode();
+        for (CallTree callTree : callTrees) {
+            rootNode.addChildNode(new LazyNodeImpl(callTree, rootNode));
+        }
+        return graph;
+    }
+
     private Node storeMessageIntoGraph(Graph graph, Message message, Node lastInsertedNode) throws GraphTransformationException {
         try {
             logger.debug("Finding suitable place for node " + message.getName() + " " + message.getTargetLifeline().getName());
-            Edge edge = new EdgeImpl(message.getName(), EdgeType.fromCode(message.getType().getCode()));
+            Edge edge = new EdgeImpl(message.getName(), EdgeType.fromCode(message.getType().getCode()), message.getInteractionReference());
+            if (lastInsertedNode.getCreateEdge() != null && lastInsertedNode.getCreateEdge().getEdgeType().equals(EdgeType.REFERENCE)) {
+                logger.debug("Found interaction reference, moving to parent");
+                return storeMessageIntoGraph(graph, message, lastInsertedNode.getParentNode());
+            }
             if (lastInsertedNode.getParentNode() == null) {
                 logger.debug("Adding node to root node");
                 Node node = new NodeImpl(edge, lastInsertedNode, message.getTargetLifeline().getName(), message.getTargetLifeline().getPackageName());
@@ -70,8 +101,8 @@ public class TransformationEngineImpl implements TransformationEngine {
         }
     }
 
-    private Graph initializeGraphStructure(SeqDiagram diagram) {
-        Node rootNode = new NodeImpl(null, null, diagram.getMessages().get(0).getSourceLifeline().getName(), diagram.getMessages().get(0).getSourceLifeline().getPackageName());
+    private Graph initializeGraphStructure(SeqDiagram diagram, Message firstMessage) {
+        Node rootNode = new NodeImpl(null, null, firstMessage.getSourceLifeline().getName(), firstMessage.getSourceLifeline().getPackageName());
         Graph graph = new TreeGraph(rootNode, diagram);
         return graph;
     }
@@ -91,4 +122,43 @@ public class TransformationEngineImpl implements TransformationEngine {
         }
     }
 
+    /**
+     * Graph is created from source lifeline of the first received message,
+     * every following message is stored below the last inserted node.
+     */
+    private class TreeGraphBuilder implements GraphBuilder {
+
+        private final SeqDiagram diagram;
+        private Graph graph;
+        private Node previousNode;
+
+        private TreeGraphBuilder(SeqDiagram diagram) {
+            this.diagram = diagram;
+        }
+
+        @Override
+        public void addMessage(Message message) throws MessageSinkException {
+            try {
+                insertMessage(message);
+            } catch (GraphTransformationException ex) {
+                throw new MessageSinkException("Unable to insert message " + message.getName() + " into graph", ex);
+            }
+        }
+
+        @Override
+        public Graph getGraph() throws GraphTransformationException {
+            if (graph == null) {
+                throw new GraphTransformationException("Sequence diagram " + diagram.getName() + " does not contain any message");
+            }
+            return graph;
+        }
+
+        private void insertMessage(Message message) throws GraphTransformationException {
+            if (graph == null) {
+                graph = initializeGraphStructure(diagram, message);
+                previousNode = graph.getRootNode();
+            }
+            previousNode = storeMessageIntoGraph(graph, message, previousNode);
+        }
+    }
 }
@@ -14,4 +14,6 @@ public interface Edge {
 
     public void setEdgeType(EdgeType edgeType);
 
+    public String getInteractionReference();
+
 }
@@ -13,7 +13,8 @@ public enum EdgeType {
     CREATE("create"),
     RETURN("return"),
     DESTROY("destroy"),
-    SELF("self");
+    SELF("self"),
+    REFERENCE("reference");
 
     private final String code;
 
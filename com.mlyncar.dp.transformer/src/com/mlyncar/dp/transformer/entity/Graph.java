@@ -14,10 +14,12 @@ public interface Graph {
 
     public Node getRootNode();
 
+    /**
+     * @return number of edges on the longest path from root node, zero for
+     * graph with root node only
+     */
     public Integer getTreeDepth();
 
-    public void incrementTreeDepth();
-
     public List<LeveledNode> getOrderedNodes();
 
     public SeqDiagram getSeqDiagram();
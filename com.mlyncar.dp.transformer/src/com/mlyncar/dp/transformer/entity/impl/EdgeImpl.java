@@ -14,12 +14,18 @@ public class EdgeImpl implements Edge {
 
     private String name;
     private EdgeType edgeType;
+    private final String interactionReference;
     private final Logger logger = LoggerFactory.getLogger(EdgeImpl.class);
 
     public EdgeImpl(String name, EdgeType edgeType) {
+        this(name, edgeType, null);
+    }
+
+    public EdgeImpl(String name, EdgeType edgeType, String interactionReference) {
         logger.debug("Creating instance of EdgeImpl with name: {}", name);
         this.name = name;
         this.edgeType = edgeType;
+        this.interactionReference = interactionReference;
     }
 
     @Override
@@ -42,4 +48,8 @@ public class EdgeImpl implements Edge {
         this.edgeType = edgeType;
     }
 
+    @Override
+    public String getInteractionReference() {
+        return this.interactionReference;
+    }
 }
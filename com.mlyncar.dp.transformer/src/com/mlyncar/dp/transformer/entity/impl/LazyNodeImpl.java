@@ -0,0 +1,88 @@
+package com.mlyncar.dp.transformer.entity.impl;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
+import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.transformer.entity.Edge;
+import com.mlyncar.dp.transformer.entity.EdgeType;
+import com.mlyncar.dp.transformer.entity.Node;
+import com.mlyncar.dp.transformer.exception.CallTreeExpansionException;
+import com.mlyncar.dp.transformer.exception.GraphTransformationException;
+import com.mlyncar.dp.transformer.exception.MessageTypeException;
+
+/**
+ * Node of call extracted from source code whose child nodes are created from
+ * calls of the called method when they are first requested. Children are the
+ * calls followed by reply node, the same nodes graph builder creates from
+ * messages of whole diagram. Failure of the expansion is thrown as
+ * {@link CallTreeExpansionException}, node is never left without calls it
+ * was not able to read.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class LazyNodeImpl extends NodeImpl {
+
+    private final Logger logger = LoggerFactory.getLogger(LazyNodeImpl.class);
+    private CallTree callTree;
+
+    public LazyNodeImpl(CallTree callTree, Node parentNode) throws GraphTransformationException {
+        super(createEdge(callTree.getCallMessage()), parentNode, callTree.getCallMessage().getTargetLifeline().getName(),
+                callTree.getCallMessage().getTargetLifeline().getPackageName());
+        this.callTree = callTree;
+        fillNodeWithFragments(this, callTree.getCallMessage().getCombFragments());
+    }
+
+    @Override
+    public List<Node> childNodes() {
+        if (callTree != null) {
+            CallTree expandedTree = callTree;
+            callTree = null;
+            try {
+                expandChildNodes(expandedTree);
+            } catch (SourceCodeAnalyzerException | GraphTransformationException ex) {
+                super.childNodes().clear();
+                callTree = expandedTree;
+                throw new CallTreeExpansionException("Unable to expand calls of node " + getName(), ex);
+            }
+        }
+        return super.childNodes();
+    }
+
+    private void expandChildNodes(CallTree expandedTree) throws SourceCodeAnalyzerException, GraphTransformationException {
+        List<Node> nodes = super.childNodes();
+        for (CallTree call : expandedTree.getCalls()) {
+            nodes.add(new LazyNodeImpl(call, this));
+        }
+        Message returnMessage = expandedTree.getReturnMessage();
+        if (returnMessage != null) {
+            Node replyNode = new NodeImpl(createEdge(returnMessage), this, returnMessage.getTargetLifeline().getName(),
+                    returnMessage.getTargetLifeline().getPackageName());
+            fillNodeWithFragments(replyNode, returnMessage.getCombFragments());
+            nodes.add(replyNode);
+        }
+        logger.debug("Calls of node {} expanded to {} child nodes", getName(), nodes.size());
+    }
+
+    private static Edge createEdge(Message message) throws GraphTransformationException {
+        try {
+            return new EdgeImpl(message.getName(), EdgeType.fromCode(message.getType().getCode()), message.getInteractionReference());
+        } catch (MessageTypeException ex) {
+            throw new GraphTransformationException("Exception while creating graph structure: ", ex);
+        }
+    }
+
+    private static void fillNodeWithFragments(Node node, List<CombFragment> fragments) throws GraphTransformationException {
+        if (fragments == null) {
+            return;
+        }
+        for (CombFragment fragment : fragments) {
+            node.addCombinedFragment(new NodeCombinedFragmentImpl(fragment, node));
+        }
+    }
+}
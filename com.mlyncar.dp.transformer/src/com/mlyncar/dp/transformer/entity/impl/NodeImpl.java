@@ -68,12 +68,13 @@ public class NodeImpl implements Node {
 
     @Override
     public void addChildNode(Node newNode) {
-        this.childNodes.add(newNode);
+        childNodes().add(newNode);
     }
 
     @Override
     public void addChildNode(Node newNode, Node leftNeighbour) {
-        this.childNodes.add(this.childNodes.indexOf(leftNeighbour) + 1, newNode);
+        List<Node> nodes = childNodes();
+        nodes.add(nodes.indexOf(leftNeighbour) + 1, newNode);
     }
 
     @Override
@@ -83,9 +84,9 @@ public class NodeImpl implements Node {
 
     @Override
     public void removeChildNode(String id) {
-        for (Node childNode : childNodes) {
+        for (Node childNode : childNodes()) {
             if (childNode.getId().equals(id)) {
-                childNodes.remove(childNode);
+                childNodes().remove(childNode);
             }
         }
     }
@@ -127,7 +128,7 @@ public class NodeImpl implements Node {
 
     @Override
     public boolean isLeaf() {
-        return this.childNodes.isEmpty();
+        return childNodes().isEmpty();
     }
 
     @Override
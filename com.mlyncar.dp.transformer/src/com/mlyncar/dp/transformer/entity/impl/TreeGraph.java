@@ -6,6 +6,8 @@ import com.mlyncar.dp.transformer.entity.LeveledNode;
 import com.mlyncar.dp.transformer.entity.Node;
 import com.mlyncar.dp.transformer.helper.impl.TreeOrderGeneratorImpl;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,7 +18,6 @@ import java.util.UUID;
 public class TreeGraph implements Graph {
 
     private final Node rootNode;
-    private Integer treeDepth = 0;
     private final String treeGraphId;
     private SeqDiagram diagram;
 
@@ -37,14 +38,27 @@ public class TreeGraph implements Graph {
         return this.rootNode;
     }
 
+    /**
+     * Depth is computed from current nodes, so it stays valid when nodes are
+     * added or removed. Every node of lazy graph is expanded.
+     */
     @Override
     public Integer getTreeDepth() {
-        return this.treeDepth;
-    }
-
-    @Override
-    public void incrementTreeDepth() {
-        this.treeDepth++;
+        int treeDepth = 0;
+        Deque<Node> nodes = new ArrayDeque<Node>();
+        Deque<Integer> depths = new ArrayDeque<Integer>();
+        nodes.push(rootNode);
+        depths.push(0);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            int depth = depths.pop();
+            treeDepth = Math.max(treeDepth, depth);
+            for (Node child : node.childNodes()) {
+                nodes.push(child);
+                depths.push(depth + 1);
+            }
+        }
+        return treeDepth;
     }
 
     @Override
@@ -0,0 +1,21 @@
+package com.mlyncar.dp.transformer.exception;
+
+/**
+ * Thrown when calls of lazily expanded node can not be extracted from source
+ * code. Child nodes are read through methods without checked exceptions, so
+ * the failure is unchecked and callers reading code graphs must not treat it
+ * as node without calls.
+ *
+ * @author Andrej Mlyncar <a.mlyncar@gmail.com>
+ */
+public class CallTreeExpansionException extends RuntimeException {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 3046817297412653371L;
+
+    public CallTreeExpansionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
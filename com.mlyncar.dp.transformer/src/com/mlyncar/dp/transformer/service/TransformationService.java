@@ -3,42 +3,234 @@ package com.mlyncar.dp.transformer.service;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+import com.mlyncar.dp.analyzer.code.CallTree;
+import com.mlyncar.dp.analyzer.code.config.CodeAnalyzerConfiguration;
 import com.mlyncar.dp.analyzer.code.exception.SourceCodeAnalyzerException;
 import com.mlyncar.dp.analyzer.code.service.CodeAnalyzerService;
+import com.mlyncar.dp.analyzer.entity.CombFragment;
+import com.mlyncar.dp.analyzer.entity.CombFragmentType;
+import com.mlyncar.dp.analyzer.entity.Message;
+import com.mlyncar.dp.analyzer.entity.MessageSinkFactory;
+import com.mlyncar.dp.analyzer.entity.MessageType;
 import com.mlyncar.dp.analyzer.entity.SeqDiagram;
+import com.mlyncar.dp.analyzer.entity.impl.CombFragmentImpl;
+import com.mlyncar.dp.analyzer.entity.impl.LifelineImpl;
+import com.mlyncar.dp.analyzer.entity.impl.MessageImpl;
 import com.mlyncar.dp.analyzer.exception.AnalyzerException;
+import com.mlyncar.dp.analyzer.exception.CombFragmentException;
+import com.mlyncar.dp.analyzer.helper.SelectedProject;
 import com.mlyncar.dp.analyzer.uml.service.UmlAnalyzerService;
+import com.mlyncar.dp.transformer.core.GraphBuilder;
 import com.mlyncar.dp.transformer.core.TransformationEngine;
 import com.mlyncar.dp.transformer.core.impl.TransformationEngineImpl;
+import com.mlyncar.dp.transformer.entity.Edge;
+import com.mlyncar.dp.transformer.entity.EdgeType;
 import com.mlyncar.dp.transformer.entity.Graph;
 import com.mlyncar.dp.transformer.entity.Node;
+import com.mlyncar.dp.transformer.entity.NodeCombinedFragment;
 import com.mlyncar.dp.transformer.entity.impl.TreeGraph;
 import com.mlyncar.dp.transformer.exception.GraphTransformationException;
 import com.mlyncar.dp.transformer.helper.TreeOrderGenerator;
 import com.mlyncar.dp.transformer.helper.impl.TreeOrderGeneratorImpl;
 
+/**
+ * UML models are analyzed by one analyzer service per transformation service,
+ * so they are loaded once and graphs of all diagrams share their resources.
+ */
 public class TransformationService {
 
     private TreeOrderGenerator treeOrderGenerator;
+    private final CodeAnalyzerConfiguration analyzerConfiguration;
+    private final UmlAnalyzerService umlAnalyzerService;
+    private final CodeAnalyzerService codeAnalyzerService;
+
+    public TransformationService() {
+        this(new CodeAnalyzerConfiguration());
+    }
+
+    public TransformationService(CodeAnalyzerConfiguration analyzerConfiguration) {
+        this.analyzerConfiguration = analyzerConfiguration;
+        this.umlAnalyzerService = new UmlAnalyzerService();
+        this.codeAnalyzerService = new CodeAnalyzerService(analyzerConfiguration);
+    }
+
+    /**
+     * @param selectedProject project and UML model transformed by the
+     * service, workbench selection is not read during transformation
+     */
+    public TransformationService(CodeAnalyzerConfiguration analyzerConfiguration, SelectedProject selectedProject) {
+        this.analyzerConfiguration = analyzerConfiguration;
+        this.umlAnalyzerService = new UmlAnalyzerService(selectedProject.getModelPath());
+        this.codeAnalyzerService = new CodeAnalyzerService(analyzerConfiguration, selectedProject.getProject());
+    }
 
-    public Graph getGraphStructureFromSourceCode() throws GraphTransformationException {
+    public Graph getGraphStructureFromSourceCode(IProgressMonitor monitor) throws GraphTransformationException {
+        return buildGraphStructuresFromSourceCode(true, monitor).get(0);
+    }
+
+    /**
+     * @return graphs of diagrams extracted from all configured entry points
+     */
+    public List<Graph> getGraphStructuresFromSourceCode(IProgressMonitor monitor) throws GraphTransformationException {
+        return buildGraphStructuresFromSourceCode(false, monitor);
+    }
+
+    /**
+     * Messages are inserted into graphs while source code is analyzed, whole
+     * diagrams extracted from code are never kept in memory.
+     */
+    private List<Graph> buildGraphStructuresFromSourceCode(boolean mainMethodOnly, IProgressMonitor monitor) throws GraphTransformationException {
         TransformationEngine engine = new TransformationEngineImpl();
+        List<GraphBuilder> builders = new ArrayList<GraphBuilder>();
+        MessageSinkFactory sinkFactory = diagram -> {
+            GraphBuilder builder = engine.createGraphBuilder(diagram);
+            builders.add(builder);
+            return builder;
+        };
         try {
-            SeqDiagram diagram = new CodeAnalyzerService().getSequenceDiagramFromCode();
-            Graph graph = engine.transformSequenceDiagram(diagram);
-            return graph;
+            if (mainMethodOnly) {
+                codeAnalyzerService.streamSequenceDiagramFromCode(sinkFactory, monitor);
+            } else {
+                codeAnalyzerService.streamSequenceDiagramsFromCode(sinkFactory, monitor);
+            }
         } catch (SourceCodeAnalyzerException ex) {
             throw new GraphTransformationException("Unable to start transformation proces because of source code analysis failure ", ex);
         }
+        List<Graph> graphs = new ArrayList<Graph>();
+        for (GraphBuilder builder : builders) {
+            graphs.add(builder.getGraph());
+        }
+        return graphs;
+    }
+
+    /**
+     * Nodes of returned graphs are extracted from source code only when their
+     * child nodes are requested, so only the parts of code graphs read by
+     * comparison are ever analyzed.
+     *
+     * @param monitor monitor of source code analysis
+     * @return graphs of call trees of all configured entry points
+     */
+    public List<Graph> getLazyGraphStructuresFromSourceCode(IProgressMonitor monitor) throws GraphTransformationException {
+        TransformationEngine engine = new TransformationEngineImpl();
+        List<Graph> graphs = new ArrayList<Graph>();
+        try {
+            for (CallTree callTree : codeAnalyzerService.getCallTreesFromCode(monitor)) {
+                graphs.add(engine.createLazyGraph(callTree));
+            }
+        } catch (SourceCodeAnalyzerException ex) {
+            throw new GraphTransformationException("Unable to start transformation proces because of source code analysis failure ", ex);
+        }
+        return graphs;
+    }
+
+    /**
+     * Code graph of every diagram is extracted only from methods invoked by
+     * messages the root lifeline of the diagram sends, so extraction is
+     * limited to the scope of the diagram and lifelines of the code graph
+     * keep names used by the diagram. Root messages of all diagrams are
+     * resolved in one analysis of source code. If diagram depth is enabled,
+     * calls are extracted only to depth of the diagram increased by
+     * configured slack.
+     *
+     * @param diagramGraphs graphs of UML diagrams
+     * @param monitor monitor of source code analysis
+     * @return lazy code graphs in order of diagram graphs, null for diagram
+     * none of whose root messages invokes method found in code
+     */
+    public List<Graph> getTargetedGraphStructuresFromSourceCode(List<Graph> diagramGraphs, IProgressMonitor monitor) throws GraphTransformationException {
+        TransformationEngine engine = new TransformationEngineImpl();
+        List<Message> rootMessages = new ArrayList<Message>();
+        List<Integer> depthLimits = new ArrayList<Integer>();
+        List<Integer> messageCounts = new ArrayList<Integer>();
+        for (Graph diagramGraph : diagramGraphs) {
+            List<Message> diagramMessages = getRootMessages(diagramGraph);
+            int depthLimit = getDepthLimit(diagramGraph);
+            for (int i = 0; i < diagramMessages.size(); i++) {
+                depthLimits.add(depthLimit);
+            }
+            rootMessages.addAll(diagramMessages);
+            messageCounts.add(diagramMessages.size());
+        }
+        List<CallTree> callTrees;
+        try {
+            callTrees = codeAnalyzerService.getTargetedCallTreesFromCode(rootMessages, depthLimits, monitor);
+        } catch (SourceCodeAnalyzerException ex) {
+            throw new GraphTransformationException("Unable to start transformation proces because of source code analysis failure ", ex);
+        }
+        List<Graph> graphs = new ArrayList<Graph>();
+        int messageIndex = 0;
+        for (Integer messageCount : messageCounts) {
+            List<CallTree> diagramTrees = new ArrayList<CallTree>();
+            for (int i = 0; i < messageCount; i++) {
+                CallTree callTree = callTrees.get(messageIndex++);
+                if (callTree != null) {
+                    diagramTrees.add(callTree);
+                }
+            }
+            graphs.add(diagramTrees.isEmpty() ? null : engine.createLazyGraph(diagramTrees));
+        }
+        return graphs;
+    }
+
+    /**
+     * Root message of diagram is at depth one of diagram graph and at depth
+     * zero of call tree, so the tree is one level shallower than the graph.
+     */
+    private int getDepthLimit(Graph diagramGraph) {
+        if (!analyzerConfiguration.isDiagramDepthEnabled()) {
+            return analyzerConfiguration.getMaxCallDepth();
+        }
+        return Math.max(diagramGraph.getTreeDepth() - 1 + analyzerConfiguration.getDepthSlack(), 0);
+    }
+
+    private List<Message> getRootMessages(Graph diagramGraph) {
+        List<Message> messages = new ArrayList<Message>();
+        Node rootNode = diagramGraph.getRootNode();
+        for (Node child : rootNode.childNodes()) {
+            Edge edge = child.getCreateEdge();
+            if (child.isReply() || edge == null || edge.getEdgeType() == EdgeType.REFERENCE) {
+                continue;
+            }
+            MessageType type = edge.getEdgeType() == EdgeType.SELF ? MessageType.SELF : MessageType.SYNCH;
+            messages.add(new MessageImpl(0, type, edge.getName(), new LifelineImpl(child.getName(), child.getPackage()),
+                    new LifelineImpl(rootNode.getName(), rootNode.getPackage()), getCombFragments(child)));
+        }
+        return messages;
+    }
+
+    private List<CombFragment> getCombFragments(Node node) {
+        List<CombFragment> fragments = new ArrayList<CombFragment>();
+        for (NodeCombinedFragment fragment : node.combinedFragments()) {
+            try {
+                fragments.add(new CombFragmentImpl(fragment.getFragmentBody(), CombFragmentType.fromCode(fragment.getCombinedFragmentType().getCode())));
+            } catch (CombFragmentException ex) {
+                continue;
+            }
+        }
+        return fragments;
     }
 
-    public List<Graph> getGraphStructuresFromUmlModel() throws GraphTransformationException {
+    /**
+     * Loading of UML model is the first unit of work, transformation of
+     * diagrams the second one.
+     *
+     * @param monitor monitor of UML model analysis and transformation
+     */
+    public List<Graph> getGraphStructuresFromUmlModel(IProgressMonitor monitor) throws GraphTransformationException {
         TransformationEngine engine = new TransformationEngineImpl();
         List<Graph> graphs = new ArrayList<Graph>();
-        UmlAnalyzerService analyzerService = new UmlAnalyzerService();
+        SubMonitor progress = SubMonitor.convert(monitor, 2);
         
         try {
-            for (SeqDiagram diagram : analyzerService.getAllModelDiagrams()) {
+            progress.split(1);
+            List<SeqDiagram> diagrams = umlAnalyzerService.getAllModelDiagrams();
+            SubMonitor transformation = progress.split(1).setWorkRemaining(diagrams.size());
+            for (SeqDiagram diagram : diagrams) {
+                transformation.split(1);
                 graphs.add(engine.transformSequenceDiagram(diagram));
             }
         } catch (AnalyzerException ex) {
@@ -48,11 +240,10 @@ public class TransformationService {
     }
 
     public Graph getGraphStructureFromConcreteDiagram(String diagramIdentifier) throws GraphTransformationException {
-        UmlAnalyzerService analyzerService = new UmlAnalyzerService();
         TransformationEngine engine = new TransformationEngineImpl();
         Graph graph;
         try {
-            graph = engine.transformSequenceDiagram(analyzerService.getSeqDiagram(diagramIdentifier));
+            graph = engine.transformSequenceDiagram(umlAnalyzerService.getSeqDiagram(diagramIdentifier));
         } catch (AnalyzerException ex) {
             throw new GraphTransformationException("Unable to start transformation proces because of UML model analysis failure ", ex);
         }